@@ -3,6 +3,7 @@ import org.gradle.api.JavaVersion.VERSION_21
 plugins {
     java
     `jvm-test-suite`
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.github.kjetilv"
@@ -26,6 +27,25 @@ java {
 testing {
     this.suites.named<JvmTestSuite>("test") {
         useJUnitJupiter()
+        targets.all {
+            testTask.configure {
+                useJUnitPlatform {
+                    excludeTags("memory")
+                }
+            }
+        }
+    }
+}
+
+// Retained heap measurements, tagged "memory".  They force garbage collections and depend on the collector, so they
+// are left out of gradle test.  Run with gradle memoryTest.
+tasks.register<Test>("memoryTest") {
+    group = "verification"
+    description = "Measures retained heap of memoized corpora"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("memory")
     }
 }
 
@@ -36,3 +56,31 @@ dependencies {
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.13.1")
 }
 
+// Benchmarks in src/jmh, run with gradle jmh.  Narrow down with -Pjmh.includes=<regex>.
+// Test classes are included, for the corpus generator.
+// Settings are fixed, so results in build/results/jmh can be compared across commits.
+jmh {
+    jmhVersion = "1.37"
+    includes = providers.gradleProperty("jmh.includes").map { listOf(it) }.orElse(listOf(".*"))
+    fork = 2
+    warmupIterations = 3
+    warmup = "2s"
+    iterations = 5
+    timeOnIteration = "2s"
+    jvmArgs = listOf("-Xms2g", "-Xmx2g", "-XX:+UseParallelGC")
+    resultFormat = "JSON"
+    duplicateClassesStrategy = DuplicatesStrategy.EXCLUDE
+    includeTests = true
+}
+
+
+// Multi-threaded load harness, run with gradle loadHarness -Pload.args="threads=1,2,4 kinds=virtual"
+tasks.register<JavaExec>("loadHarness") {
+    group = "verification"
+    description = "Runs mixed workloads on increasing numbers of threads"
+    classpath = sourceSets["jmh"].runtimeClasspath + sourceSets["test"].output
+    mainClass = "com.github.kjetilv.eda.impl.LoadHarness"
+    javaLauncher = javaToolchains.launcherFor { languageVersion = JavaLanguageVersion.of(21) }
+    jvmArgs = listOf("-Xms2g", "-Xmx2g")
+    args = providers.gradleProperty("load.args").map { listOf(it) }.orElse(listOf()).get()
+}
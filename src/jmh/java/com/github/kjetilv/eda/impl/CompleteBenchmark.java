@@ -0,0 +1,52 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizedMaps;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to {@link MapsMemoizer#complete(Completion...) complete} a memoizer, by completion.  A new memoizer is
+ * filled before each invocation, outside the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompleteBenchmark {
+
+    @Param({"COMPLETE", "FROZEN_INDEX", "ENCODED"})
+    public String completion;
+
+    private List<Map<String, Object>> corpus;
+
+    private MapsMemoizer<Integer, String> memoizer;
+
+    @Setup(Level.Trial)
+    public void corpus() {
+        corpus = Shape.DEEP.corpus(0.5d).seed(SEED).list(CORPUS);
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        memoizer = MapsMemoizers.create();
+        for (int i = 0; i < CORPUS; i++) {
+            memoizer.put(i, corpus.get(i));
+        }
+    }
+
+    @Benchmark
+    public MemoizedMaps<Integer, String> complete() {
+        return completion.equals("COMPLETE")
+            ? memoizer.complete()
+            : memoizer.complete(Completion.valueOf(completion));
+    }
+
+    private static final int CORPUS = 5_000;
+
+    private static final long SEED = 42L;
+}
@@ -0,0 +1,88 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent reads and writes on one memoizer.  Readers get known identifiers, while writers put new ones.
+ * The {@code readMostly} group has three readers to one writer, {@code writeMostly} the other way around.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentBenchmark {
+
+    private List<Map<String, Object>> corpus;
+
+    private MapsMemoizer<Integer, String> memoizer;
+
+    private final AtomicInteger nextIdentifier = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        corpus = Shape.FLAT.corpus(0.5d).seed(SEED).list(CORPUS);
+        memoizer = MapsMemoizers.create();
+        for (int i = 0; i < CORPUS; i++) {
+            memoizer.put(i, corpus.get(i));
+        }
+        nextIdentifier.set(CORPUS);
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private final SplittableRandom random = new SplittableRandom(SEED);
+
+        int next() {
+            return random.nextInt(CORPUS);
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public Map<String, ?> readMostlyGet(Reader reader) {
+        return get(reader);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void readMostlyPut() {
+        put();
+    }
+
+    @Benchmark
+    @Group("writeMostly")
+    @GroupThreads(1)
+    public Map<String, ?> writeMostlyGet(Reader reader) {
+        return get(reader);
+    }
+
+    @Benchmark
+    @Group("writeMostly")
+    @GroupThreads(3)
+    public void writeMostlyPut() {
+        put();
+    }
+
+    private Map<String, ?> get(Reader reader) {
+        return memoizer.get(reader.next());
+    }
+
+    private void put() {
+        int identifier = nextIdentifier.getAndIncrement();
+        memoizer.put(identifier, corpus.get(identifier % CORPUS));
+    }
+
+    private static final int CORPUS = 10_000;
+
+    private static final long SEED = 42L;
+}
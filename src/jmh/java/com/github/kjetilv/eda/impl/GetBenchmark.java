@@ -0,0 +1,66 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizedMaps;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Get latency, by completion.  {@code NONE} reads from a memoizer that is not completed.  Identifiers are
+ * read in a fixed, pseudo-random order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GetBenchmark {
+
+    @Param({"NONE", "COMPLETE", "FROZEN_INDEX", "ENCODED"})
+    public String completion;
+
+    private MemoizedMaps<Integer, String> maps;
+
+    private int[] order;
+
+    @Setup
+    public void setup() {
+        List<Map<String, Object>> corpus = Shape.FLAT.corpus(0.5d).seed(SEED).list(CORPUS);
+        MapsMemoizer<Integer, String> memoizer = MapsMemoizers.create();
+        for (int i = 0; i < CORPUS; i++) {
+            memoizer.put(i, corpus.get(i));
+        }
+        maps = switch (completion) {
+            case "NONE" -> memoizer;
+            case "COMPLETE" -> memoizer.complete();
+            default -> memoizer.complete(Completion.valueOf(completion));
+        };
+        SplittableRandom random = new SplittableRandom(SEED);
+        order = random.ints(ORDER, 0, CORPUS).toArray();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next(int[] order) {
+            return order[next++ & ORDER - 1];
+        }
+    }
+
+    @Benchmark
+    public Map<String, ?> get(Cursor cursor) {
+        return maps.get(cursor.next(order));
+    }
+
+    private static final int CORPUS = 10_000;
+
+    private static final int ORDER = 1 << 14;
+
+    private static final long SEED = 42L;
+}
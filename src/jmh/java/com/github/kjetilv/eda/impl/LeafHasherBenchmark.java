@@ -0,0 +1,54 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.PojoBytes;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of hashing one leaf with the {@link DefaultLeafHasher default leaf hasher}, per leaf type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LeafHasherBenchmark {
+
+    @Param({
+        "STRING", "LONG_STRING", "INT", "LONG", "DOUBLE", "BOOLEAN",
+        "BIG_DECIMAL", "BIG_INTEGER", "INSTANT", "LOCAL_DATE", "UUID"
+    })
+    public String type;
+
+    private LeafHasher hasher;
+
+    private Object leaf;
+
+    @Setup
+    public void setup() {
+        hasher = new DefaultLeafHasher(() -> DigestiveHashBuilder.create(new ByteDigest()), PojoBytes.HASHCODE);
+        leaf = switch (type) {
+            case "STRING" -> "Street 1";
+            case "LONG_STRING" -> "x".repeat(1_000);
+            case "INT" -> 1234;
+            case "LONG" -> 1234567890123L;
+            case "DOUBLE" -> 1234.5d;
+            case "BOOLEAN" -> true;
+            case "BIG_DECIMAL" -> new BigDecimal("1234.5678");
+            case "BIG_INTEGER" -> new BigInteger("123456789012345678901234567890");
+            case "INSTANT" -> Instant.parse("2025-01-01T12:00:00.5Z");
+            case "LOCAL_DATE" -> LocalDate.of(2025, 1, 1);
+            case "UUID" -> new UUID(1L, 2L);
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        };
+    }
+
+    @Benchmark
+    public Hash hash() {
+        return hasher.hash(leaf);
+    }
+}
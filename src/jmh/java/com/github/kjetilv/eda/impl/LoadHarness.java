@@ -0,0 +1,269 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MemoizerCounters;
+import com.github.kjetilv.eda.MemoizerOptions;
+import com.github.kjetilv.eda.MetricsSnapshot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A load harness for mixed put, get and putIfAbsent workloads on one memoizer, for increasing numbers of platform
+ * and virtual threads.  For each thread count, it reports throughput, latency percentiles, and time spent
+ * waiting for the memoizer's lock, as reported to {@link MemoizerCounters metrics}.
+ * <p>
+ * Run with {@code gradle loadHarness}, optionally with {@code -Pload.args="threads=1,2,4 kinds=virtual"}.
+ * Settings are given as {@code key=value} pairs, see {@link Settings#parse(String...)}.
+ */
+public final class LoadHarness {
+
+    public static void main(String[] args) throws InterruptedException {
+        Settings settings = Settings.parse(args);
+        System.out.println(settings);
+        run(settings, settings.threads().getLast(), settings.kinds().getFirst(), settings.warmup());
+        System.out.printf(
+            "%-8s %7s %12s %10s %10s %10s %12s %14s%n",
+            "kind", "threads", "ops/s", "p50(ns)", "p99(ns)", "p999(ns)", "locks", "lock wait(ms)"
+        );
+        for (String kind : settings.kinds()) {
+            for (int threads : settings.threads()) {
+                System.out.println(run(settings, threads, kind, settings.duration()));
+            }
+        }
+    }
+
+    /**
+     * @param threads   Thread counts, in the order they are run
+     * @param kinds     Thread kinds, {@code platform} and/or {@code virtual}
+     * @param duration  Measured time per thread count
+     * @param warmup    Warmup time, once before all runs
+     * @param documents Number of distinct documents, of which half are stored before each run
+     * @param put       Weight of puts of new identifiers
+     * @param get       Weight of gets of stored identifiers
+     * @param absent    Weight of putIfAbsent of known identifiers
+     * @param seed      Seed
+     */
+    record Settings(
+        List<Integer> threads,
+        List<String> kinds,
+        Duration duration,
+        Duration warmup,
+        int documents,
+        int put,
+        int get,
+        int absent,
+        long seed
+    ) {
+
+        /**
+         * @param args {@code threads=1,2,4,8 kinds=platform,virtual seconds=5 warmup=2 documents=10000
+         *             put=10 get=80 absent=10 seed=42}, or any subset
+         * @return Settings
+         */
+        static Settings parse(String... args) {
+            Map<String, String> values = new HashMap<>(Map.of(
+                "threads", "1,2,4,8",
+                "kinds", "platform,virtual",
+                "seconds", "5",
+                "warmup", "2",
+                "documents", "10000",
+                "put", "10",
+                "get", "80",
+                "absent", "10",
+                "seed", "42"
+            ));
+            for (String arg : args) {
+                for (String setting : arg.trim().split("\\s+")) {
+                    String[] keyValue = setting.split("=", 2);
+                    if (keyValue.length != 2 || !values.containsKey(keyValue[0])) {
+                        throw new IllegalArgumentException("Unknown setting: " + setting + ", known: " + values);
+                    }
+                    values.put(keyValue[0], keyValue[1]);
+                }
+            }
+            return new Settings(
+                Arrays.stream(values.get("threads").split(",")).map(Integer::parseInt).toList(),
+                List.of(values.get("kinds").split(",")),
+                Duration.ofSeconds(Long.parseLong(values.get("seconds"))),
+                Duration.ofSeconds(Long.parseLong(values.get("warmup"))),
+                Integer.parseInt(values.get("documents")),
+                Integer.parseInt(values.get("put")),
+                Integer.parseInt(values.get("get")),
+                Integer.parseInt(values.get("absent")),
+                Long.parseLong(values.get("seed"))
+            );
+        }
+    }
+
+    /**
+     * @param kind         Thread kind
+     * @param threads      Thread count
+     * @param throughput   Operations per second
+     * @param latencies    Latencies of all operations
+     * @param locks        Lock acquisitions
+     * @param lockWaitTime Time spent waiting for locks, by all threads
+     */
+    record Result(
+        String kind,
+        int threads,
+        double throughput,
+        LatencyHistogram latencies,
+        long locks,
+        Duration lockWaitTime
+    ) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%-8s %7d %12.0f %10d %10d %10d %12d %14d",
+                kind,
+                threads,
+                throughput,
+                latencies.percentile(0.5d).toNanos(),
+                latencies.percentile(0.99d).toNanos(),
+                latencies.percentile(0.999d).toNanos(),
+                locks,
+                lockWaitTime.toMillis()
+            );
+        }
+    }
+
+    private LoadHarness() {
+    }
+
+    private static Result run(Settings settings, int threads, String kind, Duration duration)
+        throws InterruptedException {
+        List<Map<String, Object>> corpus = Corpus.defaults().seed(settings.seed()).list(settings.documents());
+        MemoizerCounters counters = new MemoizerCounters();
+        MapsMemoizer<Integer, String> memoizer =
+            MapMemoizerFactory.configured(null, MemoizerOptions.defaults().metrics(counters));
+        int stored = settings.documents() / 2;
+        for (int i = 0; i < stored; i++) {
+            memoizer.put(i, corpus.get(i));
+        }
+        AtomicInteger nextIdentifier = new AtomicInteger(settings.documents());
+        MetricsSnapshot before = counters.snapshot();
+
+        ThreadFactory factory = switch (kind) {
+            case "platform" -> Thread.ofPlatform().factory();
+            case "virtual" -> Thread.ofVirtual().factory();
+            default -> throw new IllegalArgumentException("Unknown thread kind: " + kind);
+        };
+        CountDownLatch start = new CountDownLatch(1);
+        List<Worker> workers = new ArrayList<>(threads);
+        List<Thread> started = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(
+                memoizer,
+                corpus,
+                settings,
+                stored,
+                nextIdentifier,
+                new SplittableRandom(settings.seed() + i),
+                start
+            );
+            workers.add(worker);
+            Thread thread = factory.newThread(worker);
+            thread.start();
+            started.add(thread);
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        Thread.sleep(duration);
+        workers.forEach(Worker::stop);
+        for (Thread thread : started) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - startTime;
+        MetricsSnapshot after = counters.snapshot();
+        memoizer.close();
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        workers.forEach(worker -> latencies.add(worker.latencies));
+        return new Result(
+            kind,
+            threads,
+            latencies.count() * 1e9d / elapsed,
+            latencies,
+            after.locks() - before.locks(),
+            after.lockWaitTime().minus(before.lockWaitTime())
+        );
+    }
+
+    private static final class Worker implements Runnable {
+
+        private final MapsMemoizer<Integer, String> memoizer;
+
+        private final List<Map<String, Object>> corpus;
+
+        private final Settings settings;
+
+        private final int stored;
+
+        private final AtomicInteger nextIdentifier;
+
+        private final SplittableRandom random;
+
+        private final CountDownLatch start;
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private volatile boolean stopped;
+
+        private Worker(
+            MapsMemoizer<Integer, String> memoizer,
+            List<Map<String, Object>> corpus,
+            Settings settings,
+            int stored,
+            AtomicInteger nextIdentifier,
+            SplittableRandom random,
+            CountDownLatch start
+        ) {
+            this.memoizer = memoizer;
+            this.corpus = corpus;
+            this.settings = settings;
+            this.stored = stored;
+            this.nextIdentifier = nextIdentifier;
+            this.random = random;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            int total = settings.put() + settings.get() + settings.absent();
+            while (!stopped) {
+                int pick = random.nextInt(total);
+                long before = System.nanoTime();
+                if (pick < settings.put()) {
+                    int identifier = nextIdentifier.getAndIncrement();
+                    memoizer.put(identifier, corpus.get(identifier % corpus.size()));
+                } else if (pick < settings.put() + settings.get()) {
+                    memoizer.get(random.nextInt(stored));
+                } else {
+                    int identifier = random.nextInt(corpus.size());
+                    memoizer.putIfAbsent(identifier, corpus.get(identifier));
+                }
+                latencies.record(System.nanoTime() - before);
+            }
+        }
+
+        void stop() {
+            stopped = true;
+        }
+    }
+}
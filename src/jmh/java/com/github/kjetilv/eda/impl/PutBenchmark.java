@@ -0,0 +1,46 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Put throughput, by tree shape and duplication ratio.  Each invocation puts the whole corpus into a new
+ * memoizer, so that every put is of a new identifier.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PutBenchmark {
+
+    @Param({"FLAT", "DEEP", "WIDE"})
+    public Shape shape;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double dupRatio;
+
+    private List<Map<String, Object>> corpus;
+
+    @Setup
+    public void setup() {
+        corpus = shape.corpus(dupRatio).seed(SEED).list(CORPUS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS)
+    public MapsMemoizer<Integer, String> put() {
+        MapsMemoizer<Integer, String> memoizer = MapsMemoizers.create();
+        for (int i = 0; i < CORPUS; i++) {
+            memoizer.put(i, corpus.get(i));
+        }
+        return memoizer;
+    }
+
+    private static final int CORPUS = 1_000;
+
+    private static final long SEED = 42L;
+}
@@ -0,0 +1,39 @@
+package com.github.kjetilv.eda.impl;
+
+/**
+ * Tree shapes for benchmarks, as {@link Corpus corpus} settings.
+ */
+public enum Shape {
+
+    /**
+     * A few fields, each a map of leaves
+     */
+    FLAT(1, 8),
+
+    /**
+     * A couple of fields, each a tree of small maps and lists, four levels deep
+     */
+    DEEP(4, 3),
+
+    /**
+     * A wide map of leaves per field
+     */
+    WIDE(1, 64);
+
+    private final int depth;
+
+    private final int width;
+
+    Shape(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+    }
+
+    /**
+     * @param dupRatio Duplication ratio
+     * @return Corpus of this shape
+     */
+    Corpus corpus(double dupRatio) {
+        return Corpus.defaults().depth(depth).width(width).dupRatio(dupRatio);
+    }
+}
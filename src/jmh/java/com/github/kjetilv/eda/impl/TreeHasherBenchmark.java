@@ -0,0 +1,56 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyHandler;
+import com.github.kjetilv.eda.MemoizerOptions;
+import com.github.kjetilv.eda.PojoBytes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of hashing a map and a list of a given width, of small int leaves.  This includes hashing the leaves,
+ * which {@link LeafHasherBenchmark} measures on their own.  Keys go through a {@link KeyTable}, as in memoizers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TreeHasherBenchmark {
+
+    @Param({"4", "32", "256"})
+    public int width;
+
+    private RecursiveTreeHasher<String> hasher;
+
+    private Map<String, Object> map;
+
+    private List<Object> list;
+
+    @Setup
+    public void setup() {
+        MemoizerOptions options = MemoizerOptions.defaults();
+        hasher = new RecursiveTreeHasher<>(
+            () -> DigestiveHashBuilder.create(new ByteDigest()),
+            new KeyTable<>(() -> DigestiveHashBuilder.create(new ByteDigest()), KeyHandler.defaultHandler()),
+            new DefaultLeafHasher(() -> DigestiveHashBuilder.create(new ByteDigest()), PojoBytes.HASHCODE),
+            options.normalizer(),
+            new Decomposer(options.decomposable())
+        );
+        map = new LinkedHashMap<>();
+        IntStream.range(0, width).forEach(i -> map.put("k" + i, i));
+        list = IntStream.range(0, width).<Object>mapToObj(i -> i).toList();
+    }
+
+    @Benchmark
+    public HashedTree<?> mapHash() {
+        return hasher.hashedTree(map);
+    }
+
+    @Benchmark
+    public HashedTree<?> listHash() {
+        return hasher.hashedTree(list);
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.kjetilv.eda;
+
+/**
+ * Options for {@link MapsMemoizer#complete(Completion...) completion}.  Once all data are in, the memoizer
+ * can spend some extra effort on re-arranging its internal state, to make lookups faster and leaner.
+ */
+public enum Completion {
+
+    /**
+     * Replace the identifier index with a frozen one.  A minimal perfect hash function over the known identifiers
+     * maps each of them straight to a slot in a dense array of stored maps, so that a
+     * {@link MemoizedMaps#get(Object) lookup} is a matter of one or two array accesses.
+     */
+    FROZEN_INDEX,
+
+    /**
+     * Re-encode stored maps into a compact binary form.  Substructures shared between stored maps are kept as
+     * canonical instances, while the rest of each map is encoded.  {@link MemoizedMaps#get(Object) Lookups} then
+     * return lazy {@link java.util.Map map} and {@link java.util.List list} views, which only decode the parts that
+     * are actually read.
+     * <p>
+     * Note that stored maps will no longer be returned as the same instances on repeated lookups, though they
+     * are of course still equal.
+     */
+    ENCODED
+}
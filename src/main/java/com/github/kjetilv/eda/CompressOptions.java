@@ -0,0 +1,21 @@
+package com.github.kjetilv.eda;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Options for compressing rarely read stored maps, see {@link MemoizerOptions#compress(CompressOptions)}.
+ *
+ * @param window    Maps not read within this window are compressed
+ * @param cacheSize Number of decompressed maps to keep in front of the compressed tier
+ */
+public record CompressOptions(Duration window, int cacheSize) {
+
+    public CompressOptions {
+        requireNonNull(window, "window");
+        if (window.isNegative() || window.isZero() || cacheSize < 0) {
+            throw new IllegalArgumentException("Invalid options, window:" + window + " cacheSize:" + cacheSize);
+        }
+    }
+}
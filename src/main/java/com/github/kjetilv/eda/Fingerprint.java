@@ -0,0 +1,17 @@
+package com.github.kjetilv.eda;
+
+/**
+ * A 128-bit fingerprint of a stored map's content.  Maps with equal content have equal fingerprints, and
+ * maps with different content will – barring hash collisions – have different fingerprints.
+ *
+ * @param high High bits
+ * @param low  Low bits
+ * @see MemoizedMaps#fingerprint(Object)
+ */
+public record Fingerprint(long high, long low) {
+
+    @Override
+    public String toString() {
+        return "%016x%016x".formatted(high, low);
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.kjetilv.eda;
+
+/**
+ * An estimate of the heap retained by a memoizer, see {@link MemoizedMaps#footprint()}.  Sizes are estimated
+ * from the shapes of stored values, assuming a 64-bit JVM with compressed references, and are kept up to date
+ * as values are catalogued, so estimates are cheap to take.
+ * <p>
+ * Leaves, lists and maps are counted as they were catalogued.  Substructures dropped by
+ * {@link MapsMemoizer#put(Object, java.util.Map) replacing} maps are still counted, and
+ * {@link Completion#ENCODED encoding} is not reflected, see {@link MemoizedMaps#tierStats()} for that.
+ *
+ * @param leaves         Bytes of canonical leaves
+ * @param lists          Bytes of canonical lists, not counting their elements
+ * @param maps           Bytes of canonical maps, not counting their values
+ * @param keys           Bytes of canonical keys, and the key table
+ * @param index          Bytes of identifiers, and the index from identifiers to stored maps
+ * @param working        Bytes of working state, which is freed on {@link MapsMemoizer#complete() completion}
+ * @param undeduplicated Estimated bytes of the same maps in a plain {@link java.util.HashMap}, with no sharing
+ *                       of leaves and substructures.  Keys are not counted
+ */
+public record Footprint(
+    long leaves,
+    long lists,
+    long maps,
+    long keys,
+    long index,
+    long working,
+    long undeduplicated
+) {
+
+    /**
+     * @return Estimated total bytes
+     */
+    public long total() {
+        return leaves + lists + maps + keys + index + working;
+    }
+
+    /**
+     * @return Estimated bytes saved by deduplication, negative if it costs more than it saves
+     */
+    public long saved() {
+        return undeduplicated - total();
+    }
+}
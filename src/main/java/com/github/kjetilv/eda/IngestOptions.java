@@ -0,0 +1,82 @@
+package com.github.kjetilv.eda;
+
+/**
+ * Options for the {@link MapsMemoizer#putAsync(Object, java.util.Map) asynchronous ingest} pipeline.
+ * <p>
+ * Incoming maps are queued, hashed and canonicalized by a pool of workers, and handed to a single committer
+ * that stores them in batches.  Each batch takes the memoizer's write lock only once.
+ *
+ * @param workers        Number of hashing workers
+ * @param queueCapacity  Capacity of the incoming queue, and of the queue of hashed maps waiting to be committed
+ * @param batchSize      Maximum number of maps stored per batch
+ * @param backpressure   What to do when the incoming queue is full
+ * @param virtualThreads Whether to run workers and committer on virtual threads
+ */
+public record IngestOptions(
+    int workers,
+    int queueCapacity,
+    int batchSize,
+    Backpressure backpressure,
+    boolean virtualThreads
+) {
+
+    /**
+     * @return Default options: One worker per available processor, platform threads, and blocking
+     */
+    public static IngestOptions defaults() {
+        return new IngestOptions(
+            Runtime.getRuntime().availableProcessors(),
+            1024,
+            256,
+            Backpressure.BLOCK,
+            false
+        );
+    }
+
+    public IngestOptions {
+        if (workers < 1 || queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException(
+                "Invalid options, workers:" + workers + " queueCapacity:" + queueCapacity + " batchSize:" + batchSize
+            );
+        }
+        if (backpressure == null) {
+            throw new IllegalArgumentException("No backpressure given");
+        }
+    }
+
+    public IngestOptions workers(int workers) {
+        return new IngestOptions(workers, queueCapacity, batchSize, backpressure, virtualThreads);
+    }
+
+    public IngestOptions queueCapacity(int queueCapacity) {
+        return new IngestOptions(workers, queueCapacity, batchSize, backpressure, virtualThreads);
+    }
+
+    public IngestOptions batchSize(int batchSize) {
+        return new IngestOptions(workers, queueCapacity, batchSize, backpressure, virtualThreads);
+    }
+
+    public IngestOptions backpressure(Backpressure backpressure) {
+        return new IngestOptions(workers, queueCapacity, batchSize, backpressure, virtualThreads);
+    }
+
+    public IngestOptions virtualThreads(boolean virtualThreads) {
+        return new IngestOptions(workers, queueCapacity, batchSize, backpressure, virtualThreads);
+    }
+
+    /**
+     * What to do when the incoming queue is full
+     */
+    public enum Backpressure {
+
+        /**
+         * Block the caller until there is room
+         */
+        BLOCK,
+
+        /**
+         * Fail the returned future with a {@link java.util.concurrent.RejectedExecutionException}
+         */
+        REJECT
+    }
+}
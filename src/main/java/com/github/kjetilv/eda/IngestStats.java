@@ -0,0 +1,32 @@
+package com.github.kjetilv.eda;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the {@link MapsMemoizer#putAsync(Object, java.util.Map) asynchronous ingest} pipeline.
+ * Latencies are measured from submission until the map is stored, and are accurate to within 1/8th.
+ *
+ * @param queueDepth  Maps waiting to be hashed
+ * @param commitDepth Hashed maps waiting to be committed
+ * @param completed   Maps stored, or failed
+ * @param rejected    Maps rejected because of {@link IngestOptions.Backpressure#REJECT backpressure}
+ * @param p50         Median latency
+ * @param p99         99th percentile latency
+ * @param p999        99.9th percentile latency
+ */
+public record IngestStats(
+    int queueDepth,
+    int commitDepth,
+    long completed,
+    long rejected,
+    Duration p50,
+    Duration p99,
+    Duration p999
+) {
+
+    /**
+     * Stats for a memoizer that has not ingested anything asynchronously
+     */
+    public static final IngestStats NONE =
+        new IngestStats(0, 0, 0L, 0L, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+}
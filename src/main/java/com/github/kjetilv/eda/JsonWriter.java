@@ -0,0 +1,62 @@
+package com.github.kjetilv.eda;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes stored maps as JSON.  Shared substructures are canonical instances, so their JSON is cached by
+ * identity, and writing a map is mostly a matter of copying cached fragments.  The cache is bounded by a number
+ * of bytes, and evicts fragments in insertion order, with a second chance for fragments read since the last pass.
+ * <p>
+ * Maps and lists become objects and arrays, keys become strings, and numbers and booleans are written as such.
+ * Non-finite doubles become {@code null}.  Other leaves are written as strings, by
+ * {@link Object#toString() toString}.
+ * <p>
+ * Use {@link MemoizedMaps#jsonWriter(long)} to create instances.  Thread-safe.
+ *
+ * @param <I> Id type
+ */
+public interface JsonWriter<I> {
+
+    /**
+     * @param identifier Identifier
+     * @return The stored map as UTF-8 JSON, or null if the identifier was unknown
+     */
+    byte[] toJson(I identifier);
+
+    /**
+     * @param identifier Identifier
+     * @param out        Output stream
+     * @return True iff the identifier was known, and the map was written
+     * @throws IOException If the output stream fails
+     */
+    default boolean write(I identifier, OutputStream out) throws IOException {
+        byte[] json = toJson(identifier);
+        if (json == null) {
+            return false;
+        }
+        out.write(json);
+        return true;
+    }
+
+    /**
+     * @param identifier Identifier
+     * @param buffer     Buffer
+     * @return True iff the identifier was known, and the map was written
+     * @throws java.nio.BufferOverflowException If the buffer has too little room
+     */
+    default boolean write(I identifier, ByteBuffer buffer) {
+        byte[] json = toJson(identifier);
+        if (json == null) {
+            return false;
+        }
+        buffer.put(json);
+        return true;
+    }
+
+    /**
+     * @return Bytes currently cached
+     */
+    long cachedBytes();
+}
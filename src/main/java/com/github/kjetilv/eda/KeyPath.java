@@ -0,0 +1,34 @@
+package com.github.kjetilv.eda;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A path of keys into nested maps, e.g. {@code address.country}.  Keys are given as they appear in
+ * incoming maps, and will be normalized by the memoizer's {@link KeyHandler key handler}.
+ *
+ * @param keys Keys, outermost first
+ */
+public record KeyPath(List<Object> keys) {
+
+    /**
+     * @param keys Keys, outermost first
+     * @return Key path
+     */
+    public static KeyPath of(Object... keys) {
+        return new KeyPath(List.of(keys));
+    }
+
+    public KeyPath {
+        keys = List.copyOf(Objects.requireNonNull(keys, "keys"));
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("Empty key path");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return keys.stream().map(String::valueOf).collect(Collectors.joining("."));
+    }
+}
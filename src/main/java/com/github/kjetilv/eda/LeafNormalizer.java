@@ -0,0 +1,58 @@
+package com.github.kjetilv.eda;
+
+import com.github.kjetilv.eda.impl.LeafNormalizers;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Normalizes leaves before they are hashed and stored.  Leaves that are equivalent, but of different types or
+ * representations – say, {@code 1}, {@code 1L} and {@code new BigDecimal("1.00")} – can be normalized to the same
+ * value, so they hash the same and share storage.  Useful when maps come from different sources, e.g. JSON
+ * libraries with different ideas about numbers.
+ * <p>
+ * Stored maps will contain the normalized values.  Pass normalizers to
+ * {@link MemoizerOptions#normalize(LeafNormalizer...) the options}.
+ */
+@FunctionalInterface
+public interface LeafNormalizer {
+
+    /**
+     * Integral numbers – including {@link java.math.BigDecimal big decimals} and floating-point numbers with
+     * integral values – become {@link Integer}s if they fit, else {@link Long}s if they fit, else
+     * {@link java.math.BigInteger}s.  Big decimals with more than 19 integer digits are left as they are
+     */
+    LeafNormalizer NARROWEST_INTEGRAL = LeafNormalizers.NARROWEST_INTEGRAL;
+
+    /**
+     * {@link java.math.BigDecimal Big decimals} get their canonical scale, with trailing zeros stripped
+     */
+    LeafNormalizer CANONICAL_DECIMALS = LeafNormalizers.CANONICAL_DECIMALS;
+
+    /**
+     * {@link java.time.OffsetDateTime Offset} and {@link java.time.ZonedDateTime zoned} date-times become
+     * {@link java.time.Instant instants}
+     */
+    LeafNormalizer INSTANTS = LeafNormalizers.INSTANTS;
+
+    /**
+     * @return Normalizer that leaves leaves alone
+     */
+    static LeafNormalizer none() {
+        return LeafNormalizers.NONE;
+    }
+
+    /**
+     * @param leaf Leaf, not null
+     * @return Normalized leaf, not null
+     */
+    Object normalize(Object leaf);
+
+    /**
+     * @param next Normalizer to apply next
+     * @return Normalizer applying this, then next
+     */
+    default LeafNormalizer andThen(LeafNormalizer next) {
+        requireNonNull(next, "next");
+        return leaf -> next.normalize(normalize(leaf));
+    }
+}
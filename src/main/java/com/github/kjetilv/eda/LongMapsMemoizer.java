@@ -0,0 +1,46 @@
+package com.github.kjetilv.eda;
+
+import java.util.Map;
+
+/**
+ * A {@link MapsMemoizer} specialized for primitive {@code long} identifiers, typically database ids.  An
+ * {@code int} identifier will also fit nicely.
+ * <p>
+ * Identifiers are never boxed, and are kept in a primitive, open-addressing table instead of hash map nodes.
+ * <p>
+ * Use {@link MapsMemoizers#createLongKeyed()} and siblings to create instances.
+ *
+ * @param <K> Key type, used as keys in stored maps
+ * @see MapsMemoizers#createLongKeyed()
+ */
+@SuppressWarnings("unused")
+public interface LongMapsMemoizer<K> extends LongMemoizedMaps<K> {
+
+    /**
+     * Store one map
+     *
+     * @param identifier Identifier
+     * @param value      Map
+     * @throws IllegalArgumentException If the identifier is already stored
+     * @throws IllegalStateException If this instance is {@link #complete() completed}
+     */
+    void put(long identifier, Map<?, ?> value);
+
+    /**
+     * Store one map, unless it's already stored
+     *
+     * @param identifier Identifier
+     * @param value      Map
+     * @return true iff the map was added.  If false, the memoizer was unchanged
+     * @throws IllegalStateException If this instance is {@link #complete() completed}
+     */
+    boolean putIfAbsent(long identifier, Map<?, ?> value);
+
+    /**
+     * Signals the end of {@link #put(long, Map) putting} activities.  Locks down this instance
+     * for further calls to {@link #put}, allowing it to free up memory used for working data.
+     *
+     * @return This instance, typed to {@link LongMemoizedMaps} in order to discourage futher putting
+     */
+    LongMemoizedMaps<K> complete();
+}
@@ -0,0 +1,23 @@
+package com.github.kjetilv.eda;
+
+import java.util.Map;
+
+/**
+ * Provides access to memoized maps after {@link LongMapsMemoizer#complete() completion}.  Like
+ * {@link MemoizedMaps}, but with primitive {@code long} identifiers.
+ *
+ * @param <K> Key type, used as keys in stored maps
+ */
+public interface LongMemoizedMaps<K> {
+
+    /**
+     * @return The number of maps memoized
+     */
+    int size();
+
+    /**
+     * @param identifier Identifier
+     * @return Stored map, or null of the identifier was unknown
+     */
+    Map<K, ?> get(long identifier);
+}
@@ -1,6 +1,7 @@
 package com.github.kjetilv.eda;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Behold the memoizer! Maps will be stored in canonical form, avoiding memory wasted on identical
@@ -41,6 +42,45 @@ public interface MapsMemoizer<I, K> extends MemoizedMaps<I, K> {
      */
     boolean putIfAbsent(I identifier, Map<?, ?> value);
 
+    /**
+     * Store one map, replacing any map already stored under the identifier – unless that map has the same
+     * content.  Unchanged content is detected by comparing {@link #fingerprint(Object) fingerprints}, and
+     * is not canonicalized again.
+     *
+     * @param identifier Identifier
+     * @param value      Map
+     * @return The outcome
+     * @throws IllegalStateException If this instance is {@link #complete() completed}
+     */
+    PutOutcome putIfChanged(I identifier, Map<?, ?> value);
+
+    /**
+     * Store one map asynchronously.  The map is queued for hashing by a pool of workers, and stored by a
+     * committer thread, as configured by {@link MemoizerOptions#ingest(IngestOptions) ingest options}.  The
+     * pipeline is started on first use.
+     * <p>
+     * {@link #complete() Completion} waits for all queued maps to be stored.
+     *
+     * @param identifier Identifier
+     * @param value      Map
+     * @return Future that completes when the map is stored.  It fails with {@link IllegalArgumentException} if
+     * the identifier is already stored, and with {@link java.util.concurrent.RejectedExecutionException} if
+     * the queue is full and {@link IngestOptions.Backpressure#REJECT backpressure} is to reject
+     * @throws IllegalStateException If this instance is {@link #complete() completed}
+     */
+    CompletableFuture<Void> putAsync(I identifier, Map<?, ?> value);
+
+    /**
+     * @return Stats for the {@link #putAsync(Object, Map) asynchronous ingest} pipeline
+     */
+    IngestStats ingestStats();
+
+    /**
+     * @return The cost of {@link MemoizerOptions#verify(Verification) verifying} canonical values so far.
+     * Retained on {@link #complete() completion}
+     */
+    VerificationStats verificationStats();
+
     /**
      * Signals the end of {@link #put(Object, Map) putting} activities.  Locks down this instance
      * for further calls to {@link #put}, allowing it to free up memory used for working data.
@@ -48,4 +88,12 @@ public interface MapsMemoizer<I, K> extends MemoizedMaps<I, K> {
      * @return This instance, typed to {@link MemoizedMaps} in order to discourage futher putting
      */
     MemoizedMaps<I, K> complete();
+
+    /**
+     * As {@link #complete()}, but with additional {@link Completion completion options}.
+     *
+     * @param completions Completion options
+     * @return This instance, typed to {@link MemoizedMaps} in order to discourage futher putting
+     */
+    MemoizedMaps<I, K> complete(Completion... completions);
 }
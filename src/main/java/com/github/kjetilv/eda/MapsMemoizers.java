@@ -2,6 +2,9 @@ package com.github.kjetilv.eda;
 
 import com.github.kjetilv.eda.impl.MapMemoizerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 /**
@@ -17,7 +20,16 @@ public final class MapsMemoizers {
      * @return {@link MapsMemoizer} for String-keyed maps
      */
     public static <I> MapsMemoizer<I, String> create() {
-        return create(null, null);
+        return create(null, (MemoizerOptions) null);
+    }
+
+    /**
+     * @param <I>     Id type
+     * @param options Options
+     * @return Map memoizer for String-keyed maps
+     */
+    public static <I> MapsMemoizer<I, String> create(MemoizerOptions options) {
+        return create(null, options);
     }
 
     /**
@@ -41,10 +53,131 @@ public final class MapsMemoizers {
         return create(null, pojoBytes);
     }
 
+    /**
+     * @param <I>        Id type
+     * @param <K>        Key type
+     * @param keyHandler Key handler, null means default behaviour
+     * @param options    Options, null means {@link MemoizerOptions#defaults() defaults}
+     * @return Map memoizer
+     * @see #create(KeyHandler)
+     */
+    public static <I, K> MapsMemoizer<I, K> create(KeyHandler<K> keyHandler, MemoizerOptions options) {
+        return MapMemoizerFactory.configured(keyHandler, options);
+    }
+
     public static <I, K> MapsMemoizer<I, K> create(KeyHandler<K> keyHandler, PojoBytes pojoBytes) {
         return MapMemoizerFactory.create(keyHandler, pojoBytes);
     }
 
+    /**
+     * Import maps {@link MemoizedMaps#writeTo(OutputStream) exported} by another memoizer, with
+     * {@link String string} keys.
+     *
+     * @param in  Input stream, not closed
+     * @param <I> Id type
+     * @return Memoized maps
+     * @throws IOException If the stream fails, or is not an export
+     */
+    public static <I> MemoizedMaps<I, String> readFrom(InputStream in) throws IOException {
+        return readFrom(in, null);
+    }
+
+    /**
+     * Import maps {@link MemoizedMaps#writeTo(OutputStream) exported} by another memoizer.  The canonical
+     * structure is rebuilt as it is read, without hashing anything.
+     *
+     * @param in          Input stream, not closed
+     * @param keyHandler  Key handler, to normalize the exported string keys.  Null means default behaviour
+     * @param completions Completion options
+     * @param <I>         Id type
+     * @param <K>         Key type
+     * @return Memoized maps
+     * @throws IOException If the stream fails, or is not an export
+     */
+    public static <I, K> MemoizedMaps<I, K> readFrom(
+        InputStream in,
+        KeyHandler<K> keyHandler,
+        Completion... completions
+    ) throws IOException {
+        return MapMemoizerFactory.readFrom(in, keyHandler, completions);
+    }
+
+    /**
+     * Train a {@link SeedDictionary seed dictionary} on a sample of maps, for {@link String string}-keyed
+     * memoizers with {@link MemoizerOptions#defaults() default} options.
+     *
+     * @param corpus     Sample maps
+     * @param maxEntries Maximum number of leaves and substructures in the dictionary
+     * @return Seed dictionary
+     */
+    public static SeedDictionary trainDictionary(Iterable<? extends Map<?, ?>> corpus, int maxEntries) {
+        return trainDictionary(null, null, corpus, maxEntries);
+    }
+
+    /**
+     * Train a {@link SeedDictionary seed dictionary} on a sample of maps.  Leaves and substructures that occur
+     * more than once in the sample are included, most frequent first.  The dictionary should be used by
+     * memoizers with the same key handler and options, since it is matched by hash.
+     *
+     * @param <K>        Key type
+     * @param keyHandler Key handler, null means default behaviour
+     * @param options    Options, null means {@link MemoizerOptions#defaults() defaults}
+     * @param corpus     Sample maps
+     * @param maxEntries Maximum number of leaves and substructures in the dictionary
+     * @return Seed dictionary
+     */
+    public static <K> SeedDictionary trainDictionary(
+        KeyHandler<K> keyHandler,
+        MemoizerOptions options,
+        Iterable<? extends Map<?, ?>> corpus,
+        int maxEntries
+    ) {
+        return MapMemoizerFactory.trainDictionary(keyHandler, options, corpus, maxEntries);
+    }
+
+    /**
+     * @param in Input stream, with a {@link SeedDictionary#writeTo(OutputStream) saved} dictionary
+     * @return Seed dictionary, for {@link String string}-keyed memoizers
+     * @throws IOException If the stream fails, or is not a saved dictionary
+     */
+    public static SeedDictionary readDictionary(InputStream in) throws IOException {
+        return readDictionary(in, null);
+    }
+
+    /**
+     * @param <K>        Key type
+     * @param in         Input stream, with a {@link SeedDictionary#writeTo(OutputStream) saved} dictionary
+     * @param keyHandler Key handler, null means default behaviour
+     * @return Seed dictionary
+     * @throws IOException If the stream fails, or is not a saved dictionary
+     */
+    public static <K> SeedDictionary readDictionary(InputStream in, KeyHandler<K> keyHandler) throws IOException {
+        return MapMemoizerFactory.readDictionary(in, keyHandler);
+    }
+
+    /**
+     * For maps identified by primitive {@code long} identifiers, with {@link String string} keys
+     *
+     * @return {@link LongMapsMemoizer} for String-keyed maps
+     */
+    public static LongMapsMemoizer<String> createLongKeyed() {
+        return createLongKeyed((KeyHandler<String>) null, null);
+    }
+
+    /**
+     * @param <K>        Key type
+     * @param keyHandler Key handler
+     * @return {@link LongMapsMemoizer}
+     * @see #create(KeyHandler)
+     */
+    public static <K> LongMapsMemoizer<K> createLongKeyed(KeyHandler<K> keyHandler) {
+        return createLongKeyed(keyHandler, null);
+    }
+
+    public static <K> LongMapsMemoizer<K> createLongKeyed(KeyHandler<K> keyHandler, PojoBytes pojoBytes) {
+        return MapMemoizerFactory.createLongKeyed(keyHandler, pojoBytes);
+    }
+
     private MapsMemoizers() {
     }
 }
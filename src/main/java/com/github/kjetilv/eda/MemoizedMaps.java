@@ -1,6 +1,13 @@
 package com.github.kjetilv.eda;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 /**
  * Provides access to memoized maps after {@link MapsMemoizer#complete() completion}.
@@ -8,7 +15,7 @@ import java.util.Map;
  * @param <I> Id type, used to identify maps
  * @param <K> Key type, used as keys in stored maps
  */
-public interface MemoizedMaps<I, K> {
+public interface MemoizedMaps<I, K> extends AutoCloseable {
 
     /**
      * @return The number of maps memoized
@@ -20,4 +27,133 @@ public interface MemoizedMaps<I, K> {
      * @return Stored map, or null of the identifier was unknown
      */
     Map<K, ?> get(I identifier);
+
+    /**
+     * Get the value at a key path in a stored map, without materializing the map.  Intermediate maps are
+     * walked in place, also in {@link Completion#ENCODED encoded} form, and only the value found is decoded.
+     * Key paths are resolved once, so it pays to reuse them.
+     *
+     * @param identifier Identifier
+     * @param path       Key path, followed through maps only
+     * @return Value at the path, or null if the identifier was unknown, or the map has no value at the path
+     */
+    Object get(I identifier, KeyPath path);
+
+    /**
+     * As {@link #get(Object, KeyPath)}, for many identifiers.
+     *
+     * @param identifiers Identifiers
+     * @param path        Key path, followed through maps only
+     * @return Values at the path, for identifiers that have one, in iteration order of the identifiers
+     */
+    Map<I, Object> getAll(Collection<I> identifiers, KeyPath path);
+
+    /**
+     * @param identifier Identifier
+     * @return Fingerprint of the stored map's content, or null if the identifier was unknown
+     */
+    Fingerprint fingerprint(I identifier);
+
+    /**
+     * Compare two stored maps, without looking at their contents unless a hash collision forces it.
+     *
+     * @param identifier      Identifier
+     * @param otherIdentifier Another identifier
+     * @return True iff both identifiers are known, and their stored maps are equal
+     */
+    boolean sameContent(I identifier, I otherIdentifier);
+
+    /**
+     * Look up stored maps by the value at an {@link MemoizerOptions#index(KeyPath...) indexed} key path.
+     * The value may be a leaf or a whole substructure, and matches if it is equal to the stored value.
+     *
+     * @param path  Key path
+     * @param value Value
+     * @return Identifiers of the stored maps holding the value at the path, in the order they were stored
+     * @throws IllegalArgumentException If the path is not indexed
+     */
+    List<I> lookup(KeyPath path, Object value);
+
+    /**
+     * Hash collisions are rare, and handled at the smallest colliding substructure: The colliding value is
+     * stored separately, while the rest of the map is still canonicalized.  Maps colliding at the root are
+     * stored separately.
+     *
+     * @return Hashes shared by different values, found while putting
+     */
+    Set<Fingerprint> collisions();
+
+    /**
+     * @return Stats for {@link MemoizerOptions#spill(SpillOptions) tiered storage}, or {@link TierStats#NONE} if
+     * stored maps are all on the heap
+     */
+    TierStats tierStats();
+
+    /**
+     * Estimate the heap retained by this memoizer, broken down by leaves, lists, maps, keys, identifiers and
+     * working state, and compare it with the same maps stored without deduplication.  The estimate is kept up
+     * to date while putting, and is cheap to take, so it may be polled.
+     *
+     * @return Estimated footprint
+     */
+    Footprint footprint();
+
+    /**
+     * Get a JSON writer for stored maps, which caches the JSON of shared substructures.  Each writer has its own
+     * cache, so it pays to keep one around.
+     *
+     * @param maxCachedBytes Maximum number of bytes to cache.  Zero disables caching
+     * @return JSON writer
+     */
+    JsonWriter<I> jsonWriter(long maxCachedBytes);
+
+    /**
+     * Export stored maps in a compact binary form, which writes each canonical leaf, list and map once.  Read
+     * the export with {@link MapsMemoizers#readFrom(java.io.InputStream, KeyHandler, Completion...)}.
+     * <p>
+     * Keys are exported by {@link Object#toString() toString}.  Leaves and identifiers must be strings, numbers,
+     * booleans, {@link java.time.Instant instants} or {@link java.util.UUID UUIDs}.
+     *
+     * @param out Output stream, flushed but not closed
+     * @throws IOException If the stream fails
+     * @throws IllegalStateException If a leaf or identifier is of an unsupported type
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Visit all stored maps, including those stored separately due to hash collisions.
+     *
+     * @param action Action to perform for each identifier and its stored map
+     */
+    void forEach(BiConsumer<? super I, ? super Map<K, ?>> action);
+
+    /**
+     * Stream all stored maps.  The stream works on a snapshot of the stored maps, taken when the stream is
+     * created.  No locks are taken while it is traversed.
+     *
+     * @return Stream of identifiers and their stored maps
+     */
+    Stream<Map.Entry<I, Map<K, ?>>> stream();
+
+    /**
+     * As {@link #stream()}, but parallel.  The underlying spliterator splits evenly, so
+     * bulk work can be spread over all available cores.
+     *
+     * @return Parallel stream of identifiers and their stored maps
+     */
+    default Stream<Map.Entry<I, Map<K, ?>>> parallelStream() {
+        return stream().parallel();
+    }
+
+    /**
+     * Release threads and other resources.  Stops the {@link MapsMemoizer#putAsync(Object, Map) asynchronous
+     * ingest} pipeline, if started, after waiting for queued maps to be stored, and closes and deletes the
+     * {@link MemoizerOptions#spill(SpillOptions) spill file}, if any.  No maps can be put after closing, and
+     * spilled maps can no longer be read.  Closing again has no effect.
+     * <p>
+     * A memoizer that has used {@link MapsMemoizer#putAsync(Object, Map) putAsync} must be closed or
+     * {@link MapsMemoizer#complete() completed}, or its threads will keep it alive.
+     */
+    @Override
+    void close();
 }
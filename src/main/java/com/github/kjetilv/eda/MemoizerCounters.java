@@ -0,0 +1,160 @@
+package com.github.kjetilv.eda;
+
+import com.github.kjetilv.eda.impl.MetricsMBeans;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link MemoizerMetrics Metrics} counted in striped {@link LongAdder counters}.  One instance may be shared by
+ * several memoizers, to count them all together.
+ * <p>
+ * Counters can be exposed as attributes of a JMX MBean, see {@link #registerMBean(String)}.  Durations are
+ * exposed in nanoseconds.  This needs the {@code java.management} module, which is otherwise optional.
+ */
+public final class MemoizerCounters implements MemoizerMetrics {
+
+    private final LongAdder added = new LongAdder();
+
+    private final LongAdder replaced = new LongAdder();
+
+    private final LongAdder unchanged = new LongAdder();
+
+    private final LongAdder gets = new LongAdder();
+
+    private final LongAdder getMisses = new LongAdder();
+
+    private final LongAdder[] hits = adders(NodeKind.values().length);
+
+    private final LongAdder[] misses = adders(NodeKind.values().length);
+
+    private final LongAdder collisions = new LongAdder();
+
+    private final LongAdder overflows = new LongAdder();
+
+    private final LongAdder canonicalKeys = new LongAdder();
+
+    private final LongAdder locks = new LongAdder();
+
+    private final LongAdder lockWaitNanos = new LongAdder();
+
+    private final LongAdder lockHoldNanos = new LongAdder();
+
+    private final LongAdder completions = new LongAdder();
+
+    private final LongAdder completeNanos = new LongAdder();
+
+    @Override
+    public void put(PutOutcome outcome) {
+        (switch (outcome) {
+            case ADDED -> added;
+            case REPLACED -> replaced;
+            case UNCHANGED -> unchanged;
+        }).increment();
+    }
+
+    @Override
+    public void get(boolean found) {
+        gets.increment();
+        if (!found) {
+            getMisses.increment();
+        }
+    }
+
+    @Override
+    public void catalogued(NodeKind kind, int hits, int misses) {
+        if (hits > 0) {
+            this.hits[kind.ordinal()].add(hits);
+        }
+        if (misses > 0) {
+            this.misses[kind.ordinal()].add(misses);
+        }
+    }
+
+    @Override
+    public void collisions(int collisions) {
+        this.collisions.add(collisions);
+    }
+
+    @Override
+    public void overflow() {
+        overflows.increment();
+    }
+
+    @Override
+    public void canonicalKeys(int added) {
+        canonicalKeys.add(added);
+    }
+
+    @Override
+    public void lock(long waitNanos, long holdNanos) {
+        locks.increment();
+        lockWaitNanos.add(waitNanos);
+        lockHoldNanos.add(holdNanos);
+    }
+
+    @Override
+    public void completed(long nanos) {
+        completions.increment();
+        completeNanos.add(nanos);
+    }
+
+    /**
+     * @return Current counts.  Counters are read one by one, so concurrent updates may be partially reflected
+     */
+    public MetricsSnapshot snapshot() {
+        long added = this.added.sum();
+        long replaced = this.replaced.sum();
+        long unchanged = this.unchanged.sum();
+        return new MetricsSnapshot(
+            added + replaced + unchanged,
+            added,
+            replaced,
+            unchanged,
+            gets.sum(),
+            getMisses.sum(),
+            hits[NodeKind.MAP.ordinal()].sum(),
+            misses[NodeKind.MAP.ordinal()].sum(),
+            hits[NodeKind.LIST.ordinal()].sum(),
+            misses[NodeKind.LIST.ordinal()].sum(),
+            hits[NodeKind.LEAF.ordinal()].sum(),
+            misses[NodeKind.LEAF.ordinal()].sum(),
+            collisions.sum(),
+            overflows.sum(),
+            canonicalKeys.sum(),
+            locks.sum(),
+            Duration.ofNanos(lockWaitNanos.sum()),
+            Duration.ofNanos(lockHoldNanos.sum()),
+            completions.sum(),
+            Duration.ofNanos(completeNanos.sum())
+        );
+    }
+
+    /**
+     * Register an MBean with the counters in the platform MBean server.  Each {@link MetricsSnapshot snapshot}
+     * component is an attribute.
+     *
+     * @param objectName Object name, e.g. {@code com.github.kjetilv.eda:type=Memoizer,name=customers}
+     * @throws IllegalArgumentException If the name is invalid, or already registered
+     */
+    public void registerMBean(String objectName) {
+        MetricsMBeans.register(requireNonNull(objectName, "objectName"), this::snapshot);
+    }
+
+    /**
+     * @param objectName Object name, as {@link #registerMBean(String) registered}
+     * @throws IllegalArgumentException If the name is invalid, or not registered
+     */
+    public void unregisterMBean(String objectName) {
+        MetricsMBeans.unregister(requireNonNull(objectName, "objectName"));
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        Arrays.setAll(adders, __ -> new LongAdder());
+        return adders;
+    }
+}
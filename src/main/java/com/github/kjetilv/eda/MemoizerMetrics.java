@@ -0,0 +1,78 @@
+package com.github.kjetilv.eda;
+
+/**
+ * A listener for memoizer activity, passed on with {@link MemoizerOptions#metrics(MemoizerMetrics)}.  Methods are
+ * called on the threads doing the work, often under a lock, so implementations should be quick and thread-safe.
+ * <p>
+ * {@link MemoizerCounters} counts everything in striped counters, and can expose them over JMX.
+ */
+public interface MemoizerMetrics {
+
+    /**
+     * Kinds of catalogued nodes
+     */
+    enum NodeKind {
+
+        MAP,
+
+        LIST,
+
+        LEAF
+    }
+
+    /**
+     * @param outcome Outcome of a put
+     */
+    default void put(PutOutcome outcome) {
+    }
+
+    /**
+     * @param found True iff a map was found
+     */
+    default void get(boolean found) {
+    }
+
+    /**
+     * Outcome of cataloguing the nodes of one put, for one kind of node
+     *
+     * @param kind   Node kind
+     * @param hits   Nodes replaced by catalogued ones
+     * @param misses Nodes catalogued for the first time
+     */
+    default void catalogued(NodeKind kind, int hits, int misses) {
+    }
+
+    /**
+     * @param collisions Nodes in one put with the hash of a different, catalogued node
+     */
+    default void collisions(int collisions) {
+    }
+
+    /**
+     * A stored map had the hash of a different stored map, and was kept on the side
+     */
+    default void overflow() {
+    }
+
+    /**
+     * Canonical keys were added by a put.  Counts are reported by each memoizer on its own, so they can be added
+     * up over several memoizers.
+     *
+     * @param added Number of canonical keys added since the memoizer last reported
+     */
+    default void canonicalKeys(int added) {
+    }
+
+    /**
+     * @param waitNanos Time spent acquiring the lock
+     * @param holdNanos Time the lock was held
+     */
+    default void lock(long waitNanos, long holdNanos) {
+    }
+
+    /**
+     * @param nanos Time spent in {@link MapsMemoizer#complete(Completion...) completion}
+     */
+    default void completed(long nanos) {
+    }
+}
@@ -0,0 +1,263 @@
+package com.github.kjetilv.eda;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Options for new {@link MapsMemoizer memoizers}.  Immutable: Each option method returns a modified copy.
+ * <p>
+ * Start with the {@link #defaults() defaults} and pass the result to
+ * {@link MapsMemoizers#create(KeyHandler, MemoizerOptions)}.
+ */
+public final class MemoizerOptions {
+
+    /**
+     * @return Default options
+     */
+    public static MemoizerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    private PojoBytes pojoBytes = PojoBytes.HASHCODE;
+
+    private List<KeyPath> indexes = List.of();
+
+    private IngestOptions ingest = IngestOptions.defaults();
+
+    private LeafNormalizer normalizer = LeafNormalizer.none();
+
+    private Predicate<Class<?>> decomposable = NONE;
+
+    private Verification verification = Verification.ALWAYS;
+
+    private SpillOptions spill;
+
+    private CompressOptions compress;
+
+    private SeedDictionary seed;
+
+    private MemoizerMetrics metrics;
+
+    private MemoizerOptions() {
+    }
+
+    private MemoizerOptions(MemoizerOptions options) {
+        this.pojoBytes = options.pojoBytes;
+        this.indexes = options.indexes;
+        this.ingest = options.ingest;
+        this.normalizer = options.normalizer;
+        this.decomposable = options.decomposable;
+        this.verification = options.verification;
+        this.spill = options.spill;
+        this.compress = options.compress;
+        this.seed = options.seed;
+        this.metrics = options.metrics;
+    }
+
+    /**
+     * @param pojoBytes How to derive bytes from leaves of unknown types
+     * @return Modified options
+     */
+    public MemoizerOptions pojoBytes(PojoBytes pojoBytes) {
+        return with(options -> options.pojoBytes = requireNonNull(pojoBytes, "pojoBytes"));
+    }
+
+    /**
+     * Maintain indexes on the values found at the given paths, so that stored maps can be
+     * {@link MemoizedMaps#lookup(KeyPath, Object) looked up} by those values.
+     *
+     * @param paths Key paths
+     * @return Modified options
+     */
+    public MemoizerOptions index(KeyPath... paths) {
+        return with(options -> options.indexes = List.of(paths));
+    }
+
+    /**
+     * @param ingest Options for the {@link MapsMemoizer#putAsync(Object, java.util.Map) asynchronous ingest}
+     *               pipeline, which is started on first use
+     * @return Modified options
+     */
+    public MemoizerOptions ingest(IngestOptions ingest) {
+        return with(options -> options.ingest = requireNonNull(ingest, "ingest"));
+    }
+
+    /**
+     * Normalize leaves before hashing and storing them, so that equivalent values share storage.
+     *
+     * @param normalizers Normalizers, applied in order, e.g. {@link LeafNormalizer#NARROWEST_INTEGRAL} and
+     *                    {@link LeafNormalizer#INSTANTS}
+     * @return Modified options
+     */
+    public MemoizerOptions normalize(LeafNormalizer... normalizers) {
+        LeafNormalizer combined = Arrays.stream(normalizers)
+            .reduce(LeafNormalizer::andThen)
+            .orElseGet(LeafNormalizer::none);
+        return with(options -> options.normalizer = combined);
+    }
+
+    /**
+     * Take value objects of the given types apart, and store them structurally, so that they share storage
+     * like maps do.  Supported types are records, and beans with a no-arg constructor and a setter for
+     * each getter.  Stored maps contain canonical instances, rebuilt from canonical components, and equal to the
+     * originals.  Components declared as lists become canonical lists, and value objects are decomposed in turn.
+     * Other components, including maps and other collections, are stored as they are, without normalization.
+     * Types with array components are not decomposed.
+     *
+     * @param types Types to decompose
+     * @return Modified options
+     */
+    public MemoizerOptions decompose(Class<?>... types) {
+        Set<Class<?>> decomposed = Set.of(types);
+        Predicate<Class<?>> previous = decomposable;
+        return with(options -> options.decomposable = previous.or(decomposed::contains));
+    }
+
+    /**
+     * As {@link #decompose(Class[])}, for all {@link Record records}
+     *
+     * @return Modified options
+     */
+    public MemoizerOptions decomposeRecords() {
+        Predicate<Class<?>> previous = decomposable;
+        return with(options -> options.decomposable = previous.or(Class::isRecord));
+    }
+
+    /**
+     * Set how repeated values are verified against the canonical value with the same hash.  The default is to
+     * {@link Verification#ALWAYS always} compare them.  With trusted data, comparing
+     * {@link Verification#SHALLOW shallowly} or {@link Verification#TRUST_HASH not at all} takes the
+     * equality cost off the put path.
+     *
+     * @param verification Verification policy
+     * @return Modified options
+     * @see MapsMemoizer#verificationStats()
+     */
+    public MemoizerOptions verify(Verification verification) {
+        return with(options -> options.verification = requireNonNull(verification, "verification"));
+    }
+
+    /**
+     * Keep stored maps within a heap budget, by spilling maps that have not been read recently to a segment file
+     * on local disk.  Shared substructures stay on the heap.  Spilled maps are read back as needed.
+     * <p>
+     * Takes effect on {@link MapsMemoizer#complete() completion}, which then also
+     * {@link Completion#ENCODED encodes} stored maps.
+     *
+     * @param spill Spill options
+     * @return Modified options
+     * @see MemoizedMaps#tierStats()
+     */
+    public MemoizerOptions spill(SpillOptions spill) {
+        return with(options -> options.spill = requireNonNull(spill, "spill"));
+    }
+
+    /**
+     * Compress stored maps that have not been read within a window, keeping a small cache of decompressed maps
+     * in front of them.  Maps are deflated with a preset dictionary, sampled from the stored maps.  Compressed
+     * maps stay on the heap, or go to disk if {@link #spill(SpillOptions) spilling} is also enabled.
+     * <p>
+     * Takes effect on {@link MapsMemoizer#complete() completion}, which then also
+     * {@link Completion#ENCODED encodes} stored maps.
+     *
+     * @param compress Compression options
+     * @return Modified options
+     * @see MemoizedMaps#tierStats()
+     */
+    public MemoizerOptions compress(CompressOptions compress) {
+        return with(options -> options.compress = requireNonNull(compress, "compress"));
+    }
+
+    /**
+     * Deduplicate against a pre-trained dictionary from the first put.  The dictionary is shared, read-only.
+     *
+     * @param seed Dictionary, trained with the same key handler and options
+     * @return Modified options
+     * @see MapsMemoizers#trainDictionary(KeyHandler, MemoizerOptions, Iterable, int)
+     */
+    public MemoizerOptions seed(SeedDictionary seed) {
+        return with(options -> options.seed = requireNonNull(seed, "seed"));
+    }
+
+    /**
+     * Report activity to a metrics listener.  Puts then also count catalogue outcomes, and locks are timed.
+     *
+     * @param metrics Metrics listener, e.g. {@link MemoizerCounters}
+     * @return Modified options
+     */
+    public MemoizerOptions metrics(MemoizerMetrics metrics) {
+        return with(options -> options.metrics = requireNonNull(metrics, "metrics"));
+    }
+
+    public PojoBytes pojoBytes() {
+        return pojoBytes;
+    }
+
+    public List<KeyPath> indexes() {
+        return indexes;
+    }
+
+    public IngestOptions ingest() {
+        return ingest;
+    }
+
+    public LeafNormalizer normalizer() {
+        return normalizer;
+    }
+
+    public Predicate<Class<?>> decomposable() {
+        return decomposable;
+    }
+
+    public Verification verification() {
+        return verification;
+    }
+
+    /**
+     * @return Spill options, or null if stored maps are to stay on the heap
+     */
+    public SpillOptions spill() {
+        return spill;
+    }
+
+    /**
+     * @return Compression options, or null if stored maps are not to be compressed
+     */
+    public CompressOptions compress() {
+        return compress;
+    }
+
+    /**
+     * @return Seed dictionary, or null
+     */
+    public SeedDictionary seed() {
+        return seed;
+    }
+
+    /**
+     * @return Metrics listener, or null
+     */
+    public MemoizerMetrics metrics() {
+        return metrics;
+    }
+
+    private MemoizerOptions with(Consumer<MemoizerOptions> change) {
+        MemoizerOptions copy = new MemoizerOptions(this);
+        change.accept(copy);
+        return copy;
+    }
+
+    private static final Predicate<Class<?>> NONE = __ -> false;
+
+    private static final MemoizerOptions DEFAULTS = new MemoizerOptions();
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[pojoBytes=" + pojoBytes + ", indexes=" + indexes + ", ingest=" + ingest + ", verification=" + verification + "]";
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.kjetilv.eda;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of {@link MemoizerCounters counters}.
+ *
+ * @param puts          Puts, of any outcome
+ * @param added         Puts that added a map
+ * @param replaced      Puts that replaced a map
+ * @param unchanged     Puts that left the stored map as it was
+ * @param gets          Gets
+ * @param getMisses     Gets that found nothing
+ * @param mapHits       Maps replaced by catalogued ones
+ * @param mapMisses     Maps catalogued for the first time
+ * @param listHits      Lists replaced by catalogued ones
+ * @param listMisses    Lists catalogued for the first time
+ * @param leafHits      Leaves replaced by catalogued ones
+ * @param leafMisses    Leaves catalogued for the first time
+ * @param collisions    Nodes with the hash of a different, catalogued node
+ * @param overflows     Stored maps with the hash of a different stored map
+ * @param canonicalKeys Canonical keys, summed over memoizers
+ * @param locks         Lock acquisitions
+ * @param lockWaitTime  Time spent acquiring locks
+ * @param lockHoldTime  Time locks were held
+ * @param completions   Completions
+ * @param completeTime  Time spent in completion
+ */
+public record MetricsSnapshot(
+    long puts,
+    long added,
+    long replaced,
+    long unchanged,
+    long gets,
+    long getMisses,
+    long mapHits,
+    long mapMisses,
+    long listHits,
+    long listMisses,
+    long leafHits,
+    long leafMisses,
+    long collisions,
+    long overflows,
+    long canonicalKeys,
+    long locks,
+    Duration lockWaitTime,
+    Duration lockHoldTime,
+    long completions,
+    Duration completeTime
+) {
+
+    /**
+     * @return Share of catalogued nodes that were replaced by catalogued ones, or 0 if there were none
+     */
+    public double hitRatio() {
+        long hits = mapHits + listHits + leafHits;
+        long total = hits + mapMisses + listMisses + leafMisses;
+        return total == 0L ? 0.0d : (double) hits / total;
+    }
+}
@@ -21,4 +21,10 @@ public interface PojoBytes {
      * Uses {@link Object#toString()} to derive bytes from the string
      */
     PojoBytes TOSTRING = MapMemoizerFactory.TOSTRING;
+
+    /**
+     * Reads all fields of the object, through cached method handles, and derives bytes from their values.
+     * Nested objects are read the same way.  Use when leaves are POJOs with weak or colliding hash codes.
+     */
+    PojoBytes FIELDS = MapMemoizerFactory.FIELDS;
 }
@@ -0,0 +1,22 @@
+package com.github.kjetilv.eda;
+
+/**
+ * Outcome of {@link MapsMemoizer#putIfChanged(Object, java.util.Map) putting} a map that may already be stored.
+ */
+public enum PutOutcome {
+
+    /**
+     * The identifier was new, and the map was stored
+     */
+    ADDED,
+
+    /**
+     * The identifier was stored with different content, which was replaced
+     */
+    REPLACED,
+
+    /**
+     * The identifier was stored with the same content.  The memoizer is unchanged
+     */
+    UNCHANGED
+}
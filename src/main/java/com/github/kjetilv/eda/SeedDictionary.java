@@ -0,0 +1,32 @@
+package com.github.kjetilv.eda;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A read-only dictionary of frequent leaves and substructures, trained on a sample corpus.  Memoizers
+ * {@link MemoizerOptions#seed(SeedDictionary) seeded} with a dictionary deduplicate against its content from
+ * the first put, and share its instances instead of cataloguing their own.  One dictionary can seed any number
+ * of memoizers.
+ * <p>
+ * Content is matched by hash, so seeded memoizers must be configured like the one the dictionary was trained
+ * with: Same key handler, and the same options for leaves and value objects.
+ * <p>
+ * Use {@link MapsMemoizers#trainDictionary(KeyHandler, MemoizerOptions, Iterable, int)} to train, and
+ * {@link MapsMemoizers#readDictionary(java.io.InputStream, KeyHandler)} to read a saved dictionary.
+ */
+public interface SeedDictionary {
+
+    /**
+     * @return Number of leaves and substructures
+     */
+    int size();
+
+    /**
+     * Save the dictionary, in the format of {@link MemoizedMaps#writeTo(OutputStream) exported} maps.
+     *
+     * @param out Output stream, flushed but not closed
+     * @throws IOException If the stream fails
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
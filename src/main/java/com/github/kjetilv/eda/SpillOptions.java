@@ -0,0 +1,21 @@
+package com.github.kjetilv.eda;
+
+import java.nio.file.Path;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Options for spilling cold stored maps to disk, see {@link MemoizerOptions#spill(SpillOptions)}.
+ *
+ * @param directory  Directory for the segment file.  The file is deleted when the JVM exits
+ * @param heapBudget Maximum number of bytes of {@link Completion#ENCODED encoded} maps to keep on the heap
+ */
+public record SpillOptions(Path directory, long heapBudget) {
+
+    public SpillOptions {
+        requireNonNull(directory, "directory");
+        if (heapBudget < 0) {
+            throw new IllegalArgumentException("Negative heap budget: " + heapBudget);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.kjetilv.eda;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of tiered storage, see {@link MemoizerOptions#spill(SpillOptions)} and
+ * {@link MemoizerOptions#compress(CompressOptions)}.  Byte counts are for the parts of stored maps that are not
+ * shared with others.  Shared substructures always stay on the heap.
+ *
+ * @param hot          Stored maps on the heap
+ * @param cold         Stored maps in the cold tier only
+ * @param hotBytes     Bytes of stored maps on the heap
+ * @param coldBytes    Bytes held by the cold tier
+ * @param coldRawBytes Bytes of the maps written to the cold tier, before any compression
+ * @param hits         Lookups served from the heap
+ * @param faults       Lookups served from the cold tier
+ * @param faultP50     Median fault latency, including decompression
+ * @param faultP99     99th percentile fault latency, including decompression
+ */
+public record TierStats(
+    int hot,
+    int cold,
+    long hotBytes,
+    long coldBytes,
+    long coldRawBytes,
+    long hits,
+    long faults,
+    Duration faultP50,
+    Duration faultP99
+) {
+
+    /**
+     * Stats for a memoizer without tiered storage
+     */
+    public static final TierStats NONE = new TierStats(0, 0, 0L, 0L, 0L, 0L, 0L, Duration.ZERO, Duration.ZERO);
+
+    /**
+     * @return Share of lookups served from the heap, or 1 if there were none
+     */
+    public double hitRatio() {
+        long total = hits + faults;
+        return total == 0L ? 1.0d : (double) hits / total;
+    }
+
+    /**
+     * @return Raw bytes per byte held by the cold tier, or 1 if it is empty
+     */
+    public double compressionRatio() {
+        return coldBytes == 0L ? 1.0d : (double) coldRawBytes / coldBytes;
+    }
+}
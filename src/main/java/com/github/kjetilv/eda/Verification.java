@@ -0,0 +1,27 @@
+package com.github.kjetilv.eda;
+
+/**
+ * How to verify that a value matches the canonical value catalogued under the same hash, before reusing the
+ * canonical value.  Verification guards against hash collisions, at the cost of comparing the two values on
+ * every repeat.  See {@link MemoizerOptions#verify(Verification)}.
+ */
+public enum Verification {
+
+    /**
+     * Compare the values with {@link Object#equals(Object) equals}.  Safe, but the cost grows with the size of
+     * the values.
+     */
+    ALWAYS,
+
+    /**
+     * Compare maps and lists by the identity of their children, which are canonical already.  Leaves and
+     * value objects are only checked for the same class, and are otherwise trusted to their hash.
+     */
+    SHALLOW,
+
+    /**
+     * Trust the 128-bit hash, and reuse the canonical value without comparing.  A collision would go
+     * undetected, and the colliding value would be replaced by the canonical one.
+     */
+    TRUST_HASH
+}
@@ -0,0 +1,13 @@
+package com.github.kjetilv.eda;
+
+import java.time.Duration;
+
+/**
+ * The cost of {@link Verification verifying} canonical values while putting.
+ *
+ * @param verification Verification policy
+ * @param verified     Values compared with their canonical value
+ * @param time         Time spent comparing
+ */
+public record VerificationStats(Verification verification, long verified, Duration time) {
+}
@@ -0,0 +1,277 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.IngestOptions;
+import com.github.kjetilv.eda.IngestStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An asynchronous ingest pipeline: A bounded queue of incoming maps, a pool of workers that
+ * {@link BiFunction prepare} them, and a single committer that commits prepared maps in batches.
+ * <p>
+ * Any failure to prepare or commit a map, errors included, fails the map's future, and the pipeline carries on.
+ * Threads run until the pipeline is {@link #close() closed}.
+ * <p>
+ * Thread-safe.
+ *
+ * @param <I> Identifier type
+ * @param <P> Type of prepared maps
+ */
+final class AsyncIngest<I, P> {
+
+    private final IngestOptions options;
+
+    private final BiFunction<I, Map<?, ?>, P> prepare;
+
+    private final Consumer<P> commit;
+
+    private final Consumer<Runnable> batch;
+
+    private final BlockingQueue<Job<I, P>> incoming;
+
+    private final BlockingQueue<Job<I, P>> prepared;
+
+    private final List<Thread> workers;
+
+    private final Thread committer;
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private boolean closed;
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * @param name    Name, for threads
+     * @param options Options
+     * @param prepare Prepares a map for committing, may return null if there is nothing to commit
+     * @param commit  Commits a prepared map
+     * @param batch   Runs a batch of commits, e.g. under a lock
+     */
+    AsyncIngest(
+        String name,
+        IngestOptions options,
+        BiFunction<I, Map<?, ?>, P> prepare,
+        Consumer<P> commit,
+        Consumer<Runnable> batch
+    ) {
+        this.options = requireNonNull(options, "options");
+        this.prepare = requireNonNull(prepare, "prepare");
+        this.commit = requireNonNull(commit, "commit");
+        this.batch = requireNonNull(batch, "batch");
+        this.incoming = new ArrayBlockingQueue<>(options.queueCapacity());
+        this.prepared = new ArrayBlockingQueue<>(options.queueCapacity());
+
+        Thread.Builder threads = options.virtualThreads()
+            ? Thread.ofVirtual()
+            : Thread.ofPlatform().daemon();
+        this.workers = new ArrayList<>(options.workers());
+        for (int i = 0; i < options.workers(); i++) {
+            workers.add(threads.name(name + "-worker-" + i).start(this::work));
+        }
+        this.committer = threads.name(name + "-committer").start(this::commitAll);
+    }
+
+    /**
+     * @param identifier Identifier
+     * @param value      Map
+     * @return Future that completes when the map is committed
+     * @throws IllegalStateException If this pipeline is {@link #close() closed}
+     */
+    CompletableFuture<Void> submit(I identifier, Map<?, ?> value) {
+        Job<I, P> job = new Job<>(identifier, value, System.nanoTime());
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException(this + " is closed, cannot put " + identifier);
+            }
+            switch (options.backpressure()) {
+                case BLOCK -> incoming.put(job);
+                case REJECT -> {
+                    if (!incoming.offer(job)) {
+                        rejected.increment();
+                        job.future.completeExceptionally(new RejectedExecutionException(
+                            "Queue full, " + incoming.size() + " maps waiting: " + identifier));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.future.completeExceptionally(e);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return job.future;
+    }
+
+    IngestStats stats() {
+        return new IngestStats(
+            incoming.size(),
+            prepared.size(),
+            completed.sum(),
+            rejected.sum(),
+            latencies.percentile(0.5d),
+            latencies.percentile(0.99d),
+            latencies.percentile(0.999d)
+        );
+    }
+
+    /**
+     * Stop accepting maps, and wait for all submitted maps to be committed.
+     */
+    void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                incoming.put(poison());
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            prepared.put(poison());
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(this + " interrupted while closing", e);
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Job<I, P> job = take(incoming);
+            if (job.isPoison()) {
+                return;
+            }
+            try {
+                job.prepared = prepare.apply(job.identifier, job.value);
+            } catch (Throwable e) {
+                done(job, e);
+                continue;
+            }
+            if (job.prepared == null) {
+                done(job, null);
+            } else {
+                try {
+                    prepared.put(job);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    done(job, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void commitAll() {
+        List<Job<I, P>> jobs = new ArrayList<>(options.batchSize());
+        List<Throwable> failures = new ArrayList<>(options.batchSize());
+        while (true) {
+            jobs.add(take(prepared));
+            prepared.drainTo(jobs, options.batchSize() - 1);
+            boolean poisoned = jobs.getLast().isPoison();
+            if (poisoned) {
+                jobs.removeLast();
+            }
+            try {
+                batch.accept(() -> jobs.forEach(job -> {
+                    try {
+                        commit.accept(job.prepared);
+                        failures.add(null);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }));
+            } catch (Throwable e) {
+                // The batch itself failed, e.g. while locking: Fail the jobs it did not get to
+                while (failures.size() < jobs.size()) {
+                    failures.add(e);
+                }
+            }
+            // Complete futures outside the batch, so callbacks don't run under its lock
+            for (int i = 0; i < jobs.size(); i++) {
+                done(jobs.get(i), failures.get(i));
+            }
+            if (poisoned) {
+                return;
+            }
+            jobs.clear();
+            failures.clear();
+        }
+    }
+
+    private void done(Job<I, P> job, Throwable failure) {
+        latencies.record(System.nanoTime() - job.submitted);
+        completed.increment();
+        if (failure == null) {
+            job.future.complete(null);
+        } else {
+            job.future.completeExceptionally(failure);
+        }
+    }
+
+    private Job<I, P> take(BlockingQueue<Job<I, P>> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(this + " interrupted", e);
+        }
+    }
+
+    private static <I, P> Job<I, P> poison() {
+        return new Job<>(null, null, 0L);
+    }
+
+    private static final class Job<I, P> {
+
+        private final I identifier;
+
+        private final Map<?, ?> value;
+
+        private final long submitted;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private P prepared;
+
+        private Job(I identifier, Map<?, ?> value, long submitted) {
+            this.identifier = identifier;
+            this.value = value;
+            this.submitted = submitted;
+        }
+
+        private boolean isPoison() {
+            return identifier == null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + options + "]";
+    }
+}
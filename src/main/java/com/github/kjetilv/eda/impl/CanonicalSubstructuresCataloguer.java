@@ -1,21 +1,41 @@
 package com.github.kjetilv.eda.impl;
 
+import com.github.kjetilv.eda.MemoizerMetrics.NodeKind;
+import com.github.kjetilv.eda.Verification;
+import com.github.kjetilv.eda.VerificationStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 import static com.github.kjetilv.eda.impl.CollectionUtils.transformValues;
 import static com.github.kjetilv.eda.impl.CollectionUtils.transform;
+import static java.util.Objects.requireNonNull;
 
 /**
  * Canonicalizes {@link HashedTree hashed trees}, progressively storing and resolving shared substructures
  * as they appear.
  * <p>
- * This class ought to be thread-safe, as it only appends to {@link ConcurrentMap concurrent maps}.
+ * Hash collisions are resolved at the smallest colliding substructure: Values that collide with an already
+ * catalogued value are kept in a collision chain under their hash, and the rest of the tree is canonicalized
+ * as usual.  Whether a value is compared with the catalogued value at all is decided by the
+ * {@link Verification verification} policy.
+ * <p>
+ * A {@link Seed seed} of pre-trained leaves and substructures is consulted before the catalogues.  Seeded
+ * values are shared with other cataloguers, and are not catalogued again.
+ * <p>
+ * The {@link SizeEstimates estimated sizes} of values are added up as they are met and catalogued.
+ * <p>
+ * This class ought to be thread-safe, as it only appends to {@link ConcurrentMap concurrent maps}, and
+ * synchronizes on collision chains.
  *
  * @param <K>
  */
@@ -27,6 +47,32 @@ final class CanonicalSubstructuresCataloguer<K> {
 
     private final Map<Hash, Object> leaves = new ConcurrentHashMap<>();
 
+    /**
+     * Values colliding with the catalogued value for their hash
+     */
+    private final Map<Hash, List<Object>> collisionChains = new ConcurrentHashMap<>();
+
+    private final Verification verification;
+
+    private final Seed seed;
+
+    private final SizeEstimates sizes;
+
+    private final LongAdder verified = new LongAdder();
+
+    private final LongAdder verifyingNanos = new LongAdder();
+
+    /**
+     * @param verification Verification policy, not null
+     * @param seed         Seed, not null
+     * @param sizes        Size estimates, not null
+     */
+    CanonicalSubstructuresCataloguer(Verification verification, Seed seed, SizeEstimates sizes) {
+        this.verification = requireNonNull(verification, "verification");
+        this.seed = requireNonNull(seed, "seed");
+        this.sizes = requireNonNull(sizes, "sizes");
+    }
+
     /**
      * Accepts a {@link HashedTree hashed tree} and returns the {@link CanonicalValue canonical value}.
      * Traverses the {@link HashedTree hashed tree} and re-builds it.  New substructures found in incoming
@@ -37,96 +83,282 @@ final class CanonicalSubstructuresCataloguer<K> {
      * to a lot of one-liners, which would otherwise add up to a lot of clutter.
      *
      * @param hashedTree Hashed tree
-     * @return A {@link CanonicalValue value} which may be either a {@link CanonicalValue.Collision collision},
-     * or a holder for the canonical value
+     * @return A holder for the canonical value
      */
-    @SuppressWarnings("unchecked")
     public CanonicalValue toCanonical(HashedTree<?> hashedTree) {
+        return toCanonical(hashedTree, null);
+    }
+
+    /**
+     * As {@link #toCanonical(HashedTree)}, counting nodes and catalogue outcomes.
+     *
+     * @param hashedTree Hashed tree
+     * @param tally      Receives counts, or null
+     * @return A holder for the canonical value
+     */
+    @SuppressWarnings("unchecked")
+    CanonicalValue toCanonical(HashedTree<?> hashedTree, Tally tally) {
+        if (tally != null) {
+            tally.nodes++;
+        }
         return switch (hashedTree) {
-            case HashedTree.Node<?>(Hash hash, Map<?, ? extends HashedTree<?>> valueMap) -> {
-                Map<K, CanonicalValue> canonicalTrees = recurseMap((Map<K, HashedTree<?>>) valueMap);
-                yield collision(canonicalTrees).orElseGet(() -> {
-                    Map<K, Object> map = mapValue(canonicalTrees);
-                    return resolve(
-                        cataloguedMap(hash, map),
-                        map,
-                        CanonicalValue.Node::new
-                    );
-                });
-            }
-            case HashedTree.Nodes(Hash hash, List<? extends HashedTree<?>> values) -> {
-                List<CanonicalValue> canonicalValues = recurseList(values);
-                yield collision(canonicalValues).orElseGet(() -> {
-                    List<Object> list = listValue(canonicalValues);
-                    return resolve(
-                        cataloguedList(hash, list),
-                        list,
-                        CanonicalValue.Nodes::new
-                    );
-                });
-            }
-            case HashedTree.Leaf(Hash hash, Object value) -> resolve(
-                cataloguedLeaf(hash, value),
-                value,
-                CanonicalValue.Leaf::new
+            case HashedTree.Node<?>(Hash hash, Map<?, ? extends HashedTree<?>> valueMap) -> new CanonicalValue.Node<>(
+                catalogued(
+                    maps,
+                    seed.maps(),
+                    hash,
+                    mapValue(recurseMap((Map<K, HashedTree<?>>) valueMap, tally)),
+                    NodeKind.MAP,
+                    tally
+                )
+            );
+            case HashedTree.Nodes(Hash hash, List<? extends HashedTree<?>> values) -> new CanonicalValue.Nodes(
+                catalogued(lists, seed.lists(), hash, listValue(recurseList(values, tally)), NodeKind.LIST, tally)
+            );
+            case HashedTree.Leaf(Hash hash, Object value) -> new CanonicalValue.Leaf(
+                catalogued(leaves, seed.leaves(), hash, value, NodeKind.LEAF, tally)
             );
+            case HashedTree.Composite(
+                Hash hash,
+                Object value,
+                Decomposer.Decomposition decomposition,
+                List<? extends HashedTree<?>> components
+            ) -> {
+                Object seeded = seed.leaves().get(hash);
+                Object existing = seeded != null ? seeded : leaves.get(hash);
+                if (existing != null && matches(existing, value)) {
+                    if (tally != null) {
+                        tally.hits[NodeKind.LEAF.ordinal()]++;
+                    }
+                    sizes.visited(NodeKind.LEAF, existing, false);
+                    sizes.repeated(repeatedBytes(components, tally));
+                    yield new CanonicalValue.Leaf(existing);
+                }
+                yield new CanonicalValue.Leaf(
+                    catalogued(
+                        leaves,
+                        seed.leaves(),
+                        hash,
+                        decomposition.rebuild(listValue(recurseList(components, tally))),
+                        NodeKind.LEAF,
+                        tally
+                    )
+                );
+            }
             case HashedTree.Null ignored -> CanonicalValue.NULL;
         };
     }
 
-    private Map<K, CanonicalValue> recurseMap(Map<K, HashedTree<?>> hashedTrees) {
-        return transformValues(hashedTrees, this::toCanonical);
+    /**
+     * @return Hashes shared by different values, found so far
+     */
+    Set<Hash> collisions() {
+        return Set.copyOf(collisionChains.keySet());
     }
 
-    private List<CanonicalValue> recurseList(List<? extends HashedTree<?>> values) {
-        return transform(values, this::toCanonical);
+    /**
+     * @param action Receives each catalogued value, and its hash.  Colliding values are not included
+     */
+    void forEachCatalogued(BiConsumer<Hash, Object> action) {
+        maps.forEach(action);
+        lists.forEach(action);
+        leaves.forEach(action);
     }
 
-    private Map<K, Object> cataloguedMap(Hash hash, Map<K, Object> computed) {
-        return maps.putIfAbsent(hash, computed);
+    /**
+     * @return Estimated bytes of the catalogues themselves, not counting the catalogued values
+     */
+    long workingBytes() {
+        long entries = (long) maps.size() + lists.size() + leaves.size() + collisionChains.size();
+        return entries * (SizeEstimates.ENTRY + SizeEstimates.HASH);
     }
 
-    private List<Object> cataloguedList(Hash hash, List<Object> computed) {
-        return lists.putIfAbsent(hash, computed);
+    /**
+     * @return Verification cost so far
+     */
+    VerificationStats verificationStats() {
+        return new VerificationStats(verification, verified.sum(), Duration.ofNanos(verifyingNanos.sum()));
     }
 
-    private Object cataloguedLeaf(Hash hash, Object value) {
-        return leaves.putIfAbsent(hash, value);
+    private Map<K, CanonicalValue> recurseMap(Map<K, HashedTree<?>> hashedTrees, Tally tally) {
+        return transformValues(hashedTrees, tree -> toCanonical(tree, tally));
     }
 
-    private static <T> CanonicalValue resolve(T existing, T value, Function<T, CanonicalValue> wrap) {
-        return existing == null ? wrap.apply(value)
-            : existing.equals(value) ? wrap.apply(existing)
-                : CanonicalValue.COLLISION;
+    private List<CanonicalValue> recurseList(List<? extends HashedTree<?>> values, Tally tally) {
+        return transform(values, tree -> toCanonical(tree, tally));
     }
 
-    private static List<Object> listValue(List<CanonicalValue> canonicalValues) {
-        return transform(canonicalValues, CanonicalValue::value);
+    /**
+     * @param catalogue Catalogue
+     * @param seeded    Seeded values
+     * @param hash      Hash
+     * @param value     Value
+     * @param kind      Node kind, for the tally
+     * @param tally     Receives the outcome, or null
+     * @param <T>       Value type
+     * @return The seeded or catalogued value equal to the value, if any, or else the value itself
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T catalogued(
+        Map<Hash, T> catalogue,
+        Map<Hash, Object> seeded,
+        Hash hash,
+        T value,
+        NodeKind kind,
+        Tally tally
+    ) {
+        Object seededValue = seeded.isEmpty() ? null : seeded.get(hash);
+        if (seededValue != null && matches(seededValue, value)) {
+            if (tally != null) {
+                tally.hits[kind.ordinal()]++;
+            }
+            sizes.visited(kind, seededValue, false);
+            return (T) seededValue;
+        }
+        T existing = catalogue.putIfAbsent(hash, value);
+        if (existing == null) {
+            if (tally != null) {
+                tally.misses[kind.ordinal()]++;
+            }
+            sizes.visited(kind, value, true);
+            return value;
+        }
+        if (matches(existing, value)) {
+            if (tally != null) {
+                tally.hits[kind.ordinal()]++;
+            }
+            sizes.visited(kind, existing, false);
+            return existing;
+        }
+        if (tally != null) {
+            tally.collisions++;
+        }
+        T chained = chained(hash, value);
+        sizes.visited(kind, chained, chained == value);
+        return chained;
     }
 
-    private static <K> Map<K, Object> mapValue(Map<K, CanonicalValue> canonicalTrees) {
-        return transformValues(canonicalTrees, CanonicalValue::value);
+    /**
+     * @param existing Catalogued value
+     * @param value    Incoming value with the same hash
+     * @return True iff the catalogued value may be used in place of the incoming one
+     */
+    private boolean matches(Object existing, Object value) {
+        if (existing == value || verification == Verification.TRUST_HASH) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            return verification == Verification.ALWAYS
+                ? existing.equals(value)
+                : sameChildren(existing, value);
+        } finally {
+            verifyingNanos.add(System.nanoTime() - start);
+            verified.increment();
+        }
+    }
+
+    private static boolean sameChildren(Object existing, Object value) {
+        return switch (existing) {
+            case Map<?, ?> existingMap when value instanceof Map<?, ?> map -> sameEntries(existingMap, map);
+            case List<?> existingList when value instanceof List<?> list -> sameElements(existingList, list);
+            default -> existing.getClass() == value.getClass();
+        };
+    }
+
+    private static boolean sameEntries(Map<?, ?> existing, Map<?, ?> value) {
+        if (existing.size() != value.size()) {
+            return false;
+        }
+        for (Map.Entry<?, ?> entry : value.entrySet()) {
+            Object child = existing.get(entry.getKey());
+            if (child != entry.getValue() || child == null && !existing.containsKey(entry.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameElements(List<?> existing, List<?> value) {
+        if (existing.size() != value.size()) {
+            return false;
+        }
+        for (int i = 0; i < existing.size(); i++) {
+            if (existing.get(i) != value.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T chained(Hash hash, T value) {
+        List<Object> chain = collisionChains.computeIfAbsent(hash, __ -> new ArrayList<>(1));
+        synchronized (chain) {
+            for (Object chained : chain) {
+                if (chained.equals(value)) {
+                    return (T) chained;
+                }
+            }
+            chain.add(value);
+            return value;
+        }
     }
 
     /**
-     * Collision, of any
+     * Sizes the components of a value found in the catalogue, as if they had been visited, and counts their nodes.
      *
-     * @param map Map
-     * @return Any collision
+     * @param trees Components
+     * @param tally Receives node counts, or null
+     * @return Bytes of the components and all their children
      */
-    private static Optional<CanonicalValue> collision(Map<?, CanonicalValue> map) {
-        return collision(map.values());
+    private static long repeatedBytes(Collection<? extends HashedTree<?>> trees, Tally tally) {
+        long bytes = 0L;
+        for (HashedTree<?> tree : trees) {
+            if (tally != null) {
+                tally.nodes++;
+            }
+            bytes += switch (tree) {
+                case HashedTree.Node<?> node ->
+                    SizeEstimates.map(node.valueMap().size()) + repeatedBytes(node.valueMap().values(), tally);
+                case HashedTree.Nodes nodes ->
+                    SizeEstimates.list(nodes.values().size()) + repeatedBytes(nodes.values(), tally);
+                case HashedTree.Leaf leaf -> SizeEstimates.leaf(leaf.value());
+                case HashedTree.Composite composite ->
+                    SizeEstimates.leaf(composite.value()) + repeatedBytes(composite.components(), tally);
+                case HashedTree.Null ignored -> 0L;
+            };
+        }
+        return bytes;
+    }
+
+    private static List<Object> listValue(List<CanonicalValue> canonicalValues) {
+        return transform(canonicalValues, CanonicalValue::value);
+    }
+
+    private static <K> Map<K, Object> mapValue(Map<K, CanonicalValue> canonicalTrees) {
+        return transformValues(canonicalTrees, CanonicalValue::value);
     }
 
     /**
-     * Collision, of any
-     *
-     * @param values List
-     * @return Any collision
+     * Counts for one traversal.  Not thread-safe, to be used by one traversal at a time.
      */
-    private static Optional<CanonicalValue> collision(Collection<CanonicalValue> values) {
-        return values.stream()
-            .filter(CanonicalValue::collision)
-            .findFirst();
+    static final class Tally {
+
+        int nodes;
+
+        final int[] hits = new int[NodeKind.values().length];
+
+        final int[] misses = new int[NodeKind.values().length];
+
+        int collisions;
+
+        int hits() {
+            return Arrays.stream(hits).sum();
+        }
+
+        int misses() {
+            return Arrays.stream(misses).sum();
+        }
     }
 }
@@ -5,14 +5,12 @@ import java.util.Map;
 
 /**
  * A canonical value is the result of resolving a {@link HashedTree hashed tree} against shared
- * substructures of other hashed trees, including {@link Collision hash collisions}.
+ * substructures of other hashed trees.
  */
 sealed interface CanonicalValue {
 
     Null NULL = new Null();
 
-    Collision COLLISION = new Collision();
-
     /**
      * @return Canonical value
      */
@@ -20,10 +18,6 @@ sealed interface CanonicalValue {
         return null;
     }
 
-    default boolean collision() {
-        return false;
-    }
-
     record Node<K>(Map<K, Object> value) implements CanonicalValue {
     }
 
@@ -33,14 +27,6 @@ sealed interface CanonicalValue {
     record Leaf(Object value) implements CanonicalValue {
     }
 
-    record Collision() implements CanonicalValue {
-
-        @Override
-        public boolean collision() {
-            return true;
-        }
-    }
-
     record Null() implements CanonicalValue {
     }
 }
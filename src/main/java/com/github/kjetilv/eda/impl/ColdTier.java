@@ -0,0 +1,40 @@
+package com.github.kjetilv.eda.impl;
+
+/**
+ * Where {@link TieredStore tiered storage} keeps the bytes of cold maps.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+interface ColdTier extends AutoCloseable {
+
+    /**
+     * @param bytes Bytes
+     * @return Handle for reading the bytes back
+     */
+    long write(byte[] bytes);
+
+    /**
+     * @param handle Handle
+     * @return The bytes
+     */
+    byte[] read(long handle);
+
+    /**
+     * @return Bytes held
+     */
+    long size();
+
+    /**
+     * @return Bytes written, as given to {@link #write(byte[])}
+     */
+    default long rawSize() {
+        return size();
+    }
+
+    /**
+     * Release the bytes held.  They cannot be read after this.
+     */
+    @Override
+    default void close() {
+    }
+}
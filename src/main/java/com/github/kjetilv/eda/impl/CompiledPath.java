@@ -0,0 +1,117 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyPath;
+
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link KeyPath key path} resolved against a {@link KeyTable key table}: Keys are normalized, and their
+ * ordinals looked up, once.  The path can then be followed through stored maps, without materializing
+ * anything on the way.  Plain maps are walked with {@link Map#get(Object) get}, while
+ * {@link EncodedTree encoded} maps are scanned {@link TreeCodec#find(byte[], int, int) in place}.  Only the
+ * value found at the end of the path is decoded.
+ * <p>
+ * Paths are followed through maps only, like {@link PathIndexes indexes}.
+ * <p>
+ * Immutable, and therefore thread-safe.
+ */
+final class CompiledPath {
+
+    /**
+     * @param path     Key path
+     * @param keyTable Key table
+     * @return Compiled path
+     */
+    static CompiledPath compile(KeyPath path, KeyTable<?> keyTable) {
+        requireNonNull(path, "path");
+        requireNonNull(keyTable, "keyTable");
+        Object[] keys = new Object[path.keys().size()];
+        int[] ordinals = new int[keys.length];
+        boolean complete = true;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyTable.lookups().normalize(path.keys().get(i));
+            ordinals[i] = keyTable.ordinalOf(keys[i]);
+            complete &= ordinals[i] >= 0;
+        }
+        return new CompiledPath(path, keys, ordinals, complete);
+    }
+
+    private final KeyPath path;
+
+    private final Object[] keys;
+
+    private final int[] ordinals;
+
+    private final boolean complete;
+
+    private CompiledPath(KeyPath path, Object[] keys, int[] ordinals, boolean complete) {
+        this.path = path;
+        this.keys = keys;
+        this.ordinals = ordinals;
+        this.complete = complete;
+    }
+
+    /**
+     * @return True iff all keys were known to the key table.  If not, later keys may get ordinals, and the path
+     * should not be cached
+     */
+    boolean complete() {
+        return complete;
+    }
+
+    /**
+     * @param stored A stored map, plain or encoded
+     * @return The value at the end of this path, or null if there is none
+     */
+    Object valueAt(Object stored) {
+        return valueAt(stored, 0);
+    }
+
+    private Object valueAt(Object stored, int start) {
+        Object current = stored;
+        for (int i = start; i < keys.length; i++) {
+            switch (current) {
+                case EncodedTree<?> encoded -> {
+                    return valueAt(encoded, i);
+                }
+                case TieredTree tiered -> {
+                    return valueAt(tiered.tree(), i);
+                }
+                case Map<?, ?> map -> current = map.get(keys[i]);
+                case null, default -> {
+                    return null;
+                }
+            }
+        }
+        return switch (current) {
+            case EncodedTree<?> encoded -> encoded.view();
+            case TieredTree tiered -> tiered.tree().view();
+            case null, default -> current;
+        };
+    }
+
+    private Object valueAt(EncodedTree<?> encoded, int start) {
+        byte[] bytes = encoded.bytes();
+        int offset = 0;
+        for (int i = start; i < keys.length; i++) {
+            if (bytes[offset] == TreeCodec.REF) {
+                return valueAt(encoded.refs()[TreeCodec.readVarint(bytes, offset + 1)], i);
+            }
+            if (bytes[offset] != TreeCodec.MAP || ordinals[i] < 0) {
+                return null;
+            }
+            offset = TreeCodec.find(bytes, offset, ordinals[i]);
+            if (offset < 0) {
+                return null;
+            }
+        }
+        return TreeCodec.decode(bytes, offset, encoded.refs(), encoded.keys(), encoded.keyOrdinals());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + path + "]";
+    }
+}
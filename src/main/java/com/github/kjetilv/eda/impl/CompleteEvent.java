@@ -0,0 +1,26 @@
+package com.github.kjetilv.eda.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for completion of a memoizer.
+ */
+@Name("com.github.kjetilv.eda.Complete")
+@Label("Memoizer Complete")
+@Category("Edamame")
+@StackTrace(false)
+final class CompleteEvent extends Event {
+
+    @Label("Completions")
+    String completions;
+
+    @Label("Maps")
+    int maps;
+
+    @Label("Collisions")
+    int collisions;
+}
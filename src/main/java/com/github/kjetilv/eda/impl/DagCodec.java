@@ -0,0 +1,461 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Fingerprint;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Exports and imports {@link com.github.kjetilv.eda.MemoizedMaps memoized maps} as a DAG: Each canonical leaf, list and map is
+ * written once, after its children, and referred to by its index from then on.  The file therefore grows with
+ * the deduplicated size of the maps, and an import rebuilds the canonical structure as it reads, without hashing
+ * anything.
+ * <p>
+ * After a magic header, the stream is a sequence of records, each a tag byte followed by its payload:
+ * <ul>
+ *     <li>{@link #KEY}: Varint length and UTF-8 bytes of the next key in the key dictionary</li>
+ *     <li>{@link #MAP}: Varint entry count, then pairs of varint key ordinal and value reference</li>
+ *     <li>{@link #LIST}: Varint element count, then the value references</li>
+ *     <li>Leaves: {@link #STRING}, {@link #INT} and friends, see {@link Out#leaf(Object)}</li>
+ *     <li>{@link #ENTRY}: An identifier, encoded as a leaf, a value reference to its root, and the 16 bytes
+ *     of the root's hash.  Roots are maps, except in {@link Seed seeds}</li>
+ *     <li>{@link #COLLISION}: The 16 bytes of a colliding hash</li>
+ *     <li>{@link #END}: End of stream</li>
+ * </ul>
+ * Maps, lists and leaves are nodes, numbered in the order they appear.  A value reference is a varint, with 0
+ * for null and n + 1 for node n.  Integral numbers are zig-zag varints.
+ * <p>
+ * Keys are exported by {@link Object#toString() toString}, and imported through the key handler.  Leaves must
+ * be strings, numbers, booleans, {@link Instant instants} or {@link UUID UUIDs}, and so must identifiers.
+ */
+final class DagCodec {
+
+    /**
+     * @param stored       Identifiers and stored maps, plain or {@link EncodedTree encoded}
+     * @param fingerprints Fingerprints of stored maps
+     * @param collisions   Colliding hashes
+     * @param out          Output stream, flushed but not closed
+     * @param <I>          Identifier type
+     * @throws IOException If the stream fails
+     * @throws IllegalStateException If a leaf or identifier is of an unsupported type
+     */
+    static <I> void write(
+        Stream<Map.Entry<I, Object>> stored,
+        Function<I, Fingerprint> fingerprints,
+        Set<Fingerprint> collisions,
+        OutputStream out
+    ) throws IOException {
+        Out dag = new Out(out);
+        dag.header();
+        try {
+            stored.forEach(entry -> dag.entry(
+                entry.getKey(),
+                dag.node(entry.getValue()),
+                fingerprints.apply(entry.getKey())
+            ));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (Fingerprint collision : collisions) {
+            dag.collision(collision);
+        }
+        dag.end();
+    }
+
+    /**
+     * @param in      Input stream, read up to the end record, and not closed
+     * @param keys    Normalizes imported keys
+     * @param restore Receives each identifier, its root and the root hash
+     * @param <I>     Identifier type
+     * @param <K>     Key type
+     * @return Colliding hashes
+     * @throws IOException If the stream fails, or is not a DAG export
+     */
+    static <I, K> Set<Hash> read(
+        InputStream in,
+        Function<Object, K> keys,
+        Restore<I> restore
+    ) throws IOException {
+        return new In<I, K>(in, keys).read(restore);
+    }
+
+    /**
+     * @param <I> Identifier type
+     */
+    @FunctionalInterface
+    interface Restore<I> {
+
+        void restore(I identifier, Object root, Hash hash);
+    }
+
+    private DagCodec() {
+    }
+
+    static final byte KEY = 1;
+
+    static final byte MAP = 2;
+
+    static final byte LIST = 3;
+
+    static final byte STRING = 4;
+
+    static final byte INT = 5;
+
+    static final byte LONG = 6;
+
+    static final byte DOUBLE = 7;
+
+    static final byte TRUE = 8;
+
+    static final byte FALSE = 9;
+
+    static final byte FLOAT = 10;
+
+    static final byte SHORT = 11;
+
+    static final byte BYTE = 12;
+
+    static final byte BIG_INTEGER = 13;
+
+    static final byte BIG_DECIMAL = 14;
+
+    static final byte INSTANT = 15;
+
+    static final byte UUID_BITS = 16;
+
+    static final byte ENTRY = 20;
+
+    static final byte COLLISION = 21;
+
+    static final byte END = 0;
+
+    private static final byte[] MAGIC = {'E', 'D', 'A', 'G', 1};
+
+    private static final class Out {
+
+        private final DataOutputStream out;
+
+        private final Map<Object, Integer> containers = new IdentityHashMap<>();
+
+        private final Map<Object, Integer> leaves = new HashMap<>();
+
+        private final Map<String, Integer> keys = new HashMap<>();
+
+        private int nodes;
+
+        private Out(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        }
+
+        private void header() throws IOException {
+            out.write(MAGIC);
+        }
+
+        private void entry(Object identifier, int ref, Fingerprint fingerprint) {
+            try {
+                out.write(ENTRY);
+                leaf(identifier);
+                varint(ref);
+                out.writeLong(fingerprint.high());
+                out.writeLong(fingerprint.low());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void collision(Fingerprint fingerprint) throws IOException {
+            out.write(COLLISION);
+            out.writeLong(fingerprint.high());
+            out.writeLong(fingerprint.low());
+        }
+
+        private void end() throws IOException {
+            out.write(END);
+            out.flush();
+        }
+
+        /**
+         * Write a value and its children, unless already written
+         *
+         * @return Value reference
+         */
+        private int node(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            boolean container = value instanceof Map<?, ?> || value instanceof List<?> ||
+                                value instanceof EncodedTree<?> || value instanceof TieredTree;
+            Map<Object, Integer> written = container ? containers : leaves;
+            Integer ref = written.get(value);
+            if (ref != null) {
+                return ref;
+            }
+            try {
+                switch (value) {
+                    case EncodedTree<?> encoded -> writeMap(encoded.view());
+                    case TieredTree tiered -> writeMap(tiered.tree().view());
+                    case Map<?, ?> map -> writeMap(map);
+                    case List<?> list -> writeList(list);
+                    default -> leaf(value);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int newRef = ++nodes;
+            written.put(value, newRef);
+            return newRef;
+        }
+
+        private void writeMap(Map<?, ?> map) throws IOException {
+            int size = map.size();
+            int[] ordinals = new int[size];
+            int[] refs = new int[size];
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                ordinals[i] = key(entry.getKey());
+                refs[i] = node(entry.getValue());
+                i++;
+            }
+            out.write(MAP);
+            varint(size);
+            for (int j = 0; j < size; j++) {
+                varint(ordinals[j]);
+                varint(refs[j]);
+            }
+        }
+
+        private void writeList(List<?> list) throws IOException {
+            int[] refs = new int[list.size()];
+            for (int i = 0; i < refs.length; i++) {
+                refs[i] = node(list.get(i));
+            }
+            out.write(LIST);
+            varint(refs.length);
+            for (int ref : refs) {
+                varint(ref);
+            }
+        }
+
+        private int key(Object key) throws IOException {
+            String string = key.toString();
+            Integer ordinal = keys.get(string);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            out.write(KEY);
+            string(string);
+            int newOrdinal = keys.size();
+            keys.put(string, newOrdinal);
+            return newOrdinal;
+        }
+
+        private void leaf(Object value) throws IOException {
+            switch (value) {
+                case String string -> {
+                    out.write(STRING);
+                    string(string);
+                }
+                case Integer i -> tagged(INT, i);
+                case Long l -> tagged(LONG, l);
+                case Short s -> tagged(SHORT, s);
+                case Byte b -> tagged(BYTE, b);
+                case Double d -> {
+                    out.write(DOUBLE);
+                    out.writeDouble(d);
+                }
+                case Float f -> {
+                    out.write(FLOAT);
+                    out.writeFloat(f);
+                }
+                case Boolean b -> out.write(b ? TRUE : FALSE);
+                case BigInteger bi -> {
+                    out.write(BIG_INTEGER);
+                    bytes(bi.toByteArray());
+                }
+                case BigDecimal bd -> {
+                    out.write(BIG_DECIMAL);
+                    varlong(TreeCodec.zigzag(bd.scale()));
+                    bytes(bd.unscaledValue().toByteArray());
+                }
+                case Instant instant -> {
+                    out.write(INSTANT);
+                    varlong(TreeCodec.zigzag(instant.getEpochSecond()));
+                    varint(instant.getNano());
+                }
+                case UUID uuid -> {
+                    out.write(UUID_BITS);
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                }
+                default -> throw new IllegalStateException(
+                    "Cannot export leaf of " + value.getClass().getName() + ": " + value
+                );
+            }
+        }
+
+        private void tagged(byte tag, long value) throws IOException {
+            out.write(tag);
+            varlong(TreeCodec.zigzag(value));
+        }
+
+        private void string(String string) throws IOException {
+            bytes(string.getBytes(UTF_8));
+        }
+
+        private void bytes(byte[] bytes) throws IOException {
+            varint(bytes.length);
+            out.write(bytes);
+        }
+
+        private void varint(int value) throws IOException {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        private void varlong(long value) throws IOException {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                out.write((int) (remaining & 0x7F | 0x80));
+                remaining >>>= 7;
+            }
+            out.write((int) remaining);
+        }
+    }
+
+    private static final class In<I, K> {
+
+        private final DataInputStream in;
+
+        private final Function<Object, K> keyNormalizer;
+
+        private final List<K> keys = new ArrayList<>();
+
+        private Object[] nodes = new Object[1024];
+
+        private int size;
+
+        private In(InputStream in, Function<Object, K> keyNormalizer) {
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            this.keyNormalizer = keyNormalizer;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Set<Hash> read(Restore<I> restore) throws IOException {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a DAG export, or unsupported version: " + Arrays.toString(magic));
+            }
+            Set<Hash> collisions = new HashSet<>();
+            while (true) {
+                byte tag = in.readByte();
+                switch (tag) {
+                    case END -> {
+                        return collisions;
+                    }
+                    case KEY -> keys.add(keyNormalizer.apply(string()));
+                    case MAP -> add(readMap());
+                    case LIST -> add(readList());
+                    case ENTRY -> {
+                        I identifier = (I) leaf(in.readByte());
+                        Object root = ref(varint());
+                        restore.restore(identifier, root, Hash.of(in.readLong(), in.readLong()));
+                    }
+                    case COLLISION -> collisions.add(Hash.of(in.readLong(), in.readLong()));
+                    default -> add(leaf(tag));
+                }
+            }
+        }
+
+        private Map<K, Object> readMap() throws IOException {
+            int size = varint();
+            Map<K, Object> map = HashMap.newHashMap(size);
+            for (int i = 0; i < size; i++) {
+                K key = keys.get(varint());
+                map.put(key, ref(varint()));
+            }
+            return Collections.unmodifiableMap(map);
+        }
+
+        private List<Object> readList() throws IOException {
+            int size = varint();
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(ref(varint()));
+            }
+            return Collections.unmodifiableList(list);
+        }
+
+        private Object leaf(byte tag) throws IOException {
+            return switch (tag) {
+                case STRING -> string();
+                case INT -> (int) TreeCodec.unzigzag(varlong());
+                case LONG -> TreeCodec.unzigzag(varlong());
+                case SHORT -> (short) TreeCodec.unzigzag(varlong());
+                case BYTE -> (byte) TreeCodec.unzigzag(varlong());
+                case DOUBLE -> in.readDouble();
+                case FLOAT -> in.readFloat();
+                case TRUE -> true;
+                case FALSE -> false;
+                case BIG_INTEGER -> new BigInteger(bytes());
+                case BIG_DECIMAL -> {
+                    int scale = (int) TreeCodec.unzigzag(varlong());
+                    yield new BigDecimal(new BigInteger(bytes()), scale);
+                }
+                case INSTANT -> {
+                    long seconds = TreeCodec.unzigzag(varlong());
+                    yield Instant.ofEpochSecond(seconds, varint());
+                }
+                case UUID_BITS -> new UUID(in.readLong(), in.readLong());
+                default -> throw new IOException("Unknown tag " + tag);
+            };
+        }
+
+        private void add(Object node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+        }
+
+        private Object ref(int ref) throws IOException {
+            if (ref > size) {
+                throw new IOException("Forward reference " + ref + ", " + size + " nodes read");
+            }
+            return ref == 0 ? null : nodes[ref - 1];
+        }
+
+        private String string() throws IOException {
+            return new String(bytes(), UTF_8);
+        }
+
+        private byte[] bytes() throws IOException {
+            int length = varint();
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length < length) {
+                throw new EOFException("Expected " + length + " bytes, got " + bytes.length);
+            }
+            return bytes;
+        }
+
+        private int varint() throws IOException {
+            return (int) varlong();
+        }
+
+        private long varlong() throws IOException {
+            long value = 0L;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
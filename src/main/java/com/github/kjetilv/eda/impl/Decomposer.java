@@ -0,0 +1,228 @@
+package com.github.kjetilv.eda.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Takes value objects – records, or beans with a no-arg constructor and setters – apart into their components,
+ * so they can be hashed and canonicalized structurally, like maps.  Canonical instances are then
+ * {@link Decomposition#rebuild(List) rebuilt} from canonical components.
+ * <p>
+ * Accessors are discovered once per class, and cached as {@link MethodHandle method handles}.  Classes that cannot
+ * be taken apart and rebuilt are treated as regular leaves.  So are classes with array components, since they
+ * cannot be rebuilt equal to the original.
+ * <p>
+ * Thread-safe.
+ */
+final class Decomposer {
+
+    static final Decomposer NONE = new Decomposer(__ -> false);
+
+    private final Predicate<Class<?>> decomposable;
+
+    /**
+     * @param decomposable Which classes to decompose
+     */
+    Decomposer(Predicate<Class<?>> decomposable) {
+        this.decomposable = requireNonNull(decomposable, "decomposable");
+    }
+
+    /**
+     * @param value Value
+     * @return Decomposition of the value's class, or null if it is not to be decomposed
+     */
+    Decomposition decomposition(Object value) {
+        Class<?> type = value.getClass();
+        return decomposable.test(type) ? DECOMPOSITIONS.get(type).orElse(null) : null;
+    }
+
+    /**
+     * How to take apart and rebuild instances of one class.
+     */
+    static final class Decomposition {
+
+        private final Class<?> type;
+
+        private final byte[] typeBytes;
+
+        private final Class<?>[] componentTypes;
+
+        private final MethodHandle[] getters;
+
+        private final MethodHandle constructor;
+
+        private final MethodHandle[] setters;
+
+        private Decomposition(
+            Class<?> type,
+            Class<?>[] componentTypes,
+            MethodHandle[] getters,
+            MethodHandle constructor,
+            MethodHandle[] setters
+        ) {
+            this.type = type;
+            this.typeBytes = type.getName().getBytes();
+            this.componentTypes = componentTypes;
+            this.getters = getters;
+            this.constructor = constructor;
+            this.setters = setters;
+        }
+
+        /**
+         * @return Bytes identifying the type, for hashing
+         */
+        byte[] typeBytes() {
+            return typeBytes;
+        }
+
+        /**
+         * Only components declared as lists may be replaced by canonical lists, which are equal to the originals.
+         * Other collections and maps would not be rebuilt equal to the originals.
+         *
+         * @param index Component index
+         * @return True iff the component is a list
+         */
+        boolean list(int index) {
+            return componentTypes[index] == List.class;
+        }
+
+        /**
+         * @return True iff instances can be rebuilt equal to the originals
+         */
+        private boolean rebuildable() {
+            return Arrays.stream(componentTypes).noneMatch(Class::isArray);
+        }
+
+        Object[] components(Object value) {
+            Object[] components = new Object[getters.length];
+            for (int i = 0; i < getters.length; i++) {
+                try {
+                    components[i] = getters[i].invokeExact(value);
+                } catch (Throwable e) {
+                    throw new IllegalStateException("Failed to read component " + i + " of " + value, e);
+                }
+            }
+            return components;
+        }
+
+        Object rebuild(List<?> components) {
+            try {
+                if (setters == null) {
+                    return constructor.invokeExact(components.toArray());
+                }
+                Object value = constructor.invokeExact();
+                for (int i = 0; i < setters.length; i++) {
+                    setters[i].invokeExact(value, components.get(i));
+                }
+                return value;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to rebuild " + type.getName() + " from " + components, e);
+            }
+        }
+
+        private static Optional<Decomposition> of(Class<?> type) {
+            try {
+                return Optional.ofNullable(
+                    type.isRecord() ? record(type)
+                        : Modifier.isAbstract(type.getModifiers()) ? null
+                            : bean(type)
+                ).filter(Decomposition::rebuildable);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Not accessible, or otherwise not suited
+                return Optional.empty();
+            }
+        }
+
+        private static Decomposition record(Class<?> type) throws ReflectiveOperationException {
+            RecordComponent[] recordComponents = type.getRecordComponents();
+            Class<?>[] componentTypes = new Class<?>[recordComponents.length];
+            MethodHandle[] getters = new MethodHandle[recordComponents.length];
+            for (int i = 0; i < recordComponents.length; i++) {
+                componentTypes[i] = recordComponents[i].getType();
+                getters[i] = getter(recordComponents[i].getAccessor());
+            }
+            Constructor<?> canonicalConstructor = type.getDeclaredConstructor(componentTypes);
+            canonicalConstructor.setAccessible(true);
+            MethodHandle constructor = LOOKUP.unreflectConstructor(canonicalConstructor)
+                .asSpreader(Object[].class, componentTypes.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+            return new Decomposition(type, componentTypes, getters, constructor, null);
+        }
+
+        private static Decomposition bean(Class<?> type) throws ReflectiveOperationException {
+            Map<String, Method> properties = new TreeMap<>();
+            for (Method method : type.getMethods()) {
+                propertyName(method).ifPresent(name -> properties.put(name, method));
+            }
+            List<Class<?>> componentTypes = new ArrayList<>();
+            List<MethodHandle> getters = new ArrayList<>();
+            List<MethodHandle> setters = new ArrayList<>();
+            for (Map.Entry<String, Method> property : properties.entrySet()) {
+                Method getter = property.getValue();
+                Method setter = type.getMethod("set" + property.getKey(), getter.getReturnType());
+                setter.setAccessible(true);
+                componentTypes.add(getter.getReturnType());
+                getters.add(getter(getter));
+                setters.add(LOOKUP.unreflect(setter)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            }
+            if (getters.isEmpty()) {
+                return null;
+            }
+            Constructor<?> noArgConstructor = type.getConstructor();
+            noArgConstructor.setAccessible(true);
+            MethodHandle constructor = LOOKUP.unreflectConstructor(noArgConstructor)
+                .asType(MethodType.methodType(Object.class));
+            return new Decomposition(
+                type,
+                componentTypes.toArray(Class<?>[]::new),
+                getters.toArray(MethodHandle[]::new),
+                constructor,
+                setters.toArray(MethodHandle[]::new)
+            );
+        }
+
+        private static Optional<String> propertyName(Method method) {
+            if (method.getParameterCount() > 0 || Modifier.isStatic(method.getModifiers())) {
+                return Optional.empty();
+            }
+            String name = method.getName();
+            if (name.startsWith("get") && name.length() > 3 && !name.equals("getClass")) {
+                return Optional.of(name.substring(3));
+            }
+            if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+                return Optional.of(name.substring(2));
+            }
+            return Optional.empty();
+        }
+
+        private static MethodHandle getter(Method accessor) throws IllegalAccessException {
+            accessor.setAccessible(true);
+            return LOOKUP.unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class));
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "[" + type.getName() + ": " + getters.length + " components]";
+        }
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<Optional<Decomposition>> DECOMPOSITIONS = new ClassValue<>() {
+
+        @Override
+        protected Optional<Decomposition> computeValue(Class<?> type) {
+            return Decomposition.of(type);
+        }
+    };
+}
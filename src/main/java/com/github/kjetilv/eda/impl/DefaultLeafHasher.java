@@ -10,6 +10,7 @@ import java.time.chrono.ChronoLocalDateTime;
 import java.time.chrono.ChronoZonedDateTime;
 import java.time.chrono.Era;
 import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Supplier;
@@ -85,10 +86,36 @@ final class DefaultLeafHasher implements LeafHasher {
 
     private static HashBuilder<byte[]> hashLeaf(HashBuilder<byte[]> hb, Object leaf, PojoBytes anyHash) {
         return hb
-            .hash(hb.getClass().getName().getBytes())
+            .hash(typeTag(leaf))
             .hash(anyHash.bytes(leaf));
     }
 
+    /**
+     * @param leaf Leaf
+     * @return Bytes identifying the leaf's class, computed once per class
+     */
+    static byte[] typeTag(Object leaf) {
+        return typeTag(leaf.getClass());
+    }
+
+    /**
+     * @param type Class
+     * @return Bytes identifying the class, computed once per class
+     */
+    static byte[] typeTag(Class<?> type) {
+        return TYPE_TAGS.get(type);
+    }
+
+    private static final ClassValue<byte[]> TYPE_TAGS = new ClassValue<>() {
+
+        @Override
+        protected byte[] computeValue(Class<?> type) {
+            // Terminated, so the tag can't run into the bytes that follow
+            byte[] name = type.getName().getBytes();
+            return Arrays.copyOf(name, name.length + 1);
+        }
+    };
+
     private static HashBuilder<byte[]> hashString(HashBuilder<byte[]> hb, String string) {
         return hb.hash(string.getBytes());
     }
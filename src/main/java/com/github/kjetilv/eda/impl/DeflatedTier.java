@@ -0,0 +1,132 @@
+package com.github.kjetilv.eda.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Deflates bytes on their way to another {@link ColdTier cold tier}, and inflates them on their way back.
+ * <p>
+ * {@link EncodedTree Encoded} maps are small, and deflate poorly on their own.  A preset dictionary, sampled from
+ * the maps being stored, gives each of them the context of frequent keys, leaves and shapes.  Records are the
+ * inflated length, followed by the deflated bytes.
+ * <p>
+ * Thread-safe.
+ */
+final class DeflatedTier implements ColdTier {
+
+    private final ColdTier delegate;
+
+    private final byte[] dictionary;
+
+    private final LongAdder rawSize = new LongAdder();
+
+    /**
+     * @param delegate   Tier for the deflated bytes
+     * @param dictionary Preset dictionary, see {@link #dictionary(List)}
+     */
+    DeflatedTier(ColdTier delegate, byte[] dictionary) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.dictionary = requireNonNull(dictionary, "dictionary");
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public long write(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            if (dictionary.length > 0) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] buffer = new byte[Integer.BYTES + bytes.length + 64];
+            int length = Integer.BYTES;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            ByteBuffer.wrap(buffer).putInt(bytes.length);
+            rawSize.add(bytes.length);
+            return delegate.write(Arrays.copyOf(buffer, length));
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] read(long handle) {
+        byte[] record = delegate.read(handle);
+        byte[] bytes = new byte[ByteBuffer.wrap(record).getInt()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(record, Integer.BYTES, record.length - Integer.BYTES);
+            int length = 0;
+            while (length < bytes.length) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && inflater.needsDictionary()) {
+                    inflater.setDictionary(dictionary);
+                } else if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated record at " + handle + ": " + length + "/" + bytes.length);
+                }
+                length += inflated;
+            }
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt record at " + handle, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long rawSize() {
+        return rawSize.sum();
+    }
+
+    /**
+     * Build a preset dictionary from samples, spread evenly over the given maps.
+     *
+     * @param samples Bytes of encoded maps
+     * @return Dictionary of at most {@link #MAX_DICTIONARY} bytes
+     */
+    static byte[] dictionary(List<byte[]> samples) {
+        TreeCodec.Sink sink = new TreeCodec.Sink();
+        int total = samples.stream().mapToInt(sample -> sample.length).sum();
+        int stride = Math.max(1, total / MAX_DICTIONARY);
+        for (int i = 0; i < samples.size() && sink.size() < MAX_DICTIONARY; i += stride) {
+            byte[] sample = samples.get(i);
+            sink.write(sample.length <= MAX_DICTIONARY - sink.size()
+                ? sample
+                : Arrays.copyOf(sample, MAX_DICTIONARY - sink.size()));
+        }
+        return sink.toByteArray();
+    }
+
+    /**
+     * Deflate only looks back this far anyway
+     */
+    static final int MAX_DICTIONARY = 32 * 1024;
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + delegate + ", " + dictionary.length + " bytes of dictionary]";
+    }
+}
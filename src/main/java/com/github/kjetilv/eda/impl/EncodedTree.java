@@ -0,0 +1,30 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * A stored map in {@link TreeCodec encoded} form.  Parts of the tree that are unique to this map are encoded
+ * into the bytes, while substructures shared with other maps are kept in the reference table, as canonical
+ * instances.  Keys are referred to by ordinal, in a key table normally shared by all encoded maps.
+ *
+ * @param bytes       Encoded tree
+ * @param refs        Reference table
+ * @param keys        Key table
+ * @param keyOrdinals Ordinals of keys in the key table, or -1 for unknown keys
+ * @param <K>         Key type
+ */
+record EncodedTree<K>(byte[] bytes, Object[] refs, Object[] keys, ToIntFunction<Object> keyOrdinals) {
+
+    /**
+     * @return A lazy view of the map, which decodes only what is read
+     */
+    Map<K, Object> view() {
+        return new LazyMap<>(bytes, 0, refs, keys, keyOrdinals);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + bytes.length + " bytes, " + refs.length + " refs]";
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Splittable spliterator over identifiers and stored values, held in parallel arrays.  Stored values are
+ * {@link Function resolved} as they are traversed, so that decoding work is spread across the threads
+ * of a parallel stream.
+ *
+ * @param <I> Identifier type
+ * @param <V> Value type
+ */
+final class EntriesSpliterator<I, V> implements Spliterator<Map.Entry<I, V>> {
+
+    private final Object[] identifiers;
+
+    private final Object[] stored;
+
+    private final Function<Object, V> resolver;
+
+    private int index;
+
+    private final int fence;
+
+    EntriesSpliterator(Object[] identifiers, Object[] stored, Function<Object, V> resolver) {
+        this(identifiers, stored, resolver, 0, identifiers.length);
+    }
+
+    private EntriesSpliterator(
+        Object[] identifiers,
+        Object[] stored,
+        Function<Object, V> resolver,
+        int origin,
+        int fence
+    ) {
+        this.identifiers = identifiers;
+        this.stored = stored;
+        this.resolver = resolver;
+        this.index = origin;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map.Entry<I, V>> action) {
+        if (index < fence) {
+            action.accept(entry(index++));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Map.Entry<I, V>> action) {
+        for (int i = index; i < fence; i++) {
+            action.accept(entry(i));
+        }
+        index = fence;
+    }
+
+    @Override
+    public Spliterator<Map.Entry<I, V>> trySplit() {
+        int mid = index + fence >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        EntriesSpliterator<I, V> prefix = new EntriesSpliterator<>(identifiers, stored, resolver, index, mid);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | IMMUTABLE | NONNULL | DISTINCT;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map.Entry<I, V> entry(int i) {
+        return Map.entry((I) identifiers[i], resolver.apply(stored[i]));
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.PojoBytes;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link PojoBytes} that reads the non-transient instance fields of a POJO, and writes their values.  Field getters
+ * are discovered once per class, and cached as {@link MethodHandle method handles}.  Fields are read in a stable
+ * order, by declaring class from the POJO's own class upwards, then by name, so bytes are the same across
+ * processes.
+ * <p>
+ * Strings, numbers and other simple values are written in full.  Other objects are written field-wise in turn,
+ * down to a {@link #MAX_DEPTH maximum depth}.  Objects of classes whose fields are not accessible contribute
+ * their {@link Object#hashCode() hash code}.  Enums, other numbers and objects are preceded by their
+ * {@link DefaultLeafHasher#typeTag(Class) type tag}, so values of different types that write the same name,
+ * digits or hash code differ.  Enum constants are tagged with their declaring class.  Arrays are written by
+ * content.
+ * <p>
+ * Thread-safe.
+ */
+final class FieldPojoBytes implements PojoBytes {
+
+    @Override
+    public byte[] bytes(Object pojo) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(pojo, out, 0);
+        return out.toByteArray();
+    }
+
+    private static void write(Object value, ByteArrayOutputStream out, int depth) {
+        switch (value) {
+            case null -> out.write(0);
+            case String string -> {
+                byte[] bytes = string.getBytes(UTF_8);
+                out.writeBytes(Hashes.bytes(bytes.length));
+                out.writeBytes(bytes);
+            }
+            case Long l -> out.writeBytes(Hashes.bytes(l));
+            case Integer i -> out.writeBytes(Hashes.bytes(i));
+            case Double d -> out.writeBytes(Hashes.bytes(Double.doubleToLongBits(d)));
+            case Float f -> out.writeBytes(Hashes.bytes(Float.floatToIntBits(f)));
+            case Short s -> out.writeBytes(Hashes.bytes(s));
+            case Byte b -> out.write(b);
+            case Character c -> out.writeBytes(Hashes.bytes((int) c));
+            case Boolean b -> out.write(b ? 1 : 2);
+            case Enum<?> e -> {
+                out.writeBytes(DefaultLeafHasher.typeTag(e.getDeclaringClass()));
+                write(e.name(), out, depth);
+            }
+            case Number n -> {
+                out.writeBytes(DefaultLeafHasher.typeTag(n));
+                write(n.toString(), out, depth);
+            }
+            case byte[] bytes -> {
+                out.writeBytes(DefaultLeafHasher.typeTag(bytes));
+                out.writeBytes(Hashes.bytes(bytes.length));
+                out.writeBytes(bytes);
+            }
+            default -> {
+                out.writeBytes(DefaultLeafHasher.typeTag(value));
+                if (value.getClass().isArray()) {
+                    writeArray(value, out, depth);
+                    return;
+                }
+                MethodHandle[] getters = depth < MAX_DEPTH ? GETTERS.get(value.getClass()) : null;
+                if (getters == null) {
+                    out.writeBytes(Hashes.bytes(value.hashCode()));
+                    return;
+                }
+                for (MethodHandle getter : getters) {
+                    try {
+                        write(getter.invokeExact(value), out, depth + 1);
+                    } catch (Throwable e) {
+                        throw new IllegalStateException("Failed to read field of " + value.getClass(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Arrays are written element by element, by content.  Elements of object arrays count as one level deeper.
+     */
+    private static void writeArray(Object array, ByteArrayOutputStream out, int depth) {
+        int length = Array.getLength(array);
+        out.writeBytes(Hashes.bytes(length));
+        if (array instanceof Object[] objects) {
+            for (Object element : objects) {
+                write(element, out, depth + 1);
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            write(Array.get(array, i), out, depth);
+        }
+    }
+
+    private static final int MAX_DEPTH = 8;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<MethodHandle[]> GETTERS = new ClassValue<>() {
+
+        @Override
+        protected MethodHandle[] computeValue(Class<?> type) {
+            if (type.isArray()) {
+                return null;
+            }
+            List<MethodHandle> getters = new ArrayList<>();
+            try {
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                    Field[] fields = c.getDeclaredFields();
+                    Arrays.sort(fields, Comparator.comparing(Field::getName));
+                    for (Field field : fields) {
+                        int modifiers = field.getModifiers();
+                        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                            field.setAccessible(true);
+                            getters.add(LOOKUP.unreflectGetter(field)
+                                .asType(MethodType.methodType(Object.class, Object.class)));
+                        }
+                    }
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Not accessible
+                return null;
+            }
+            return getters.toArray(MethodHandle[]::new);
+        }
+    };
+}
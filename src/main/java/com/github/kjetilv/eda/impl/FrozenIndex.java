@@ -0,0 +1,218 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.*;
+
+/**
+ * A read-only index from identifiers to slots in dense arrays, built once from a known set of identifiers.
+ * <p>
+ * A minimal perfect hash function, in the hash-and-displace style, maps each identifier to its own slot.
+ * Identifiers are grouped in buckets of a few, and each bucket gets a seed that scatters its members into
+ * free slots.  Singleton buckets are simply assigned a free slot directly.  Lookup is then a bucket read,
+ * followed by a slot read, verified against a {@link Object#hashCode() hash code} fingerprint and the
+ * identifier itself.
+ * <p>
+ * Identifiers sharing a hash code cannot be told apart by the hash function.  They get the slots at the
+ * end, and are found through a small side map instead.
+ * <p>
+ * Immutable, and therefore thread-safe.
+ *
+ * @param <I> Identifier type
+ */
+final class FrozenIndex<I> {
+
+    static <I> FrozenIndex<I> build(Collection<I> identifiers) {
+        Map<Integer, List<I>> byHashCode = new HashMap<>(identifiers.size());
+        identifiers.forEach(identifier ->
+            byHashCode.computeIfAbsent(identifier.hashCode(), __ -> new ArrayList<>(1)).add(identifier));
+        List<I> distinct = new ArrayList<>(identifiers.size());
+        List<I> sharing = new ArrayList<>();
+        byHashCode.values()
+            .forEach(sameHashCode -> {
+                if (sameHashCode.size() == 1) {
+                    distinct.add(sameHashCode.getFirst());
+                } else {
+                    sharing.addAll(sameHashCode);
+                }
+            });
+        return new FrozenIndex<>(distinct, sharing);
+    }
+
+    private final int[] displacements;
+
+    private final int[] fingerprints;
+
+    private final Object[] identifiers;
+
+    private final int perfect;
+
+    private final Map<I, Integer> sideSlots;
+
+    private FrozenIndex(List<I> distinct, List<I> sharing) {
+        this.perfect = distinct.size();
+        this.displacements = new int[Math.max(1, perfect / BUCKET_SIZE)];
+        this.fingerprints = new int[perfect];
+        this.identifiers = new Object[perfect + sharing.size()];
+        place(distinct);
+        for (int slot = 0; slot < perfect; slot++) {
+            this.fingerprints[slot] = this.identifiers[slot].hashCode();
+        }
+        Map<I, Integer> sideSlots = new HashMap<>();
+        for (int i = 0; i < sharing.size(); i++) {
+            this.identifiers[perfect + i] = sharing.get(i);
+            sideSlots.put(sharing.get(i), perfect + i);
+        }
+        this.sideSlots = sideSlots.isEmpty() ? Map.of() : sideSlots;
+    }
+
+    /**
+     * @param identifier Identifier
+     * @return Slot of the identifier, or -1 if unknown
+     */
+    int slot(I identifier) {
+        int fingerprint = identifier.hashCode();
+        if (perfect > 0) {
+            int slot = slot(fingerprint);
+            if (fingerprints[slot] == fingerprint && identifiers[slot].equals(identifier)) {
+                return slot;
+            }
+        }
+        if (sideSlots.isEmpty()) {
+            return -1;
+        }
+        Integer slot = sideSlots.get(identifier);
+        return slot == null ? -1 : slot;
+    }
+
+    int size() {
+        return identifiers.length;
+    }
+
+    /**
+     * @return Estimated bytes of this index, not counting the identifiers themselves
+     */
+    long bytes() {
+        return 32L +
+               SizeEstimates.array(displacements.length, Integer.BYTES) +
+               SizeEstimates.array(fingerprints.length, Integer.BYTES) +
+               SizeEstimates.array(identifiers.length, Integer.BYTES) +
+               sideSlots.size() * (SizeEstimates.ENTRY + SizeEstimates.BOXED);
+    }
+
+    /**
+     * @return Identifiers, by slot.  Not to be modified
+     */
+    Object[] identifiers() {
+        return identifiers;
+    }
+
+    private int slot(int fingerprint) {
+        int displacement = displacements[bucket(fingerprint, displacements.length)];
+        return displacement < 0
+            ? -displacement - 1
+            : slot(fingerprint, displacement, perfect);
+    }
+
+    /**
+     * Places buckets in order of decreasing size, while the table is still roomy.  Each bucket with more than one
+     * member searches for a seed that scatters its members into free, distinct slots.
+     *
+     * @param identifiers Identifiers, with distinct hash codes
+     */
+    private void place(List<I> identifiers) {
+        int size = identifiers.size();
+        List<List<I>> buckets = new ArrayList<>(displacements.length);
+        for (int i = 0; i < displacements.length; i++) {
+            buckets.add(new ArrayList<>(BUCKET_SIZE));
+        }
+        identifiers.forEach(identifier ->
+            buckets.get(bucket(identifier.hashCode(), displacements.length)).add(identifier));
+        Integer[] order = new Integer[displacements.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing((Integer bucket) -> buckets.get(bucket).size()).reversed());
+
+        BitSet taken = new BitSet(size);
+        int[] candidates = new int[buckets.stream().mapToInt(List::size).max().orElse(0)];
+        int nextFree = 0;
+        for (int bucket : order) {
+            List<I> members = buckets.get(bucket);
+            switch (members.size()) {
+                case 0 -> {
+                }
+                case 1 -> {
+                    nextFree = taken.nextClearBit(nextFree);
+                    taken.set(nextFree);
+                    this.identifiers[nextFree] = members.getFirst();
+                    displacements[bucket] = -nextFree - 1;
+                }
+                default -> {
+                    int seed = seed(members, taken, candidates, size);
+                    for (int i = 0; i < members.size(); i++) {
+                        taken.set(candidates[i]);
+                        this.identifiers[candidates[i]] = members.get(i);
+                    }
+                    displacements[bucket] = seed;
+                }
+            }
+        }
+    }
+
+    private int seed(List<I> members, BitSet taken, int[] candidates, int size) {
+        for (int seed = 0; seed < MAX_SEED; seed++) {
+            if (fits(members, seed, taken, candidates, size)) {
+                return seed;
+            }
+        }
+        throw new IllegalStateException("Failed to place bucket of " + members.size() + " in " + size + " slots");
+    }
+
+    private static <I> boolean fits(List<I> members, int seed, BitSet taken, int[] candidates, int size) {
+        for (int i = 0; i < members.size(); i++) {
+            int slot = slot(members.get(i).hashCode(), seed, size);
+            if (taken.get(slot)) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (candidates[j] == slot) {
+                    return false;
+                }
+            }
+            candidates[i] = slot;
+        }
+        return true;
+    }
+
+    private static int bucket(int hashCode, int buckets) {
+        return (int) Long.remainderUnsigned(mix(hashCode), buckets);
+    }
+
+    private static int slot(int hashCode, int seed, int size) {
+        return (int) Long.remainderUnsigned(mix(hashCode ^ (seed + 1) * SEED_MULTIPLIER), size);
+    }
+
+    /**
+     * The murmur3 64-bit finalizer
+     *
+     * @param value Value
+     * @return Mixed value
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final int BUCKET_SIZE = 3;
+
+    private static final int MAX_SEED = 1 << 24;
+
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + size() + " in " + displacements.length + " buckets]";
+    }
+}
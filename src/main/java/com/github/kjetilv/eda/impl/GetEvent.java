@@ -0,0 +1,25 @@
+package com.github.kjetilv.eda.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A flight recorder event for one lookup.  Only lookups over the threshold are recorded, by default.
+ */
+@Name("com.github.kjetilv.eda.Get")
+@Label("Memoizer Get")
+@Category("Edamame")
+@StackTrace(false)
+@Threshold("100 us")
+final class GetEvent extends Event {
+
+    @Label("Identifier")
+    String identifier;
+
+    @Label("Found")
+    boolean found;
+}
@@ -81,6 +81,27 @@ sealed interface HashedTree<T> {
         }
     }
 
+    /**
+     * A value object, taken apart by a {@link Decomposer.Decomposition decomposition}
+     *
+     * @param hash          Hash
+     * @param value         Value object
+     * @param decomposition Decomposition
+     * @param components    Components
+     */
+    record Composite(
+        Hash hash,
+        Object value,
+        Decomposer.Decomposition decomposition,
+        List<? extends HashedTree<?>> components
+    ) implements HashedTree<Object> {
+
+        @Override
+        public Object unwrap() {
+            return value;
+        }
+    }
+
     /**
      * Null value, which may occur in a list. Has the {@link Hash#NULL null} hash.
      */
@@ -45,6 +45,18 @@ final class Hashes {
         return bytes;
     }
 
+    /**
+     * Murmur3 finalizer, spreading every input bit over the output
+     *
+     * @param l Input
+     * @return Mixed
+     */
+    static long mix(long l) {
+        long h = (l ^ l >>> 33) * 0xff51afd7ed558ccdL;
+        h = (h ^ h >>> 33) * 0xc4ceb53a27ebfc63L;
+        return h ^ h >>> 33;
+    }
+
     private Hashes() {
     }
 
@@ -0,0 +1,38 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A cold tier on the heap, for bytes that are smaller than the maps they came from, see {@link DeflatedTier}.
+ * <p>
+ * Thread-safe.
+ */
+final class HeapTier implements ColdTier {
+
+    private final List<byte[]> records = new ArrayList<>();
+
+    private long size;
+
+    @Override
+    public synchronized long write(byte[] bytes) {
+        records.add(bytes);
+        size += bytes.length;
+        return records.size() - 1;
+    }
+
+    @Override
+    public synchronized byte[] read(long handle) {
+        return records.get((int) handle);
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + size() + " bytes]";
+    }
+}
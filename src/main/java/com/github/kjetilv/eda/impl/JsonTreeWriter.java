@@ -0,0 +1,283 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes stored maps as JSON, caching the JSON of canonical maps and lists by identity.  Only roots stored as
+ * they are are canonical.  {@link EncodedTree Encoded} and {@link TieredTree tiered} roots, and lazy views within
+ * them, are fresh instances on every lookup, and are written without caching, while the shared substructures
+ * they refer to are cached as usual.
+ * <p>
+ * Fragments shorter than {@link #MIN_CACHED} bytes are cheaper to write again than to look up, and are not
+ * cached.  When the cache is full, fragments are evicted in the order they were cached, except that fragments
+ * read since the last pass get a second chance.  The cache may briefly go over its bound while writers race.
+ *
+ * @param <I> Id type
+ */
+final class JsonTreeWriter<I> implements JsonWriter<I> {
+
+    private final Function<I, ?> stored;
+
+    private final Function<Object, ? extends Map<?, ?>> resolver;
+
+    private final long maxCachedBytes;
+
+    private final Map<Identity, Fragment> fragments = new ConcurrentHashMap<>();
+
+    private final Queue<Identity> cacheOrder = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong cachedBytes = new AtomicLong();
+
+    /**
+     * @param stored         Stored objects, by identifier
+     * @param resolver       Resolves stored objects to maps
+     * @param maxCachedBytes Maximum number of bytes to cache
+     */
+    JsonTreeWriter(Function<I, ?> stored, Function<Object, ? extends Map<?, ?>> resolver, long maxCachedBytes) {
+        this.stored = requireNonNull(stored, "stored");
+        this.resolver = requireNonNull(resolver, "resolver");
+        if (maxCachedBytes < 0) {
+            throw new IllegalArgumentException("Negative cache size: " + maxCachedBytes);
+        }
+        this.maxCachedBytes = maxCachedBytes;
+    }
+
+    @Override
+    public byte[] toJson(I identifier) {
+        TreeCodec.Sink sink = json(identifier);
+        return sink == null ? null : sink.toByteArray();
+    }
+
+    @Override
+    public boolean write(I identifier, OutputStream out) throws IOException {
+        TreeCodec.Sink sink = json(identifier);
+        if (sink == null) {
+            return false;
+        }
+        sink.writeTo(out);
+        return true;
+    }
+
+    @Override
+    public long cachedBytes() {
+        return cachedBytes.get();
+    }
+
+    private TreeCodec.Sink json(I identifier) {
+        Object stored = this.stored.apply(requireNonNull(identifier, "identifier"));
+        Map<?, ?> map = resolver.apply(stored);
+        if (map == null) {
+            return null;
+        }
+        TreeCodec.Sink sink = new TreeCodec.Sink();
+        writeCached(map, sink, map == stored);
+        return sink;
+    }
+
+    private void write(Object value, TreeCodec.Sink sink) {
+        switch (value) {
+            case null -> sink.write(NULL);
+            case Map<?, ?> map -> writeCached(map, sink, !(map instanceof LazyMap<?>));
+            case List<?> list -> writeCached(list, sink, !(list instanceof LazyList));
+            case String string -> writeString(string, sink);
+            case Double d when d.isNaN() || d.isInfinite() -> sink.write(NULL);
+            case Float f when f.isNaN() || f.isInfinite() -> sink.write(NULL);
+            case Number number -> sink.write(number.toString().getBytes(UTF_8));
+            case Boolean b -> sink.write(b ? TRUE : FALSE);
+            default -> writeString(value.toString(), sink);
+        }
+    }
+
+    /**
+     * @param canonical True iff the container is a canonical instance, which may be cached
+     */
+    private void writeCached(Object container, TreeCodec.Sink sink, boolean canonical) {
+        boolean cacheable = canonical && maxCachedBytes > 0;
+        if (cacheable) {
+            byte[] fragment = fragment(container);
+            if (fragment != null) {
+                sink.write(fragment);
+                return;
+            }
+        }
+        int start = sink.size();
+        switch (container) {
+            case Map<?, ?> map -> writeMap(map, sink);
+            case List<?> list -> writeList(list, sink);
+            default -> throw new IllegalStateException("Not a container: " + container);
+        }
+        if (cacheable && sink.size() - start >= MIN_CACHED) {
+            cache(container, sink.toByteArray(start));
+        }
+    }
+
+    private void writeMap(Map<?, ?> map, TreeCodec.Sink sink) {
+        sink.write((byte) '{');
+        Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<?, ?> entry = entries.next();
+            writeString(String.valueOf(entry.getKey()), sink);
+            sink.write((byte) ':');
+            write(entry.getValue(), sink);
+            if (entries.hasNext()) {
+                sink.write((byte) ',');
+            }
+        }
+        sink.write((byte) '}');
+    }
+
+    private void writeList(List<?> list, TreeCodec.Sink sink) {
+        sink.write((byte) '[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) {
+                sink.write((byte) ',');
+            }
+            write(list.get(i), sink);
+        }
+        sink.write((byte) ']');
+    }
+
+    private byte[] fragment(Object container) {
+        Fragment fragment = fragments.get(new Identity(container));
+        if (fragment == null) {
+            return null;
+        }
+        fragment.referenced = true;
+        return fragment.bytes;
+    }
+
+    private void cache(Object container, byte[] bytes) {
+        if (bytes.length > maxCachedBytes) {
+            return;
+        }
+        Identity identity = new Identity(container);
+        if (fragments.putIfAbsent(identity, new Fragment(bytes)) != null) {
+            return;
+        }
+        cacheOrder.add(identity);
+        if (cachedBytes.addAndGet(bytes.length) > maxCachedBytes) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        Identity identity;
+        while (cachedBytes.get() > maxCachedBytes && (identity = cacheOrder.poll()) != null) {
+            Fragment fragment = fragments.get(identity);
+            if (fragment.referenced) {
+                fragment.referenced = false;
+                cacheOrder.add(identity);
+            } else {
+                fragments.remove(identity);
+                cachedBytes.addAndGet(-fragment.bytes.length);
+            }
+        }
+    }
+
+    private static void writeString(String string, TreeCodec.Sink sink) {
+        sink.write((byte) '"');
+        sink.write(escaped(string).getBytes(UTF_8));
+        sink.write((byte) '"');
+    }
+
+    private static String escaped(String string) {
+        int first = firstEscaped(string);
+        if (first < 0) {
+            return string;
+        }
+        StringBuilder sb = new StringBuilder(string.length() + 8).append(string, 0, first);
+        for (int i = first; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int firstEscaped(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static final int MIN_CACHED = 32;
+
+    private static final byte[] NULL = "null".getBytes(UTF_8);
+
+    private static final byte[] TRUE = "true".getBytes(UTF_8);
+
+    private static final byte[] FALSE = "false".getBytes(UTF_8);
+
+    /**
+     * Canonical instances are keyed by identity, since equality of maps and lists is costly, and not what we
+     * want to know
+     *
+     * @param value Canonical instance
+     */
+    private record Identity(Object value) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity identity && identity.value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+
+    /**
+     * A cached fragment
+     */
+    private static final class Fragment {
+
+        private final byte[] bytes;
+
+        /**
+         * True iff the fragment was read since it was last passed by {@link #evict() eviction}
+         */
+        private volatile boolean referenced;
+
+        private Fragment(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + cachedBytes() + "/" + maxCachedBytes + " bytes cached]";
+    }
+}
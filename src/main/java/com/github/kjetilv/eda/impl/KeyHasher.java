@@ -0,0 +1,18 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyHandler;
+
+/**
+ * A {@link KeyHandler} which also gives a 128-bit hash per key.  Maps are hashed by mixing key hashes with value
+ * hashes, see {@link RecursiveTreeHasher}, so key hashes should be cheap, e.g. precomputed.
+ *
+ * @param <K> Key type
+ */
+interface KeyHasher<K> extends KeyHandler<K> {
+
+    /**
+     * @param key Canonical key
+     * @return Hash of the key's {@link #bytes(Object) bytes}
+     */
+    Hash hash(K key);
+}
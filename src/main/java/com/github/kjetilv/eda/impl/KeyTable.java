@@ -0,0 +1,257 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyHandler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Canonical keys.  Each key gets a dense int ordinal when first seen, along with a precomputed 128-bit
+ * {@link #hash(Object) hash} of its {@link KeyHandler#bytes(Object) bytes}.  Maps are then hashed by mixing the
+ * precomputed key hashes with value hashes, instead of digesting key bytes on every put.  Ordinals make for compact
+ * references to keys, see {@link TreeCodec}.
+ * <p>
+ * Lookups, e.g. of {@link CompiledPath key paths}, go through the {@link #lookups() lookup view}, which leaves
+ * the table as it is, so that keys from lookups do not pile up.
+ * <p>
+ * On completion, the table is {@link #trim() trimmed} down to the keys, their ordinals and their hashes.
+ * <p>
+ * Thread-safe.
+ *
+ * @param <K> Key type
+ */
+final class KeyTable<K> implements KeyHasher<K> {
+
+    private volatile Map<Object, K> canonicalKeys = new ConcurrentHashMap<>();
+
+    private volatile Map<K, KeyEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Ordinals by key, once {@link #trim() trimmed}
+     */
+    private volatile Map<Object, Integer> ordinals;
+
+    /**
+     * Key hashes by ordinal, two longs per key, once {@link #trim() trimmed}
+     */
+    private long[] hashes;
+
+    private final AtomicInteger nextOrdinal = new AtomicInteger();
+
+    private final KeyHandler<K> keyHandler;
+
+    private final Supplier<HashBuilder<byte[]>> newBuilder;
+
+    private Object[] keys = new Object[16];
+
+    private long keyBytes;
+
+    private final KeyHasher<K> lookups = new KeyHasher<>() {
+
+        @Override
+        public K normalize(Object key) {
+            K known = canonicalKeys.get(key);
+            return known != null ? known : keyHandler.normalize(key);
+        }
+
+        @Override
+        public Hash hash(K key) {
+            Hash known = knownHash(key);
+            return known != null ? known : digest(key);
+        }
+
+        @Override
+        public byte[] bytes(K key) {
+            return hash(key).bytes();
+        }
+    };
+
+    /**
+     * @param newBuilder Hash builder, not null
+     * @param keyHandler Key handler, not null
+     */
+    KeyTable(Supplier<HashBuilder<byte[]>> newBuilder, KeyHandler<K> keyHandler) {
+        this.newBuilder = requireNonNull(newBuilder, "newBuilder");
+        this.keyHandler = requireNonNull(keyHandler, "keyHandler");
+    }
+
+    @Override
+    public K normalize(Object key) {
+        return ordinals != null
+            ? keyHandler.normalize(key)
+            : canonicalKeys.computeIfAbsent(key, keyHandler::normalize);
+    }
+
+    /**
+     * @return A key handler that normalizes and hashes keys like this table, without adding unknown keys
+     */
+    KeyHasher<K> lookups() {
+        return lookups;
+    }
+
+    /**
+     * @param key Canonical key
+     * @return The key's hash, computed once
+     * @throws IllegalStateException If the key is new, and the table is trimmed
+     */
+    @Override
+    public Hash hash(K key) {
+        if (ordinals == null) {
+            return entry(key).hash();
+        }
+        Hash known = knownHash(key);
+        if (known == null) {
+            throw new IllegalStateException(this + " is trimmed, cannot add key " + key);
+        }
+        return known;
+    }
+
+    /**
+     * @param key Canonical key
+     * @return The bytes of the key's {@link #hash(Object) hash}
+     */
+    @Override
+    public byte[] bytes(K key) {
+        return hash(key).bytes();
+    }
+
+    /**
+     * @param key Canonical key
+     * @return Ordinal of the key
+     * @throws IllegalStateException If the key is new, and the table is trimmed
+     */
+    int ordinal(K key) {
+        if (ordinals == null) {
+            return entry(key).ordinal();
+        }
+        int ordinal = ordinalOf(key);
+        if (ordinal < 0) {
+            throw new IllegalStateException(this + " is trimmed, cannot add key " + key);
+        }
+        return ordinal;
+    }
+
+    /**
+     * @param key Canonical key
+     * @return Ordinal of the key, or -1 if it has not been seen
+     */
+    int ordinalOf(Object key) {
+        Map<Object, Integer> ordinals = this.ordinals;
+        if (ordinals != null) {
+            return ordinals.getOrDefault(key, -1);
+        }
+        KeyEntry entry = entries.get(key);
+        return entry == null ? -1 : entry.ordinal();
+    }
+
+    /**
+     * Drop canonical keys and key entries, keeping only the keys, their ordinals and their hashes.  No keys can be
+     * added after this.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void trim() {
+        if (ordinals != null) {
+            return;
+        }
+        int size = nextOrdinal.get();
+        Map<Object, Integer> ordinals = HashMap.newHashMap(size);
+        long[] hashes = new long[2 * size];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            ordinals.put(keys[ordinal], ordinal);
+            Hash hash = entries.get((K) keys[ordinal]).hash();
+            hashes[2 * ordinal] = hash.l0();
+            hashes[2 * ordinal + 1] = hash.l1();
+        }
+        this.keys = Arrays.copyOf(keys, size);
+        this.hashes = hashes;
+        this.ordinals = ordinals;
+        this.canonicalKeys = Map.of();
+        this.entries = Map.of();
+    }
+
+    /**
+     * @return All keys seen so far, by ordinal
+     */
+    synchronized Object[] keys() {
+        return Arrays.copyOf(keys, nextOrdinal.get());
+    }
+
+    int size() {
+        return nextOrdinal.get();
+    }
+
+    /**
+     * @return Estimated bytes of the keys seen so far, with their ordinals, as kept after {@link #trim() trimming}
+     */
+    synchronized long bytes() {
+        return keyBytes + nextOrdinal.get() * TRIMMED_ENTRY;
+    }
+
+    /**
+     * @return Estimated bytes of canonical keys and precomputed hashes, which are dropped by {@link #trim()}
+     */
+    long workingBytes() {
+        return canonicalKeys.size() * SizeEstimates.ENTRY + entries.size() * KEY_ENTRY;
+    }
+
+    private KeyEntry entry(K key) {
+        KeyEntry entry = entries.get(key);
+        return entry != null ? entry : entries.computeIfAbsent(key, this::newEntry);
+    }
+
+    private KeyEntry newEntry(K key) {
+        return new KeyEntry(register(key), digest(key));
+    }
+
+    /**
+     * @return The hash of a known key, or null
+     */
+    private Hash knownHash(K key) {
+        Map<Object, Integer> ordinals = this.ordinals;
+        if (ordinals == null) {
+            KeyEntry entry = entries.get(key);
+            return entry == null ? null : entry.hash();
+        }
+        Integer ordinal = ordinals.get(key);
+        return ordinal == null ? null : Hash.of(hashes[2 * ordinal], hashes[2 * ordinal + 1]);
+    }
+
+    private Hash digest(K key) {
+        return newBuilder.get().hash(keyHandler.bytes(key)).get();
+    }
+
+    private synchronized int register(K key) {
+        int ordinal = nextOrdinal.get();
+        if (ordinal == keys.length) {
+            keys = Arrays.copyOf(keys, ordinal * 2);
+        }
+        keys[ordinal] = key;
+        nextOrdinal.set(ordinal + 1);
+        keyBytes += SizeEstimates.leaf(key);
+        return ordinal;
+    }
+
+    private record KeyEntry(int ordinal, Hash hash) {
+    }
+
+    /**
+     * Estimated bytes per entry: An entry in the map, and a {@link KeyEntry} with its hash
+     */
+    private static final long KEY_ENTRY = SizeEstimates.ENTRY + 16L + SizeEstimates.HASH;
+
+    /**
+     * Estimated bytes per key after trimming: A slot in the keys, an entry with a boxed ordinal, and the hash
+     */
+    private static final long TRIMMED_ENTRY = 4L + SizeEstimates.ENTRY + SizeEstimates.BOXED + 2 * Long.BYTES;
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + size() + " keys]";
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.kjetilv.eda.impl;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds.  Buckets are powers of two, each split in eight linear
+ * sub-buckets, so recorded values are accurate to within 1/8th.
+ * <p>
+ * Thread-safe.
+ */
+final class LatencyHistogram {
+
+    private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS);
+
+    void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(0L, nanos)));
+    }
+
+    /**
+     * @param other Histogram to add to this one
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count > 0L) {
+                counts.addAndGet(i, count);
+            }
+        }
+    }
+
+    /**
+     * @return Number of recorded values
+     */
+    long count() {
+        long total = 0L;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @param quantile Quantile, e.g. 0.99
+     * @return Upper bound of the bucket holding the quantile, or {@link Duration#ZERO} if nothing was recorded
+     */
+    Duration percentile(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0L;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0L) {
+            return Duration.ZERO;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0L;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Duration.ofNanos(upperBound(i));
+            }
+        }
+        return Duration.ofNanos(upperBound(snapshot.length - 1));
+    }
+
+    static int index(long value) {
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        if (exponent < SUB_BITS) {
+            return (int) value;
+        }
+        int subBucket = (int) (value >>> exponent - SUB_BITS) & SUB_BUCKETS - 1;
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int index) {
+        int row = index / SUB_BUCKETS;
+        if (row == 0) {
+            return index;
+        }
+        int shift = row - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+}
@@ -0,0 +1,54 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable list view of an {@link TreeCodec encoded} list, see {@link LazyMap}.
+ */
+final class LazyList extends AbstractList<Object> implements RandomAccess {
+
+    private final byte[] bytes;
+
+    private final Object[] refs;
+
+    private final Object[] keys;
+
+    private final ToIntFunction<Object> keyOrdinals;
+
+    private final int[] offsets;
+
+    private final Object[] values;
+
+    LazyList(byte[] bytes, int offset, Object[] refs, Object[] keys, ToIntFunction<Object> keyOrdinals) {
+        this.bytes = bytes;
+        this.refs = refs;
+        this.keys = keys;
+        this.keyOrdinals = keyOrdinals;
+        int position = TreeCodec.body(bytes, offset);
+        int size = TreeCodec.readVarint(bytes, position);
+        position = TreeCodec.skipVarint(bytes, position);
+        this.offsets = new int[size];
+        this.values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            offsets[i] = position;
+            position = TreeCodec.skip(bytes, position);
+        }
+    }
+
+    @Override
+    public Object get(int index) {
+        Object value = values[index];
+        if (value == null && bytes[offsets[index]] != TreeCodec.NULL) {
+            value = TreeCodec.decode(bytes, offsets[index], refs, keys, keyOrdinals);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable map view of an {@link TreeCodec encoded} map.  Only the keys are read up front.  Values are
+ * decoded when they are accessed, and then cached in the view.  Nested maps and lists are themselves lazy
+ * views, while shared substructures are canonical instances from the reference table.
+ * <p>
+ * Entries are encoded in key ordinal order, so keys are looked up by their ordinal, with a binary search.
+ *
+ * @param <K> Key type
+ */
+final class LazyMap<K> extends AbstractMap<K, Object> {
+
+    private final byte[] bytes;
+
+    private final Object[] refs;
+
+    private final Object[] keys;
+
+    private final ToIntFunction<Object> ordinals;
+
+    private final int[] keyOrdinals;
+
+    private final int[] offsets;
+
+    private final Object[] values;
+
+    private Set<Entry<K, Object>> entrySet;
+
+    LazyMap(byte[] bytes, int offset, Object[] refs, Object[] keys, ToIntFunction<Object> ordinals) {
+        this.bytes = bytes;
+        this.refs = refs;
+        this.keys = keys;
+        this.ordinals = ordinals;
+        int position = TreeCodec.body(bytes, offset);
+        int size = TreeCodec.readVarint(bytes, position);
+        position = TreeCodec.skipVarint(bytes, position);
+        this.keyOrdinals = new int[size];
+        this.offsets = new int[size];
+        this.values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            keyOrdinals[i] = TreeCodec.readVarint(bytes, position);
+            offsets[i] = TreeCodec.skipVarint(bytes, position);
+            position = TreeCodec.skip(bytes, offsets[i]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return keyOrdinals.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return index(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = index(key);
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public Set<Entry<K, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+
+                @Override
+                public Iterator<Entry<K, Object>> iterator() {
+                    return new Iterator<>() {
+
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < keyOrdinals.length;
+                        }
+
+                        @Override
+                        public Entry<K, Object> next() {
+                            if (index >= keyOrdinals.length) {
+                                throw new NoSuchElementException();
+                            }
+                            try {
+                                return new SimpleImmutableEntry<>(key(index), value(index));
+                            } finally {
+                                index++;
+                            }
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keyOrdinals.length;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int index) {
+        return (K) keys[keyOrdinals[index]];
+    }
+
+    private Object value(int index) {
+        Object value = values[index];
+        if (value == null) {
+            value = TreeCodec.decode(bytes, offsets[index], refs, keys, ordinals);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private int index(Object key) {
+        int ordinal = key == null ? -1 : ordinals.applyAsInt(key);
+        if (ordinal < 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(keyOrdinals, ordinal);
+        return index < 0 ? -1 : index;
+    }
+}
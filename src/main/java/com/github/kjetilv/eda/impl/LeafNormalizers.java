@@ -0,0 +1,79 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.LeafNormalizer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+
+/**
+ * Built-in {@link LeafNormalizer leaf normalizers}.
+ */
+public final class LeafNormalizers {
+
+    public static final LeafNormalizer NONE = leaf -> leaf;
+
+    public static final LeafNormalizer NARROWEST_INTEGRAL = LeafNormalizers::narrowestIntegral;
+
+    public static final LeafNormalizer CANONICAL_DECIMALS = leaf ->
+        leaf instanceof BigDecimal bigDecimal ? canonical(bigDecimal) : leaf;
+
+    public static final LeafNormalizer INSTANTS = leaf -> switch (leaf) {
+        case OffsetDateTime offsetDateTime -> offsetDateTime.toInstant();
+        case ZonedDateTime zonedDateTime -> zonedDateTime.toInstant();
+        default -> leaf;
+    };
+
+    private LeafNormalizers() {
+    }
+
+    private static Object narrowestIntegral(Object leaf) {
+        return switch (leaf) {
+            case Integer i -> i;
+            case Long l -> narrowest(l);
+            case Short s -> (int) s;
+            case Byte b -> (int) b;
+            case BigInteger bigInteger -> narrowest(bigInteger);
+            case BigDecimal bigDecimal -> integral(bigDecimal) ? narrowest(bigDecimal.toBigIntegerExact()) : leaf;
+            case Double d -> integral(d) ? narrowest(d.longValue()) : leaf;
+            case Float f -> integral(f) ? narrowest(f.longValue()) : leaf;
+            default -> leaf;
+        };
+    }
+
+    private static Object narrowest(long l) {
+        return l == (int) l ? (Object) (int) l : (Object) l;
+    }
+
+    private static Object narrowest(BigInteger bigInteger) {
+        return bigInteger.bitLength() < Long.SIZE ? narrowest(bigInteger.longValue()) : bigInteger;
+    }
+
+    /**
+     * @return True iff the value is integral, and has no more integer digits than a long.  Larger values are
+     * left alone, as their exponents may be too large to expand
+     */
+    private static boolean integral(BigDecimal bigDecimal) {
+        if (bigDecimal.signum() == 0) {
+            return true;
+        }
+        BigDecimal stripped = bigDecimal.stripTrailingZeros();
+        return stripped.scale() <= 0 && (long) stripped.precision() - stripped.scale() <= LONG_DIGITS;
+    }
+
+    /**
+     * @return True iff the value is integral, and within long range
+     */
+    private static boolean integral(double d) {
+        return d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < LONG_RANGE;
+    }
+
+    private static BigDecimal canonical(BigDecimal bigDecimal) {
+        return bigDecimal.signum() == 0 ? BigDecimal.ZERO : bigDecimal.stripTrailingZeros();
+    }
+
+    private static final double LONG_RANGE = 0x1p63;
+
+    private static final int LONG_DIGITS = 19;
+}
@@ -0,0 +1,164 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyHandler;
+import com.github.kjetilv.eda.LeafNormalizer;
+import com.github.kjetilv.eda.LongMapsMemoizer;
+import com.github.kjetilv.eda.LongMemoizedMaps;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.Verification;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import static com.github.kjetilv.eda.impl.HashedTree.Node;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@code long}-keyed sibling of {@link MapsMemoizerImpl}.  Maps are canonicalized the same way, but
+ * stored maps are kept in a {@link LongRootTable primitive table}, straight under their identifiers.
+ * <p>
+ * Use {@link MapsMemoizers#createLongKeyed()} and siblings to create instances of this class.
+ *
+ * @param <K> Key type for the maps. All maps (and their submaps) will be stored with keys of this type
+ */
+class LongMapsMemoizerImpl<K> implements LongMapsMemoizer<K>, LongMemoizedMaps<K> {
+
+    private final LongRootTable<Map<K, Object>> roots = new LongRootTable<>();
+
+    private final AtomicBoolean complete = new AtomicBoolean();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Number of hash collisions, retained on completion
+     */
+    private int collisions;
+
+    private MapCanonicalizer<K> canonicalizer;
+
+    /**
+     * @param newBuilder Hash builder, not null
+     * @param keyHandler Key handler, not null
+     * @param leafHasher Hasher, not null
+     * @see MapsMemoizers#createLongKeyed(KeyHandler)
+     */
+    LongMapsMemoizerImpl(
+        Supplier<HashBuilder<byte[]>> newBuilder,
+        KeyHandler<K> keyHandler,
+        LeafHasher leafHasher
+    ) {
+        this.canonicalizer = new MapCanonicalizer<>(
+            requireNonNull(newBuilder, "newBuilder"),
+            new KeyTable<>(newBuilder, requireNonNull(keyHandler, "key handler")),
+            requireNonNull(leafHasher, "leafHasher"),
+            LeafNormalizer.none(),
+            Decomposer.NONE,
+            Verification.ALWAYS,
+            Seed.NONE,
+            new SizeEstimates()
+        );
+    }
+
+    @Override
+    public void put(long identifier, Map<?, ?> value) {
+        put(identifier, requireNonNull(value, "value"), true);
+    }
+
+    @Override
+    public boolean putIfAbsent(long identifier, Map<?, ?> value) {
+        return put(identifier, requireNonNull(value, "value"), false);
+    }
+
+    @Override
+    public int size() {
+        return withReadLock(roots::size);
+    }
+
+    @Override
+    public Map<K, ?> get(long identifier) {
+        return withReadLock(() -> roots.get(identifier));
+    }
+
+    @Override
+    public LongMemoizedMaps<K> complete() {
+        if (complete.compareAndSet(false, true)) {
+            withWriteLock(() -> {
+                // Shed working data
+                this.collisions = canonicalizer.collisions().size();
+                this.canonicalizer = null;
+                roots.trim();
+                return this;
+            });
+        }
+        return this;
+    }
+
+    private boolean put(long identifier, Map<?, ?> value, boolean failOnConflict) {
+        if (complete.get()) {
+            throw new IllegalStateException(this + " is complete, cannot put " + identifier);
+        }
+        return switch (canonicalizer.hashedTree(value)) {
+            case Node<?> hashedNode -> {
+                Map<K, Object> root = switch (canonicalizer.canonical(hashedNode)) {
+                    case CanonicalValue.Node<?> valueNode -> unwrap(valueNode);
+                    case CanonicalValue other -> throw new IllegalStateException(
+                        "Unexpected canonical value for node " + hashedNode + ": " + other
+                    );
+                };
+                yield withWriteLock(() -> {
+                    if (roots.putIfAbsent(identifier, root)) {
+                        return true;
+                    }
+                    if (failOnConflict) {
+                        throw new IllegalArgumentException(
+                            "Identifier " + identifier + " was:" + roots.get(identifier)
+                        );
+                    }
+                    return false;
+                });
+            }
+            case HashedTree<?> other -> throw new IllegalArgumentException("Unexpected hashed tree " + other);
+        };
+    }
+
+    private String doDescribe() {
+        int count = roots.size();
+        MapCanonicalizer<K> canonicalizer = this.canonicalizer;
+        int collisions = canonicalizer == null ? this.collisions : canonicalizer.collisions().size();
+        return count +
+               " items" +
+               (collisions == 0 ? ", " : " (" + collisions + " collisions), ") +
+               (complete.get() ? "completed" : "working");
+    }
+
+    private <T> T withReadLock(Supplier<T> action) {
+        return withLock(lock.readLock(), action);
+    }
+
+    private <T> T withWriteLock(Supplier<T> action) {
+        return withLock(lock.writeLock(), action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> Map<K, Object> unwrap(CanonicalValue.Node<?> valueNode) {
+        return ((CanonicalValue.Node<K>) valueNode).value();
+    }
+
+    private static <T> T withLock(Lock lock, Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + withReadLock(this::doDescribe) + "]";
+    }
+}
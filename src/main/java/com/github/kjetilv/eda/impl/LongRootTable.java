@@ -0,0 +1,112 @@
+package com.github.kjetilv.eda.impl;
+
+/**
+ * An open-addressing table from primitive {@code long} identifiers to non-null values, using linear probing.
+ * Empty slots are recognized by null values, so no identifier is reserved.
+ * <p>
+ * Not thread-safe.
+ *
+ * @param <V> Value type
+ */
+final class LongRootTable<V> {
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    LongRootTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private LongRootTable(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = values.length - 1;
+        for (int slot = slot(key, mask); ; slot = slot + 1 & mask) {
+            Object value = values[slot];
+            if (value == null || keys[slot] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    /**
+     * @param key   Key
+     * @param value Value, not null
+     * @return True iff the key was not present, and the value was added
+     */
+    boolean putIfAbsent(long key, V value) {
+        int mask = values.length - 1;
+        for (int slot = slot(key, mask); ; slot = slot + 1 & mask) {
+            if (values[slot] == null) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > values.length * MAX_LOAD) {
+                    resize(values.length * 2);
+                }
+                return true;
+            }
+            if (keys[slot] == key) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Shrink to the smallest capacity that holds the current contents.
+     */
+    void trim() {
+        int capacity = capacity(size);
+        if (capacity < values.length) {
+            resize(capacity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                putIfAbsent(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * GOLDEN;
+        return (int) (h ^ h >>> 32) & mask;
+    }
+
+    private static int capacity(int size) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * MAX_LOAD < size + 1) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final double MAX_LOAD = 0.6;
+
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + size + "/" + values.length + "]";
+    }
+}
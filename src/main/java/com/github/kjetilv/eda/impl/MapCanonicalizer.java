@@ -0,0 +1,112 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.LeafNormalizer;
+import com.github.kjetilv.eda.Verification;
+import com.github.kjetilv.eda.VerificationStats;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The working state of a memoizer: The {@link RecursiveTreeHasher tree hasher} and the
+ * {@link CanonicalSubstructuresCataloguer cataloguer}.  Turns incoming maps into canonical maps, and is
+ * thrown away on completion.
+ * <p>
+ * Thread-safe.
+ *
+ * @param <K> Key type
+ */
+final class MapCanonicalizer<K> {
+
+    private final RecursiveTreeHasher<K> recursiveTreeHasher;
+
+    private final CanonicalSubstructuresCataloguer<K> canonicalSubstructuresCataloguer;
+
+    /**
+     * @param newBuilder     Hash builder, not null
+     * @param keyTable       Key table, not null
+     * @param leafHasher     Hasher, not null
+     * @param leafNormalizer Leaf normalizer, not null
+     * @param decomposer     Decomposer for value objects, not null
+     * @param verification   Verification policy, not null
+     * @param seed           Seed, not null
+     * @param sizes          Size estimates, not null
+     */
+    MapCanonicalizer(
+        Supplier<HashBuilder<byte[]>> newBuilder,
+        KeyTable<K> keyTable,
+        LeafHasher leafHasher,
+        LeafNormalizer leafNormalizer,
+        Decomposer decomposer,
+        Verification verification,
+        Seed seed,
+        SizeEstimates sizes
+    ) {
+        this.recursiveTreeHasher = new RecursiveTreeHasher<>(
+            requireNonNull(newBuilder, "newBuilder"),
+            requireNonNull(keyTable, "keyTable"),
+            requireNonNull(leafHasher, "leafHasher"),
+            requireNonNull(leafNormalizer, "leafNormalizer"),
+            requireNonNull(decomposer, "decomposer")
+        );
+        this.canonicalSubstructuresCataloguer = new CanonicalSubstructuresCataloguer<>(verification, seed, sizes);
+    }
+
+    /**
+     * @param value Incoming map
+     * @return Normalized and hashed tree
+     */
+    HashedTree<?> hashedTree(Map<?, ?> value) {
+        return recursiveTreeHasher.hashedTree(value);
+    }
+
+    /**
+     * @param hashedTree Hashed tree
+     * @return Canonical value
+     * @see CanonicalSubstructuresCataloguer#toCanonical(HashedTree)
+     */
+    CanonicalValue canonical(HashedTree<?> hashedTree) {
+        return canonicalSubstructuresCataloguer.toCanonical(hashedTree);
+    }
+
+    /**
+     * @param hashedTree Hashed tree
+     * @param tally      Receives counts of nodes and catalogue outcomes
+     * @return Canonical value
+     */
+    CanonicalValue canonical(HashedTree<?> hashedTree, CanonicalSubstructuresCataloguer.Tally tally) {
+        return canonicalSubstructuresCataloguer.toCanonical(hashedTree, tally);
+    }
+
+    /**
+     * @return Hashes shared by different values, found so far
+     */
+    Set<Hash> collisions() {
+        return canonicalSubstructuresCataloguer.collisions();
+    }
+
+    /**
+     * @param action Receives each catalogued value, and its hash
+     */
+    void forEachCatalogued(BiConsumer<Hash, Object> action) {
+        canonicalSubstructuresCataloguer.forEachCatalogued(action);
+    }
+
+    /**
+     * @return Estimated bytes of the working state, not counting catalogued values
+     */
+    long workingBytes() {
+        return canonicalSubstructuresCataloguer.workingBytes();
+    }
+
+    /**
+     * @return Verification cost so far
+     */
+    VerificationStats verificationStats() {
+        return canonicalSubstructuresCataloguer.verificationStats();
+    }
+}
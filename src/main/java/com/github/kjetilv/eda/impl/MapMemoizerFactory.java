@@ -1,17 +1,29 @@
 package com.github.kjetilv.eda.impl;
 
+import com.github.kjetilv.eda.Completion;
 import com.github.kjetilv.eda.KeyHandler;
+import com.github.kjetilv.eda.LongMapsMemoizer;
 import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MemoizedMaps;
+import com.github.kjetilv.eda.MemoizerOptions;
 import com.github.kjetilv.eda.PojoBytes;
+import com.github.kjetilv.eda.SeedDictionary;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
 import java.util.function.Supplier;
 
+import static java.util.Objects.requireNonNull;
+
 public final class MapMemoizerFactory {
 
     public static final PojoBytes HASHCODE = value -> Hashes.bytes(value.hashCode());
 
     public static final PojoBytes TOSTRING = value -> value.toString().getBytes();
 
+    public static final PojoBytes FIELDS = new FieldPojoBytes();
+
     /**
      * @param <I>        Id type
      * @param <K>        Key type
@@ -47,7 +59,115 @@ public final class MapMemoizerFactory {
      * @return Map memoizer
      */
     static <I, K> MapsMemoizer<I, K> create(KeyHandler<K> handler, PojoBytes pojoBytes, LeafHasher hasher) {
+        return configured(
+            handler,
+            pojoBytes == null ? null : MemoizerOptions.defaults().pojoBytes(pojoBytes),
+            hasher
+        );
+    }
+
+    /**
+     * @param <I>     Id type
+     * @param <K>     Key type
+     * @param handler Key handler, null means default behaviour
+     * @param options Options, null means defaults
+     * @return Map memoizer
+     */
+    public static <I, K> MapsMemoizer<I, K> configured(KeyHandler<K> handler, MemoizerOptions options) {
+        return configured(handler, options, null);
+    }
+
+    /**
+     * @param <I>     Id type
+     * @param <K>     Key type
+     * @param handler Key handler, null means default behaviour
+     * @param options Options, null means defaults
+     * @param hasher  Leaf hasher, for testing purposes
+     * @return Map memoizer
+     */
+    static <I, K> MapsMemoizer<I, K> configured(KeyHandler<K> handler, MemoizerOptions options, LeafHasher hasher) {
+        MemoizerOptions memoizerOptions = options == null ? MemoizerOptions.defaults() : options;
         return new MapsMemoizerImpl<>(
+            HASH_BUILDER_SUPPLIER,
+            handler == null ? KeyHandler.defaultHandler() : handler,
+            hasher == null
+                ? defaultLeafHasher(memoizerOptions.pojoBytes())
+                : hasher,
+            memoizerOptions
+        );
+    }
+
+    /**
+     * @param <I>         Id type
+     * @param <K>         Key type
+     * @param in          Input stream
+     * @param handler     Key handler, null means default behaviour
+     * @param completions Completion options
+     * @return Imported maps
+     * @throws IOException If the stream fails
+     */
+    public static <I, K> MemoizedMaps<I, K> readFrom(InputStream in, KeyHandler<K> handler, Completion... completions)
+        throws IOException {
+        MapsMemoizerImpl<I, K> memoizer = (MapsMemoizerImpl<I, K>) MapMemoizerFactory.<I, K>configured(handler, null);
+        return memoizer.readFrom(requireNonNull(in, "in"), completions);
+    }
+
+    /**
+     * @param <K>        Key type
+     * @param handler    Key handler, null means default behaviour
+     * @param options    Options, null means defaults
+     * @param corpus     Sample maps
+     * @param maxEntries Maximum number of leaves and substructures in the dictionary
+     * @return Seed dictionary
+     */
+    public static <K> SeedDictionary trainDictionary(
+        KeyHandler<K> handler,
+        MemoizerOptions options,
+        Iterable<? extends Map<?, ?>> corpus,
+        int maxEntries
+    ) {
+        requireNonNull(corpus, "corpus");
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Negative maxEntries: " + maxEntries);
+        }
+        MapsMemoizerImpl<Integer, K> trainer =
+            (MapsMemoizerImpl<Integer, K>) MapMemoizerFactory.<Integer, K>configured(handler, options);
+        int identifier = 0;
+        for (Map<?, ?> map : corpus) {
+            trainer.put(identifier++, map);
+        }
+        return trainer.train(maxEntries);
+    }
+
+    /**
+     * @param <K>     Key type
+     * @param in      Input stream, with a {@link SeedDictionary#writeTo(java.io.OutputStream) saved} dictionary
+     * @param handler Key handler, null means default behaviour
+     * @return Seed dictionary
+     * @throws IOException If the stream fails
+     */
+    public static <K> SeedDictionary readDictionary(InputStream in, KeyHandler<K> handler) throws IOException {
+        KeyHandler<K> keyHandler = handler == null ? KeyHandler.defaultHandler() : handler;
+        return Seed.read(requireNonNull(in, "in"), keyHandler::normalize);
+    }
+
+    /**
+     * @param handler   Key handler, null means default behaviour
+     * @param pojoBytes Pojo bytes
+     * @return Long-keyed map memoizer
+     */
+    public static <K> LongMapsMemoizer<K> createLongKeyed(KeyHandler<K> handler, PojoBytes pojoBytes) {
+        return createLongKeyed(handler, pojoBytes, null);
+    }
+
+    /**
+     * @param <K>     Key type
+     * @param handler Key handler, null means default behaviour
+     * @param hasher  Leaf hasher, for testing purposes
+     * @return Long-keyed map memoizer
+     */
+    static <K> LongMapsMemoizer<K> createLongKeyed(KeyHandler<K> handler, PojoBytes pojoBytes, LeafHasher hasher) {
+        return new LongMapsMemoizerImpl<>(
             HASH_BUILDER_SUPPLIER,
             handler == null ? KeyHandler.defaultHandler() : handler,
             hasher == null
@@ -1,18 +1,25 @@
 package com.github.kjetilv.eda.impl;
 
-import com.github.kjetilv.eda.KeyHandler;
-import com.github.kjetilv.eda.MapsMemoizer;
-import com.github.kjetilv.eda.MapsMemoizers;
-import com.github.kjetilv.eda.MemoizedMaps;
+import com.github.kjetilv.eda.*;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.github.kjetilv.eda.impl.HashedTree.Node;
 import static java.util.Objects.requireNonNull;
@@ -21,8 +28,9 @@ import static java.util.Objects.requireNonNull;
  * Works by hashing nodes and leaves and storing them under their hashes. When structures and/or values
  * re-occur, they are replaced by the already registered, canonical instances.
  * <p>
- * MD5 (128-bit) hashes are used. If an incoming value provokes a hash collision, it will be stored as-is and
- * separately from the canonical trees.  This should be rare.
+ * MD5 (128-bit) hashes are used. If an incoming value provokes a hash collision, the colliding substructure is
+ * kept separately by the {@link CanonicalSubstructuresCataloguer cataloguer}.  Maps colliding at the root are
+ * stored separately from the canonical maps.  This should be rare.
  * <p>
  * Use {@link MapsMemoizers#create()} and siblings to create instances of this class.
  *
@@ -30,47 +38,119 @@ import static java.util.Objects.requireNonNull;
  * @param <K> Key type for the maps. All maps (and their submaps) will be stored with keys of this type
  */
 @SuppressWarnings("unchecked")
-class MapsMemoizerImpl<I, K> implements MapsMemoizer<I, K>, MemoizedMaps<I, K>, KeyHandler<K> {
+class MapsMemoizerImpl<I, K> implements MapsMemoizer<I, K>, MemoizedMaps<I, K> {
 
-    private final Map<I, Hash> memoizedHashes = new HashMap<>();
+    /**
+     * Hashes of all stored maps, including those in {@link #overflowObjects overflow}
+     */
+    private Map<I, Hash> memoizedHashes = new HashMap<>();
+
+    /**
+     * Stored maps, either as maps or {@link EncodedTree encoded}
+     */
+    private Map<Hash, Object> canonicalObjects = new HashMap<>();
 
-    private final Map<Hash, Map<K, Object>> canonicalObjects = new HashMap<>();
+    /**
+     * For stored maps shared by more than one identifier: The number of additional identifiers
+     */
+    private Map<Hash, Integer> sharedCounts = new HashMap<>();
+
+    /**
+     * Stored maps which could not be canonicalized, either as maps or {@link EncodedTree encoded}
+     */
+    private Map<I, Object> overflowObjects = new HashMap<>();
 
-    private final Map<I, Map<K, Object>> overflowObjects = new HashMap<>();
+    private volatile Frozen<I> frozen;
 
     private final AtomicBoolean complete = new AtomicBoolean();
 
+    private final AtomicBoolean closed = new AtomicBoolean();
+
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
-    private Map<Object, K> canonicalKeys = new ConcurrentHashMap<>();
+    private final PathIndexes<I, K> pathIndexes;
+
+    private final KeyTable<K> keyTable;
+
+    private MapCanonicalizer<K> canonicalizer;
+
+    private Set<Fingerprint> completedCollisions;
+
+    private VerificationStats completedVerificationStats;
+
+    private final IngestOptions ingestOptions;
+
+    private volatile AsyncIngest<I, Prepared<I>> ingest;
+
+    private final Object ingestLock = new Object();
 
-    private Map<K, byte[]> canonicalBytes = new ConcurrentHashMap<>();
+    private final Map<KeyPath, CompiledPath> compiledPaths = new ConcurrentHashMap<>();
 
-    private RecursiveTreeHasher<K> recursiveTreeHasher;
+    private final SpillOptions spillOptions;
 
-    private CanonicalSubstructuresCataloguer<K> canonicalSubstructuresCataloguer;
+    private final CompressOptions compressOptions;
 
-    private final KeyHandler<K> keyHandler;
+    private TieredStore tieredStore;
+
+    private final MemoizerMetrics metrics;
+
+    /**
+     * Canonical keys reported to the metrics so far
+     */
+    private final AtomicInteger reportedKeys = new AtomicInteger();
+
+    private final SizeEstimates sizes = new SizeEstimates();
+
+    /**
+     * Estimated bytes of identifiers, added as new identifiers are stored
+     */
+    private long identifierBytes;
 
     /**
      * @param newBuilder Hash builder, not null
      * @param keyHandler Key handler, not null
      * @param leafHasher Hasher, not null
+     * @param options    Options, not null
      * @see MapsMemoizers#create(KeyHandler)
      */
     MapsMemoizerImpl(
         Supplier<HashBuilder<byte[]>> newBuilder,
         KeyHandler<K> keyHandler,
-        LeafHasher leafHasher
+        LeafHasher leafHasher,
+        MemoizerOptions options
     ) {
-        requireNonNull(keyHandler, "key handler");
-        this.keyHandler = keyHandler;
-        this.recursiveTreeHasher = new RecursiveTreeHasher<>(
+        requireNonNull(options, "options");
+        Decomposer decomposer = new Decomposer(options.decomposable());
+        this.keyTable = new KeyTable<>(
             requireNonNull(newBuilder, "newBuilder"),
-            this,
-            requireNonNull(leafHasher, "leafHasher")
+            requireNonNull(keyHandler, "key handler")
+        );
+        this.canonicalizer = new MapCanonicalizer<>(
+            newBuilder,
+            keyTable,
+            requireNonNull(leafHasher, "leafHasher"),
+            options.normalizer(),
+            decomposer,
+            options.verification(),
+            seed(options.seed()),
+            sizes
         );
-        this.canonicalSubstructuresCataloguer = new CanonicalSubstructuresCataloguer<>();
+        this.pathIndexes = options.indexes().isEmpty()
+            ? null
+            : pathIndexes(
+                options.indexes(),
+                new RecursiveTreeHasher<>(
+                    newBuilder,
+                    keyTable.lookups(),
+                    leafHasher,
+                    options.normalizer(),
+                    decomposer
+                )
+            );
+        this.ingestOptions = options.ingest();
+        this.spillOptions = options.spill();
+        this.compressOptions = options.compress();
+        this.metrics = options.metrics();
     }
 
     @Override
@@ -78,7 +158,7 @@ class MapsMemoizerImpl<I, K> implements MapsMemoizer<I, K>, MemoizedMaps<I, K>,
         put(
             requireNonNull(identifier, "identifier"),
             requireNonNull(value, "value"),
-            true
+            OnConflict.FAIL
         );
     }
 
@@ -87,129 +167,886 @@ class MapsMemoizerImpl<I, K> implements MapsMemoizer<I, K>, MemoizedMaps<I, K>,
         return put(
             requireNonNull(identifier, "identifier"),
             requireNonNull(value, "value"),
-            false
+            OnConflict.SKIP
+        ) == PutOutcome.ADDED;
+    }
+
+    @Override
+    public PutOutcome putIfChanged(I identifier, Map<?, ?> value) {
+        return put(
+            requireNonNull(identifier, "identifier"),
+            requireNonNull(value, "value"),
+            OnConflict.REPLACE
         );
     }
 
+    @Override
+    public CompletableFuture<Void> putAsync(I identifier, Map<?, ?> value) {
+        requireNonNull(identifier, "identifier");
+        requireNonNull(value, "value");
+        if (complete.get() || closed.get()) {
+            throw new IllegalStateException(this + " is complete or closed, cannot put " + identifier);
+        }
+        AsyncIngest<I, Prepared<I>> ingest = ingest();
+        if (ingest == null) {
+            throw new IllegalStateException(this + " is complete or closed, cannot put " + identifier);
+        }
+        return ingest.submit(identifier, value);
+    }
+
+    @Override
+    public IngestStats ingestStats() {
+        AsyncIngest<I, Prepared<I>> ingest = this.ingest;
+        return ingest == null ? IngestStats.NONE : ingest.stats();
+    }
+
+    @Override
+    public VerificationStats verificationStats() {
+        return withReadLock(() ->
+            canonicalizer == null ? completedVerificationStats : canonicalizer.verificationStats());
+    }
+
     @Override
     public int size() {
-        return memoizedHashes.size() + overflowObjects.size();
+        Frozen<I> frozen = this.frozen;
+        return frozen != null ? frozen.index().size() : memoizedHashes.size();
     }
 
     @Override
     public Map<K, ?> get(I identifier) {
         requireNonNull(identifier, "identifier");
+        GetEvent event = EVENTS ? new GetEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        Map<K, ?> map = resolve(lookup(identifier));
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.identifier = String.valueOf(identifier);
+                event.found = map != null;
+                event.commit();
+            }
+        }
+        if (metrics != null) {
+            metrics.get(map != null);
+        }
+        return map;
+    }
+
+    @Override
+    public Object get(I identifier, KeyPath path) {
+        requireNonNull(identifier, "identifier");
+        CompiledPath compiledPath = compiled(requireNonNull(path, "path"));
+        Frozen<I> frozen = this.frozen;
+        if (frozen != null) {
+            return compiledPath.valueAt(frozen.stored(identifier));
+        }
+        return withReadLock(() -> compiledPath.valueAt(stored(identifier)));
+    }
+
+    @Override
+    public Map<I, Object> getAll(Collection<I> identifiers, KeyPath path) {
+        requireNonNull(identifiers, "identifiers");
+        CompiledPath compiledPath = compiled(requireNonNull(path, "path"));
+        Map<I, Object> values = new LinkedHashMap<>();
+        Frozen<I> frozen = this.frozen;
+        if (frozen != null) {
+            identifiers.forEach(identifier -> collect(identifier, frozen.stored(identifier), compiledPath, values));
+            return values;
+        }
+        return withReadLock(() -> {
+            identifiers.forEach(identifier -> collect(identifier, stored(identifier), compiledPath, values));
+            return values;
+        });
+    }
+
+    @Override
+    public Fingerprint fingerprint(I identifier) {
+        requireNonNull(identifier, "identifier");
+        Frozen<I> frozen = this.frozen;
+        Hash hash = frozen != null
+            ? frozen.hash(identifier)
+            : withReadLock(() -> hash(identifier));
+        return hash == null ? null : fingerprint(hash);
+    }
+
+    @Override
+    public boolean sameContent(I identifier, I otherIdentifier) {
+        requireNonNull(identifier, "identifier");
+        requireNonNull(otherIdentifier, "otherIdentifier");
         return withReadLock(() -> {
-            Hash hash = memoizedHashes.get(requireNonNull(identifier, "identifier"));
-            return hash != null ? canonicalObjects.get(hash)
-                : !overflowObjects.isEmpty() ? overflowObjects.get(identifier)
-                    : null;
+            Hash hash = hash(identifier);
+            if (hash == null || !hash.equals(hash(otherIdentifier))) {
+                return false;
+            }
+            Object stored = stored(identifier);
+            Object otherStored = stored(otherIdentifier);
+            // Different instances under the same hash means at least one of them overflowed
+            return stored == otherStored || resolve(stored).equals(resolve(otherStored));
         });
     }
 
+    @Override
+    public List<I> lookup(KeyPath path, Object value) {
+        requireNonNull(path, "path");
+        requireNonNull(value, "value");
+        if (pathIndexes == null) {
+            throw new IllegalArgumentException("No indexes, cannot look up " + path);
+        }
+        return withReadLock(() -> pathIndexes.lookup(path, value));
+    }
+
+    @Override
+    public Set<Fingerprint> collisions() {
+        return withReadLock(() ->
+            canonicalizer == null ? completedCollisions : fingerprints(canonicalizer.collisions()));
+    }
+
+    @Override
+    public TierStats tierStats() {
+        TieredStore tieredStore = withReadLock(() -> this.tieredStore);
+        return tieredStore == null ? TierStats.NONE : tieredStore.stats();
+    }
+
+    @Override
+    public Footprint footprint() {
+        return withReadLock(() -> {
+            Frozen<I> frozen = this.frozen;
+            long index = frozen != null
+                ? frozen.index().bytes() + SizeEstimates.array(frozen.stored().length, Integer.BYTES) * 2 +
+                  frozen.hashes().length * SizeEstimates.HASH
+                : memoizedHashes.size() * (SizeEstimates.ENTRY + SizeEstimates.HASH) +
+                  (canonicalObjects.size() + overflowObjects.size()) * SizeEstimates.ENTRY;
+            long working = keyTable.workingBytes() + (canonicalizer == null
+                ? 0L
+                : canonicalizer.workingBytes() + sharedCounts.size() * (SizeEstimates.ENTRY + SizeEstimates.BOXED));
+            return new Footprint(
+                sizes.catalogued(MemoizerMetrics.NodeKind.LEAF),
+                sizes.catalogued(MemoizerMetrics.NodeKind.LIST),
+                sizes.catalogued(MemoizerMetrics.NodeKind.MAP),
+                keyTable.bytes(),
+                identifierBytes + index,
+                working,
+                sizes.undeduplicated() + identifierBytes + size() * SizeEstimates.ENTRY
+            );
+        });
+    }
+
+    @Override
+    public JsonWriter<I> jsonWriter(long maxCachedBytes) {
+        return new JsonTreeWriter<>(this::lookup, MapsMemoizerImpl::resolve, maxCachedBytes);
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        DagCodec.write(
+            StreamSupport.stream(spliterator(Function.identity()), false),
+            this::fingerprint,
+            collisions(),
+            requireNonNull(out, "out")
+        );
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super I, ? super Map<K, ?>> action) {
+        requireNonNull(action, "action");
+        spliterator().forEachRemaining(entry ->
+            action.accept(entry.getKey(), entry.getValue()));
+    }
+
+    @Override
+    public Stream<Map.Entry<I, Map<K, ?>>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
     @Override
     public MemoizedMaps<I, K> complete() {
+        return complete(new Completion[0]);
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            AsyncIngest<I, Prepared<I>> ingest = ingest(); // Wait for a pipeline being started
+            if (ingest != null) {
+                ingest.close();
+            }
+            TieredStore tieredStore = withReadLock(() -> this.tieredStore);
+            if (tieredStore != null) {
+                tieredStore.close();
+            }
+        }
+    }
+
+    @Override
+    public MemoizedMaps<I, K> complete(Completion... completions) {
         if (complete.compareAndSet(false, true)) {
+            long start = System.nanoTime();
+            CompleteEvent event = EVENTS ? new CompleteEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            AsyncIngest<I, Prepared<I>> ingest = ingest(); // Wait for a pipeline being started
+            if (ingest != null) {
+                ingest.close();
+            }
             withWriteLock(() -> {
                 // Shed working data
-                this.recursiveTreeHasher = null;
-                this.canonicalSubstructuresCataloguer = null;
-                this.canonicalKeys = null;
-                this.canonicalBytes = null;
+                this.completedCollisions = fingerprints(canonicalizer.collisions());
+                this.completedVerificationStats = canonicalizer.verificationStats();
+                this.canonicalizer = null;
+                this.sharedCounts = Map.of();
+                if (pathIndexes != null) {
+                    pathIndexes.trim();
+                }
+                List<Completion> options = Arrays.asList(completions);
+                boolean tiered = spillOptions != null || compressOptions != null;
+                if (options.contains(Completion.ENCODED) || tiered) {
+                    encode();
+                }
+                if (tiered) {
+                    tier();
+                }
+                if (options.contains(Completion.FROZEN_INDEX)) {
+                    freeze();
+                }
+                keyTable.trim();
                 return this;
             });
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.completions = Arrays.toString(completions);
+                    event.maps = size();
+                    event.collisions = completedCollisions.size();
+                    event.commit();
+                }
+            }
+            if (metrics != null) {
+                metrics.completed(System.nanoTime() - start);
+            }
         }
         return this;
     }
 
-    @Override
-    public K normalize(Object key) {
-        return canonicalKeys.computeIfAbsent(key, keyHandler::normalize);
+    /**
+     * Import maps from a {@link DagCodec DAG export}, and complete.  The maps are canonical already, and are
+     * stored as they are.
+     *
+     * @param in          Input stream
+     * @param completions Completion options
+     * @return This instance, completed
+     * @throws IOException If the stream fails
+     */
+    MemoizedMaps<I, K> readFrom(InputStream in, Completion... completions) throws IOException {
+        Set<Hash> collisions;
+        try {
+            collisions = withWriteLock(() -> restore(in));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        complete(completions);
+        return withWriteLock(() -> {
+            this.completedCollisions = fingerprints(collisions);
+            return this;
+        });
     }
 
-    @Override
-    public byte[] bytes(K key) {
-        return canonicalBytes.computeIfAbsent(key, keyHandler::bytes);
+    /**
+     * Train a seed from the maps stored so far.  Leaves and substructures are ranked by the number of times they
+     * occur in stored maps, and those occurring more than once are included, along with their children.
+     *
+     * @param maxEntries Maximum number of leaves and substructures
+     * @return Seed
+     */
+    Seed train(int maxEntries) {
+        return withReadLock(() -> {
+            if (canonicalizer == null) {
+                throw new IllegalStateException(this + " is complete, cannot train");
+            }
+            Map<Object, Hash> hashes = new IdentityHashMap<>();
+            canonicalizer.forEachCatalogued((hash, value) -> hashes.put(value, hash));
+            Map<Object, Integer> occurrences = new IdentityHashMap<>();
+            memoizedHashes.keySet().forEach(identifier -> countOccurrences(stored(identifier), occurrences));
+            List<Object> ranked = occurrences.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue() > 1 && hashes.containsKey(entry.getKey()))
+                .sorted(Map.Entry.<Object, Integer>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .toList();
+            Map<Hash, Object> seeded = new HashMap<>();
+            for (Object value : ranked) {
+                if (seeded.size() >= maxEntries) {
+                    break;
+                }
+                Map<Hash, Object> closure = new HashMap<>();
+                if (closure(value, hashes, closure) && seeded.size() + closure.size() <= maxEntries) {
+                    seeded.putAll(closure);
+                }
+            }
+            return Seed.of(seeded);
+        });
     }
 
-    @SuppressWarnings({"unused"})
-    private boolean put(I identifier, Map<?, ?> value, boolean failOnConflict) {
-        if (complete.get()) {
-            throw new IllegalStateException(this + " is complete, cannot put " + identifier);
+    private PutOutcome put(I identifier, Map<?, ?> value, OnConflict onConflict) {
+        if (complete.get() || closed.get()) {
+            throw new IllegalStateException(this + " is complete or closed, cannot put " + identifier);
         }
-        return switch (recursiveTreeHasher.hashedTree(value)) {
+        Prepared<I> prepared = prepare(identifier, value, onConflict);
+        if (prepared.hashedNode() == null) {
+            return report(prepared, PutOutcome.UNCHANGED);
+        }
+        return report(prepared, withLock(lock.writeLock(), prepared.event(), () -> commit(prepared)));
+    }
+
+    /**
+     * Ends and commits the put event, if any, and reports the put to the metrics, if any.
+     *
+     * @return The outcome
+     */
+    private PutOutcome report(Prepared<I> prepared, PutOutcome outcome) {
+        PutEvent event = prepared.event();
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.identifier = String.valueOf(prepared.identifier());
+                event.outcome = outcome.name();
+                event.commit();
+            }
+        }
+        if (metrics != null) {
+            CanonicalSubstructuresCataloguer.Tally tally = prepared.tally();
+            metrics.put(outcome);
+            for (MemoizerMetrics.NodeKind kind : MemoizerMetrics.NodeKind.values()) {
+                metrics.catalogued(kind, tally.hits[kind.ordinal()], tally.misses[kind.ordinal()]);
+            }
+            if (tally.collisions > 0) {
+                metrics.collisions(tally.collisions);
+            }
+            int keys = keyTable.size();
+            int reported = reportedKeys.getAndAccumulate(keys, Math::max);
+            if (keys > reported) {
+                metrics.canonicalKeys(keys - reported);
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * Hash and canonicalize, without holding the write lock.  If put events are enabled, or there are metrics,
+     * phase times and catalogue outcomes are recorded.
+     *
+     * @return Prepared map, with no hashed node if the stored map is to be left as it is
+     */
+    private Prepared<I> prepare(I identifier, Map<?, ?> value, OnConflict onConflict) {
+        PutEvent event = EVENTS ? new PutEvent() : null;
+        if (event != null && event.isEnabled()) {
+            event.begin();
+        } else {
+            event = null;
+        }
+        CanonicalSubstructuresCataloguer.Tally tally = event != null || metrics != null
+            ? new CanonicalSubstructuresCataloguer.Tally()
+            : null;
+        long start = event == null ? 0L : System.nanoTime();
+        HashedTree<?> hashedTree = canonicalizer.hashedTree(value);
+        long hashed = event == null ? 0L : System.nanoTime();
+        if (event != null) {
+            event.hashTime = hashed - start;
+        }
+        return switch (hashedTree) {
             case Node<?> hashedNode -> {
-                CanonicalValue canonical =
-                    canonicalSubstructuresCataloguer.toCanonical(hashedNode);
-                yield withWriteLock(() -> {
-                    if (shouldPut(identifier, failOnConflict)) {
-                        switch (canonical) {
-                            case CanonicalValue.Node<?> valueNode -> {
-                                memoizedHashes.put(identifier, hashedNode.hash());
-                                canonicalObjects.put(
-                                    hashedNode.hash(),
-                                    unwrap(valueNode)
-                                );
-                            }
-                            case CanonicalValue.Collision __ -> overflowObjects.put(
-                                identifier,
-                                unwrap(hashedNode)
-                            );
-                            case CanonicalValue other -> throw new IllegalStateException(
-                                "Unexpected canonical value for node " + hashedNode + ": " + other
-                            );
-                        }
-                        return true;
-                    }
-                    return false;
-                });
+                if (unchanged(identifier, hashedNode, onConflict)) {
+                    yield new Prepared<>(identifier, null, null, onConflict, event, tally);
+                }
+                CanonicalValue canonical = canonicalizer.canonical(hashedNode, tally);
+                if (event != null) {
+                    event.canonicalizeTime = System.nanoTime() - hashed;
+                    event.nodes = tally.nodes;
+                    event.catalogueHits = tally.hits();
+                    event.catalogueMisses = tally.misses();
+                    event.collisions = tally.collisions;
+                }
+                yield new Prepared<>(identifier, hashedNode, canonical, onConflict, event, tally);
             }
             case HashedTree<?> other -> throw new IllegalArgumentException("Unexpected hashed tree " + other);
         };
     }
 
-    private boolean shouldPut(I identifier, boolean failOnConflict) {
-        if (!memoizedHashes.containsKey(identifier)) {
+    /**
+     * @return True iff the stored map is to be left as it is, so canonicalization can be skipped
+     */
+    private boolean unchanged(I identifier, Node<?> hashedNode, OnConflict onConflict) {
+        Hash stored = withReadLock(() -> memoizedHashes.get(identifier));
+        return stored != null && conflict(identifier, hashedNode.hash(), stored, onConflict);
+    }
+
+    /**
+     * Commit a prepared map in an {@link AsyncIngest ingest} batch, already holding the write lock.
+     */
+    private void commitBatched(Prepared<I> prepared) {
+        PutEvent event = prepared.event();
+        long start = event == null ? 0L : System.nanoTime();
+        PutOutcome outcome = commit(prepared);
+        if (event != null) {
+            event.commitTime = System.nanoTime() - start;
+        }
+        report(prepared, outcome);
+    }
+
+    /**
+     * Store a prepared map, under the write lock.
+     */
+    private PutOutcome commit(Prepared<I> prepared) {
+        I identifier = prepared.identifier();
+        if (canonicalizer == null) { // Completed since the put was checked
+            throw new IllegalStateException(this + " is complete, cannot put " + identifier);
+        }
+        Node<?> hashedNode = prepared.hashedNode();
+        Hash existing = memoizedHashes.get(identifier);
+        if (existing != null && conflict(identifier, hashedNode.hash(), existing, prepared.onConflict())) {
+            sizes.dropped(prepared.canonical().value());
+            return PutOutcome.UNCHANGED;
+        }
+        if (existing != null) {
+            release(identifier, existing);
+        }
+        store(identifier, hashedNode, prepared.canonical());
+        return existing == null ? PutOutcome.ADDED : PutOutcome.REPLACED;
+    }
+
+    private AsyncIngest<I, Prepared<I>> ingest() {
+        AsyncIngest<I, Prepared<I>> ingest = this.ingest;
+        if (ingest != null) {
+            return ingest;
+        }
+        synchronized (ingestLock) {
+            if (this.ingest == null && !complete.get() && !closed.get()) {
+                this.ingest = new AsyncIngest<>(
+                    getClass().getSimpleName() + "@" + System.identityHashCode(this),
+                    ingestOptions,
+                    (identifier, value) -> prepare(identifier, value, OnConflict.FAIL),
+                    this::commitBatched,
+                    batch -> withWriteLock(() -> {
+                        batch.run();
+                        return null;
+                    })
+                );
+            }
+            return this.ingest;
+        }
+    }
+
+    /**
+     * @return True iff the stored map should be left as it is
+     * @throws IllegalArgumentException If the conflict is not allowed
+     */
+    private boolean conflict(I identifier, Hash hash, Hash existing, OnConflict onConflict) {
+        return switch (onConflict) {
+            case FAIL -> throw new IllegalArgumentException("Identifier " + identifier + " is already stored");
+            case SKIP -> true;
+            case REPLACE -> hash.equals(existing);
+        };
+    }
+
+    private void store(I identifier, Node<?> hashedNode, CanonicalValue canonical) {
+        Hash hash = hashedNode.hash();
+        switch (canonical) {
+            case CanonicalValue.Node<?> valueNode -> storeRoot(identifier, unwrap(valueNode), hash);
+            case CanonicalValue other -> throw new IllegalStateException(
+                "Unexpected canonical value for node " + hashedNode + ": " + other
+            );
+        }
+        memoize(identifier, hash);
+        if (pathIndexes != null) {
+            pathIndexes.add(identifier, hashedNode);
+        }
+    }
+
+    private Set<Hash> restore(InputStream in) {
+        if (!memoizedHashes.isEmpty() || complete.get()) {
+            throw new IllegalStateException(this + " is in use, cannot import");
+        }
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            return DagCodec.read(
+                in,
+                key -> {
+                    K normalized = keyTable.normalize(key);
+                    keyTable.ordinal(normalized);
+                    return normalized;
+                },
+                (I identifier, Object root, Hash hash) -> {
+                    if (!(root instanceof Map<?, ?> map)) {
+                        throw new UncheckedIOException(new IOException("Not a map for " + identifier + ": " + root));
+                    }
+                    storeRoot(identifier, (Map<K, Object>) map, hash);
+                    memoize(identifier, hash);
+                    sizes.imported(map, seen);
+                }
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void countOccurrences(Object value, Map<Object, Integer> occurrences) {
+        if (value == null) {
+            return;
+        }
+        occurrences.merge(value, 1, Integer::sum);
+        switch (value) {
+            case Map<?, ?> map -> map.values().forEach(child -> countOccurrences(child, occurrences));
+            case List<?> list -> list.forEach(child -> countOccurrences(child, occurrences));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * @return False if some part of the value was not catalogued, e.g. because it collided
+     */
+    private static boolean closure(Object value, Map<Object, Hash> hashes, Map<Hash, Object> closure) {
+        if (value == null) {
             return true;
         }
-        if (failOnConflict) {
-            throw new IllegalArgumentException("Identifier " + identifier + " was:" + get(identifier));
+        Hash hash = hashes.get(value);
+        if (hash == null) {
+            return false;
+        }
+        closure.put(hash, value);
+        return switch (value) {
+            case Map<?, ?> map -> map.values().stream().allMatch(child -> closure(child, hashes, closure));
+            case List<?> list -> list.stream().allMatch(child -> closure(child, hashes, closure));
+            default -> true;
+        };
+    }
+
+    private static Seed seed(SeedDictionary seed) {
+        return switch (seed) {
+            case null -> Seed.NONE;
+            case Seed known -> known;
+            default -> throw new IllegalArgumentException("Unknown seed dictionary: " + seed);
+        };
+    }
+
+    private void memoize(I identifier, Hash hash) {
+        if (memoizedHashes.put(identifier, hash) == null) {
+            identifierBytes += SizeEstimates.leaf(identifier);
+        }
+    }
+
+    private void storeRoot(I identifier, Map<K, Object> root, Hash hash) {
+        Object existing = canonicalObjects.putIfAbsent(hash, root);
+        if (existing == root) {
+            sharedCounts.merge(hash, 1, Integer::sum);
+        } else if (existing != null) {
+            // Canonical, but colliding with another root
+            overflowObjects.put(identifier, root);
+            if (metrics != null) {
+                metrics.overflow();
+            }
+        }
+    }
+
+    /**
+     * Unlink a stored map from an identifier, dropping the stored map if no other identifier uses it
+     */
+    private void release(I identifier, Hash hash) {
+        Object overflow = overflowObjects.isEmpty() ? null : overflowObjects.remove(identifier);
+        sizes.dropped(overflow != null ? overflow : canonicalObjects.get(hash));
+        if (pathIndexes != null) {
+            pathIndexes.remove(identifier, resolve(overflow != null ? overflow : canonicalObjects.get(hash)));
+        }
+        if (overflow == null) {
+            Integer sharedCount = sharedCounts.get(hash);
+            if (sharedCount == null) {
+                canonicalObjects.remove(hash);
+            } else if (sharedCount == 1) {
+                sharedCounts.remove(hash);
+            } else {
+                sharedCounts.put(hash, sharedCount - 1);
+            }
+        }
+    }
+
+    /**
+     * @return The stored map, as stored, or null
+     */
+    private Object lookup(I identifier) {
+        Frozen<I> frozen = this.frozen;
+        return frozen != null
+            ? frozen.stored(identifier)
+            : withReadLock(() -> stored(identifier));
+    }
+
+    private Object stored(I identifier) {
+        Frozen<I> frozen = this.frozen;
+        if (frozen != null) { // Frozen while we waited for the lock
+            return frozen.stored(identifier);
+        }
+        Object overflow = overflowObjects.isEmpty() ? null : overflowObjects.get(identifier);
+        if (overflow != null) {
+            return overflow;
+        }
+        Hash hash = memoizedHashes.get(identifier);
+        return hash == null ? null : canonicalObjects.get(hash);
+    }
+
+    private CompiledPath compiled(KeyPath path) {
+        CompiledPath compiledPath = compiledPaths.get(path);
+        if (compiledPath != null) {
+            return compiledPath;
+        }
+        CompiledPath compiled = CompiledPath.compile(path, keyTable);
+        if (compiled.complete()) {
+            compiledPaths.putIfAbsent(path, compiled);
+        }
+        return compiled;
+    }
+
+    private static <I> void collect(I identifier, Object stored, CompiledPath path, Map<I, Object> values) {
+        Object value = path.valueAt(stored);
+        if (value != null) {
+            values.put(identifier, value);
+        }
+    }
+
+    private Hash hash(I identifier) {
+        Frozen<I> frozen = this.frozen;
+        return frozen != null ? frozen.hash(identifier) : memoizedHashes.get(identifier);
+    }
+
+    private PathIndexes<I, K> pathIndexes(List<KeyPath> paths, RecursiveTreeHasher<K> valueHasher) {
+        return new PathIndexes<>(
+            paths.stream()
+                .collect(Collectors.toMap(
+                    Function.identity(),
+                    path -> CollectionUtils.transform(path.keys(), keyTable::normalize)
+                )),
+            value -> valueHasher.hashedTree(value).hash()
+        );
+    }
+
+    private Spliterator<Map.Entry<I, Map<K, ?>>> spliterator() {
+        return spliterator(MapsMemoizerImpl::resolve);
+    }
+
+    /**
+     * @param resolver Resolves stored maps, which may be {@link EncodedTree encoded}
+     */
+    private <V> Spliterator<Map.Entry<I, V>> spliterator(Function<Object, V> resolver) {
+        Frozen<I> frozen = this.frozen;
+        if (frozen != null) {
+            return frozen.spliterator(resolver);
+        }
+        return withReadLock(() -> {
+            if (this.frozen != null) {
+                return this.frozen.spliterator(resolver);
+            }
+            Object[] identifiers = new Object[memoizedHashes.size()];
+            Object[] stored = new Object[memoizedHashes.size()];
+            int index = 0;
+            for (I identifier : memoizedHashes.keySet()) {
+                identifiers[index] = identifier;
+                stored[index] = stored(identifier);
+                index++;
+            }
+            return new EntriesSpliterator<>(identifiers, stored, resolver);
+        });
+    }
+
+    private void encode() {
+        Set<Object> shared = TreeCodec.shared(
+            Stream.concat(canonicalObjects.values().stream(), overflowObjects.values().stream()).toList()
+        );
+        Object[] keys = keyTable.keys();
+        canonicalObjects.replaceAll((__, root) -> encoded(root, shared, keys));
+        overflowObjects.replaceAll((__, root) -> encoded(root, shared, keys));
+    }
+
+    private void tier() {
+        ColdTier coldTier = spillOptions == null ? new HeapTier() : new SegmentFile(spillOptions.directory());
+        TieredStore store = compressOptions == null
+            ? new TieredStore(coldTier, spillOptions.heapBudget(), Long.MAX_VALUE, Integer.MAX_VALUE)
+            : new TieredStore(
+                new DeflatedTier(coldTier, DeflatedTier.dictionary(encodedBytes())),
+                spillOptions == null ? Long.MAX_VALUE : spillOptions.heapBudget(),
+                compressOptions.window().toNanos(),
+                compressOptions.cacheSize()
+            );
+        canonicalObjects.replaceAll((__, stored) -> tiered(stored, store));
+        overflowObjects.replaceAll((__, stored) -> tiered(stored, store));
+        store.evict();
+        this.tieredStore = store;
+    }
+
+    private List<byte[]> encodedBytes() {
+        return Stream.concat(canonicalObjects.values().stream(), overflowObjects.values().stream())
+            .filter(EncodedTree.class::isInstance)
+            .map(stored -> ((EncodedTree<?>) stored).bytes())
+            .toList();
+    }
+
+    private static Object tiered(Object stored, TieredStore store) {
+        return stored instanceof EncodedTree<?> encoded ? store.admit(encoded) : stored;
+    }
+
+    private void freeze() {
+        FrozenIndex<I> index = FrozenIndex.build(memoizedHashes.keySet());
+        Object[] identifiers = index.identifiers();
+        Object[] stored = new Object[identifiers.length];
+        Hash[] hashes = new Hash[identifiers.length];
+        for (int slot = 0; slot < identifiers.length; slot++) {
+            I identifier = (I) identifiers[slot];
+            stored[slot] = stored(identifier);
+            hashes[slot] = memoizedHashes.get(identifier);
         }
-        return false;
+        this.frozen = new Frozen<>(index, stored, hashes);
+        this.memoizedHashes = Map.of();
+        this.canonicalObjects = Map.of();
+        this.overflowObjects = Map.of();
     }
 
     private String doDescribe() {
+        if (frozen != null) {
+            return frozen.index().size() + " items, frozen";
+        }
         int count = memoizedHashes.size();
         int overflowsCount = overflowObjects.size();
-        return (count + overflowsCount) +
+        return count +
                " items" +
-               (overflowsCount == 0 ? ", " : " (" + overflowsCount + " collisions), ") +
+               (overflowsCount == 0 ? ", " : " (" + overflowsCount + " root collisions), ") +
                (complete.get() ? "completed" : "working maps:" + canonicalObjects.size());
     }
 
     private <T> T withReadLock(Supplier<T> action) {
-        return withLock(lock.readLock(), action);
+        return withLock(lock.readLock(), null, action);
     }
 
     private <T> T withWriteLock(Supplier<T> action) {
-        return withLock(lock.writeLock(), action);
+        return withLock(lock.writeLock(), null, action);
+    }
+
+    private static <K> Map<K, Object> unwrap(CanonicalValue.Node<?> valueNode) {
+        return ((CanonicalValue.Node<K>) valueNode).value();
     }
 
     @SuppressWarnings("unchecked")
-    private static <K> Map<K, Object> unwrap(Node<?> node) {
-        return ((Node<K>) node).unwrap();
+    private Object encoded(Object root, Set<Object> shared, Object[] keys) {
+        return shared.contains(root)
+            ? root
+            : TreeCodec.encode(
+                (Map<K, ?>) root,
+                shared::contains,
+                key -> keyTable.ordinal((K) key),
+                keys,
+                keyTable::ordinalOf
+            );
     }
 
-    private static <K> Map<K, Object> unwrap(CanonicalValue.Node<?> valueNode) {
-        return ((CanonicalValue.Node<K>) valueNode).value();
+    private static Set<Fingerprint> fingerprints(Set<Hash> hashes) {
+        return hashes.stream()
+            .map(MapsMemoizerImpl::fingerprint)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static Fingerprint fingerprint(Hash hash) {
+        return new Fingerprint(hash.l0(), hash.l1());
+    }
+
+    private static <K> Map<K, ?> resolve(Object stored) {
+        return switch (stored) {
+            case null -> null;
+            case EncodedTree<?> encoded -> (Map<K, ?>) encoded.view();
+            case TieredTree tiered -> (Map<K, ?>) tiered.tree().view();
+            default -> (Map<K, ?>) stored;
+        };
     }
 
-    private static <T> T withLock(Lock lock, Supplier<T> action) {
+    /**
+     * A map hashed and canonicalized for storing.
+     *
+     * @param identifier Identifier
+     * @param hashedNode Hashed map, or null if the stored map is to be left as it is
+     * @param canonical  Canonical map, or null if the stored map is to be left as it is
+     * @param onConflict What to do if a map is stored already
+     * @param event      Begun put event, or null if put events are not enabled
+     * @param tally      Catalogue outcomes, or null if there is no event and no metrics
+     * @param <I>        Identifier type
+     */
+    private record Prepared<I>(
+        I identifier,
+        Node<?> hashedNode,
+        CanonicalValue canonical,
+        OnConflict onConflict,
+        PutEvent event,
+        CanonicalSubstructuresCataloguer.Tally tally
+    ) {
+    }
+
+    private enum OnConflict {
+        FAIL,
+        SKIP,
+        REPLACE
+    }
+
+    /**
+     * Stored maps and their hashes, in the slots assigned by a {@link FrozenIndex frozen index}.
+     *
+     * @param index  Index
+     * @param stored Stored maps, by slot
+     * @param hashes Hashes, by slot
+     * @param <I>    Identifier type
+     */
+    private record Frozen<I>(FrozenIndex<I> index, Object[] stored, Hash[] hashes) {
+
+        Object stored(I identifier) {
+            int slot = index.slot(identifier);
+            return slot < 0 ? null : stored[slot];
+        }
+
+        Hash hash(I identifier) {
+            int slot = index.slot(identifier);
+            return slot < 0 ? null : hashes[slot];
+        }
+
+        <V> Spliterator<Map.Entry<I, V>> spliterator(Function<Object, V> resolver) {
+            return new EntriesSpliterator<>(index.identifiers(), stored, resolver);
+        }
+    }
+
+    /**
+     * Lock wait and hold times are only measured if there are {@link MemoizerMetrics metrics} or a put event to
+     * report them to.  This is the only place lock times are measured.
+     *
+     * @param event Put event, or null
+     */
+    private <T> T withLock(Lock lock, PutEvent event, Supplier<T> action) {
+        if (metrics == null && event == null) {
+            lock.lock();
+            try {
+                return action.get();
+            } finally {
+                lock.unlock();
+            }
+        }
+        long start = System.nanoTime();
         lock.lock();
+        long locked = System.nanoTime();
         try {
             return action.get();
         } finally {
             lock.unlock();
+            long held = System.nanoTime() - locked;
+            if (event != null) {
+                event.lockWaitTime = locked - start;
+                event.commitTime = held;
+            }
+            if (metrics != null) {
+                metrics.lock(locked - start, held);
+            }
         }
     }
 
@@ -217,4 +1054,10 @@ class MapsMemoizerImpl<I, K> implements MapsMemoizer<I, K>, MemoizedMaps<I, K>,
     public String toString() {
         return getClass().getSimpleName() + "[" + withReadLock(this::doDescribe) + "]";
     }
+
+    /**
+     * True iff the optional {@code jdk.jfr} module is present.  Without it, no {@link PutEvent events} are
+     * created, and their classes are never loaded.
+     */
+    private static final boolean EVENTS = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
 }
@@ -0,0 +1,129 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.MemoizerCounters;
+import com.github.kjetilv.eda.MetricsSnapshot;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.RecordComponent;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Registers {@link MemoizerCounters counters} as MBeans in the platform MBean server.  Kept apart from the
+ * counters, so that {@code java.management} is only needed when MBeans are used.
+ */
+public final class MetricsMBeans {
+
+    /**
+     * @param objectName Object name
+     * @param snapshots  Supplies a snapshot per read
+     * @throws IllegalArgumentException If the name is invalid, or already registered
+     */
+    public static void register(String objectName, Supplier<MetricsSnapshot> snapshots) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new SnapshotMBean(snapshots), new ObjectName(objectName));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Failed to register " + objectName, e);
+        }
+    }
+
+    /**
+     * @param objectName Object name
+     * @throws IllegalArgumentException If the name is invalid, or not registered
+     */
+    public static void unregister(String objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Failed to unregister " + objectName, e);
+        }
+    }
+
+    private MetricsMBeans() {
+    }
+
+    private static final RecordComponent[] COMPONENTS = MetricsSnapshot.class.getRecordComponents();
+
+    /**
+     * Read-only attributes, one per snapshot component.  Durations are given in nanoseconds.
+     */
+    private record SnapshotMBean(Supplier<MetricsSnapshot> snapshots) implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            MetricsSnapshot snapshot = snapshots.get();
+            for (RecordComponent component : COMPONENTS) {
+                if (component.getName().equals(attribute)) {
+                    return value(component, snapshot);
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            MetricsSnapshot snapshot = snapshots.get();
+            List<String> names = Arrays.asList(attributes);
+            AttributeList list = new AttributeList();
+            for (RecordComponent component : COMPONENTS) {
+                if (names.contains(component.getName())) {
+                    list.add(new Attribute(component.getName(), value(component, snapshot)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "No operations: " + actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            MBeanAttributeInfo[] attributes = Arrays.stream(COMPONENTS)
+                .map(component -> new MBeanAttributeInfo(
+                    component.getName(),
+                    Long.class.getName(),
+                    component.getType() == Duration.class
+                        ? component.getName() + ", in nanoseconds"
+                        : component.getName(),
+                    true,
+                    false,
+                    false
+                ))
+                .toArray(MBeanAttributeInfo[]::new);
+            return new MBeanInfo(MemoizerCounters.class.getName(), "Memoizer counters", attributes, null, null, null);
+        }
+
+        private static Long value(RecordComponent component, MetricsSnapshot snapshot) {
+            try {
+                Object value = component.getAccessor().invoke(snapshot);
+                return value instanceof Duration duration ? duration.toNanos() : (Long) value;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to read " + component.getName(), e);
+            }
+        }
+    }
+}
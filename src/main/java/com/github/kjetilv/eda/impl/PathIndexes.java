@@ -0,0 +1,199 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyPath;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Inverted indexes on the values found at given {@link KeyPath key paths}.  For each path, the
+ * {@link HashedTree#hash() hash} of the value found there – a leaf or a whole subtree – maps to a sorted
+ * list of identifier ordinals.
+ * <p>
+ * Identifiers are given dense ordinals as they are added, so posting lists stay sorted by simply
+ * appending to them.
+ * <p>
+ * Paths are followed through maps only.  Values found inside lists are not indexed.
+ * <p>
+ * Not thread-safe.
+ *
+ * @param <I> Identifier type
+ * @param <K> Key type
+ */
+final class PathIndexes<I, K> {
+
+    private final Map<KeyPath, List<K>> paths;
+
+    private final Map<KeyPath, Map<Hash, Postings>> indexes;
+
+    private final List<I> identifiers = new ArrayList<>();
+
+    private final Map<I, Integer> ordinals = new HashMap<>();
+
+    private final Function<Object, Hash> valueHasher;
+
+    /**
+     * @param paths       Key paths, mapped to their normalized keys
+     * @param valueHasher Hashes looked-up values the same way stored values are hashed
+     */
+    PathIndexes(Map<KeyPath, List<K>> paths, Function<Object, Hash> valueHasher) {
+        this.paths = Map.copyOf(paths);
+        this.valueHasher = Objects.requireNonNull(valueHasher, "valueHasher");
+        this.indexes = new HashMap<>();
+        this.paths.keySet().forEach(path -> indexes.put(path, new HashMap<>()));
+    }
+
+    /**
+     * Index a newly stored map
+     *
+     * @param identifier Identifier
+     * @param root       Hashed tree of the stored map
+     */
+    void add(I identifier, HashedTree<?> root) {
+        Integer ordinal = ordinals.get(identifier);
+        if (ordinal == null) {
+            ordinal = identifiers.size();
+            identifiers.add(identifier);
+            ordinals.put(identifier, ordinal);
+        }
+        int added = ordinal;
+        paths.forEach((path, keys) ->
+            hashAt(root, keys).ifPresent(hash ->
+                indexes.get(path).computeIfAbsent(hash, __ -> new Postings()).add(added)));
+    }
+
+    /**
+     * Un-index a replaced map.  Values are found by following the normalized keys through the stored map, and
+     * hashed like looked-up values.
+     *
+     * @param identifier Identifier
+     * @param stored     The stored map
+     */
+    void remove(I identifier, Map<K, ?> stored) {
+        Integer ordinal = ordinals.get(identifier);
+        if (ordinal == null || stored == null) {
+            return;
+        }
+        paths.forEach((path, keys) ->
+            valueAt(stored, keys).ifPresent(value -> {
+                Map<Hash, Postings> index = indexes.get(path);
+                Hash hash = valueHasher.apply(value);
+                Postings postings = index.get(hash);
+                if (postings != null && postings.remove(ordinal) && postings.isEmpty()) {
+                    index.remove(hash);
+                }
+            }));
+    }
+
+    /**
+     * @param path  Key path
+     * @param value Value
+     * @return Identifiers with the given value at the given path, in the order they were stored
+     * @throws IllegalArgumentException If the path is not indexed
+     */
+    List<I> lookup(KeyPath path, Object value) {
+        Map<Hash, Postings> index = indexes.get(path);
+        if (index == null) {
+            throw new IllegalArgumentException("Not indexed: " + path + ", indexes: " + paths.keySet());
+        }
+        Postings postings = index.get(valueHasher.apply(value));
+        return postings == null ? List.of() : postings.resolve(identifiers);
+    }
+
+    /**
+     * Trim posting lists to size.
+     */
+    void trim() {
+        indexes.values().forEach(index -> index.values().forEach(Postings::trim));
+    }
+
+    private static <K> Optional<Hash> hashAt(HashedTree<?> root, List<K> keys) {
+        HashedTree<?> tree = root;
+        for (K key : keys) {
+            if (tree instanceof HashedTree.Node<?> node) {
+                tree = node.valueMap().get(key);
+                if (tree == null) {
+                    return Optional.empty();
+                }
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(tree.hash());
+    }
+
+    private static <K> Optional<Object> valueAt(Map<K, ?> root, List<K> keys) {
+        Object value = root;
+        for (K key : keys) {
+            if (value instanceof Map<?, ?> map && map.containsKey(key)) {
+                value = map.get(key);
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * A growable, sorted array of ordinals
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[2];
+
+        private int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] >= ordinal) {
+                insert(ordinal);
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        boolean remove(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void trim() {
+            if (ordinals.length > size) {
+                ordinals = Arrays.copyOf(ordinals, size);
+            }
+        }
+
+        <I> List<I> resolve(List<I> identifiers) {
+            List<I> resolved = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                resolved.add(identifiers.get(ordinals[i]));
+            }
+            return Collections.unmodifiableList(resolved);
+        }
+
+        private void insert(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0) {
+                return;
+            }
+            int insertion = -index - 1;
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, Math.max(1, size * 2));
+            }
+            System.arraycopy(ordinals, insertion, ordinals, insertion + 1, size - insertion);
+            ordinals[insertion] = ordinal;
+            size++;
+        }
+    }
+}
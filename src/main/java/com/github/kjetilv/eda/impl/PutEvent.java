@@ -0,0 +1,60 @@
+package com.github.kjetilv.eda.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for one put, with the time spent in each phase, and the outcome of cataloguing its
+ * nodes.  Only puts over the threshold are recorded, by default.
+ */
+@Name("com.github.kjetilv.eda.Put")
+@Label("Memoizer Put")
+@Category("Edamame")
+@Description("A map stored in a memoizer")
+@StackTrace(false)
+@Threshold("1 ms")
+final class PutEvent extends Event {
+
+    @Label("Identifier")
+    String identifier;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Hash Time")
+    @Timespan
+    long hashTime;
+
+    @Label("Canonicalize Time")
+    @Timespan
+    long canonicalizeTime;
+
+    @Label("Lock Wait Time")
+    @Description("Zero for asynchronous puts, which wait for the lock once per batch")
+    @Timespan
+    long lockWaitTime;
+
+    @Label("Commit Time")
+    @Timespan
+    long commitTime;
+
+    @Label("Nodes")
+    @Description("Leaves, lists and maps canonicalized")
+    int nodes;
+
+    @Label("Catalogue Hits")
+    int catalogueHits;
+
+    @Label("Catalogue Misses")
+    int catalogueMisses;
+
+    @Label("Collisions")
+    @Description("Nodes with the hash of a different, catalogued value")
+    int collisions;
+}
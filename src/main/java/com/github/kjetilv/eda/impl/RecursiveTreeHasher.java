@@ -1,8 +1,10 @@
 package com.github.kjetilv.eda.impl;
 
 import com.github.kjetilv.eda.KeyHandler;
+import com.github.kjetilv.eda.LeafNormalizer;
 import com.github.kjetilv.eda.MapsMemoizers;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -22,26 +24,36 @@ import static java.util.Objects.requireNonNull;
  */
 final class RecursiveTreeHasher<K> {
 
-    private final KeyHandler<K> keyHandler;
+    private final KeyHasher<K> keyHandler;
 
     private final Supplier<HashBuilder<byte[]>> newBuilder;
 
     private final LeafHasher leafHasher;
 
+    private final LeafNormalizer leafNormalizer;
+
+    private final Decomposer decomposer;
+
     /**
-     * @param newBuilder Hash builder, not null
-     * @param keyHandler Key handler, not null
-     * @param leafHasher Hasher, not null
+     * @param newBuilder     Hash builder, not null
+     * @param keyHandler     Key handler with key hashes, not null
+     * @param leafHasher     Hasher, not null
+     * @param leafNormalizer Leaf normalizer, not null
+     * @param decomposer     Decomposer for value objects, not null
      * @see MapsMemoizers#create(KeyHandler)
      */
     RecursiveTreeHasher(
         Supplier<HashBuilder<byte[]>> newBuilder,
-        KeyHandler<K> keyHandler,
-        LeafHasher leafHasher
+        KeyHasher<K> keyHandler,
+        LeafHasher leafHasher,
+        LeafNormalizer leafNormalizer,
+        Decomposer decomposer
     ) {
         this.newBuilder = requireNonNull(newBuilder, "newBuilder");
         this.keyHandler = requireNonNull(keyHandler, "keyHandler");
         this.leafHasher = requireNonNull(leafHasher, "leafHasher");
+        this.leafNormalizer = requireNonNull(leafNormalizer, "leafNormalizer");
+        this.decomposer = requireNonNull(decomposer, "decomposer");
     }
 
     @SuppressWarnings("unchecked")
@@ -53,7 +65,7 @@ final class RecursiveTreeHasher<K> {
                 case Iterable<?> iterable -> nodesForIterable(iterable);
                 default -> value.getClass().isArray()
                     ? nodesForIterable(iterable(value))
-                    : leafFor(value);
+                    : valueFor(value);
             };
     }
 
@@ -67,8 +79,47 @@ final class RecursiveTreeHasher<K> {
         return new Node<>(mapHash(hashedMap), hashedMap);
     }
 
+    private HashedTree<?> valueFor(Object value) {
+        Decomposer.Decomposition decomposition = decomposer.decomposition(value);
+        return decomposition == null ? leafFor(value) : compositeFor(value, decomposition);
+    }
+
+    private Composite compositeFor(Object value, Decomposer.Decomposition decomposition) {
+        Object[] components = decomposition.components(value);
+        List<HashedTree<?>> trees = new ArrayList<>(components.length);
+        HashBuilder<byte[]> hb = newBuilder.get();
+        hb.hash(decomposition.typeBytes());
+        for (int i = 0; i < components.length; i++) {
+            HashedTree<?> tree = componentFor(components[i], decomposition.list(i));
+            trees.add(tree);
+            hb.hash(tree.hash().bytes());
+        }
+        return new Composite(hb.get(), value, decomposition, Collections.unmodifiableList(trees));
+    }
+
+    /**
+     * Components are hashed so that the value object can be rebuilt equal to the original.  Lists, and lists in
+     * lists, become canonical lists.  Value objects are decomposed in turn.  Anything else, including maps and
+     * other collections, is an opaque leaf, hashed as it is, without normalization.
+     *
+     * @param list True iff the component is a list, or an element of one
+     */
+    private HashedTree<?> componentFor(Object component, boolean list) {
+        if (component == null) {
+            return NULL;
+        }
+        if (list && component instanceof List<?> elements) {
+            List<? extends HashedTree<?>> hashedElements = transform(elements, element -> componentFor(element, true));
+            return new Nodes(listHash(hashedElements), hashedElements);
+        }
+        return decomposer.decomposition(component) != null
+            ? valueFor(component)
+            : new Leaf(leafHash(component), component);
+    }
+
     private Leaf leafFor(Object value) {
-        return new Leaf(leafHash(value), value);
+        Object normalized = leafNormalizer.normalize(value);
+        return new Leaf(leafHash(normalized), normalized);
     }
 
     private Hash listHash(List<? extends HashedTree<?>> trees) {
@@ -81,16 +132,22 @@ final class RecursiveTreeHasher<K> {
         return hashHb.get();
     }
 
+    /**
+     * Mixes each key hash with its value hash, and sums the mixes.  The sum is independent of entry order, and only
+     * goes through the digest once, along with the size.
+     */
     private Hash mapHash(Map<K, ? extends HashedTree<?>> tree) {
-        HashBuilder<byte[]> hb = newBuilder.get();
-        HashBuilder<Hash> hashHb = hb.map(Hash::bytes);
-        HashBuilder<K> keyHb = hb.map(keyHandler::bytes);
-        hb.<Integer>map(Hashes::bytes).hash(tree.size());
+        long[] sum = new long[2];
         tree.forEach((key, value) -> {
-            keyHb.hash(key);
-            hashHb.apply(value.hash());
+            Hash keyHash = keyHandler.hash(key);
+            Hash valueHash = value.hash();
+            long l0 = Hashes.mix(keyHash.l0() ^ Hashes.mix(keyHash.l1() + valueHash.l1()) + valueHash.l0());
+            sum[0] += l0;
+            sum[1] += Hashes.mix(keyHash.l1() ^ l0 + valueHash.l1());
         });
-        return hb.get();
+        HashBuilder<byte[]> hb = newBuilder.get();
+        hb.<Integer>map(Hashes::bytes).hash(tree.size());
+        return hb.hash(Hashes.toBytes(sum)).get();
     }
 
     private Hash leafHash(Object value) {
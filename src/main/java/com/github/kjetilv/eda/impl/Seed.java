@@ -0,0 +1,109 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Fingerprint;
+import com.github.kjetilv.eda.SeedDictionary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Canonical leaves, lists and maps by {@link Hash hash}, for {@link CanonicalSubstructuresCataloguer cataloguers}
+ * to look up before their own catalogues.  Substructures are complete, in that their leaves and substructures
+ * are in the seed too.  This lets seeded substructures match by the identity of their children.
+ * <p>
+ * Immutable, and therefore thread-safe.
+ */
+final class Seed implements SeedDictionary {
+
+    static final Seed NONE = new Seed(Map.of(), Map.of(), Map.of());
+
+    /**
+     * @param catalogued Canonical values by hash
+     * @return Seed
+     */
+    static Seed of(Map<Hash, Object> catalogued) {
+        Map<Hash, Object> maps = new HashMap<>();
+        Map<Hash, Object> lists = new HashMap<>();
+        Map<Hash, Object> leaves = new HashMap<>();
+        catalogued.forEach((hash, value) -> {
+            switch (value) {
+                case Map<?, ?> map -> maps.put(hash, map);
+                case List<?> list -> lists.put(hash, list);
+                default -> leaves.put(hash, value);
+            }
+        });
+        return new Seed(maps, lists, leaves);
+    }
+
+    /**
+     * @param in   Input stream, with a {@link #writeTo(OutputStream) saved} seed
+     * @param keys Normalizes keys
+     * @return Seed
+     * @throws IOException If the stream fails
+     */
+    static Seed read(InputStream in, Function<Object, ?> keys) throws IOException {
+        Map<Hash, Object> catalogued = new HashMap<>();
+        DagCodec.read(in, keys, (Integer __, Object value, Hash hash) -> catalogued.put(hash, value));
+        return of(catalogued);
+    }
+
+    private final Map<Hash, Object> maps;
+
+    private final Map<Hash, Object> lists;
+
+    private final Map<Hash, Object> leaves;
+
+    private Seed(Map<Hash, Object> maps, Map<Hash, Object> lists, Map<Hash, Object> leaves) {
+        this.maps = Collections.unmodifiableMap(maps);
+        this.lists = Collections.unmodifiableMap(lists);
+        this.leaves = Collections.unmodifiableMap(leaves);
+    }
+
+    Map<Hash, Object> maps() {
+        return maps;
+    }
+
+    Map<Hash, Object> lists() {
+        return lists;
+    }
+
+    Map<Hash, Object> leaves() {
+        return leaves;
+    }
+
+    @Override
+    public int size() {
+        return maps.size() + lists.size() + leaves.size();
+    }
+
+    /**
+     * Entries are written as a {@link DagCodec DAG}, with their hashes as fingerprints.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        List<Map.Entry<Hash, Object>> entries = new ArrayList<>(size());
+        entries.addAll(leaves.entrySet());
+        entries.addAll(lists.entrySet());
+        entries.addAll(maps.entrySet());
+        DagCodec.write(
+            IntStream.range(0, entries.size()).mapToObj(i -> Map.entry(i, entries.get(i).getValue())),
+            i -> fingerprint(entries.get(i).getKey()),
+            Set.of(),
+            out
+        );
+    }
+
+    private static Fingerprint fingerprint(Hash hash) {
+        return new Fingerprint(hash.l0(), hash.l1());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+               "[maps:" + maps.size() + " lists:" + lists.size() + " leaves:" + leaves.size() + "]";
+    }
+}
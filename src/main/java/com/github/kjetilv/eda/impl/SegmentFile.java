@@ -0,0 +1,99 @@
+package com.github.kjetilv.eda.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * An append-only segment file.  Records are written at the end, as a length followed by the bytes, and read
+ * back with positional reads, which may run concurrently.  The file is deleted when {@link #close() closed},
+ * or, on a best effort basis, when the JVM exits.
+ * <p>
+ * Thread-safe.
+ */
+final class SegmentFile implements ColdTier {
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private long size;
+
+    /**
+     * @param directory Directory to create the file in
+     */
+    SegmentFile(Path directory) {
+        try {
+            this.path = Files.createTempFile(directory, "edamame-", ".seg");
+            this.channel = FileChannel.open(path, READ, WRITE, DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create segment file in " + directory, e);
+        }
+    }
+
+    /**
+     * @param bytes Bytes
+     * @return Position of the record, which is the length of the bytes followed by the bytes
+     */
+    @Override
+    public synchronized long write(byte[] bytes) {
+        long position = size;
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes).flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + bytes.length + " bytes to " + path, e);
+        }
+        size += buffer.limit();
+        return position;
+    }
+
+    @Override
+    public byte[] read(long handle) {
+        int length = read(handle, Integer.BYTES).getInt();
+        return read(handle + Integer.BYTES, length).array();
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Close and delete the file
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + path, e);
+        }
+    }
+
+    private ByteBuffer read(long position, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IllegalStateException("Unexpected end of " + path + " at " + position);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + length + " bytes at " + position + " from " + path, e);
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + path + ": " + size() + " bytes]";
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.MemoizerMetrics.NodeKind;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimated heap sizes of catalogued values, added up as they are catalogued.  Estimates assume a 64-bit JVM with
+ * compressed references: 12-byte object headers, 4-byte references, and 8-byte alignment.  Maps are assumed to
+ * be {@link CollectionUtils#transformValues(Map, java.util.function.Function) unmodifiable hash maps}, lists to be
+ * {@link java.util.stream.Stream#toList() immutable lists}, and strings to be Latin-1.
+ * <p>
+ * Thread-safe.
+ */
+final class SizeEstimates {
+
+    /**
+     * Bytes of a {@link java.util.concurrent.ConcurrentHashMap} or {@link java.util.HashMap} entry, with its
+     * share of the table
+     */
+    static final long ENTRY = 40L;
+
+    /**
+     * Bytes of a {@link Hash}
+     */
+    static final long HASH = 32L;
+
+    /**
+     * Bytes of a boxed primitive
+     */
+    static final long BOXED = 16L;
+
+    private final LongAdder[] catalogued = new LongAdder[NodeKind.values().length];
+
+    private final LongAdder undeduplicated = new LongAdder();
+
+    SizeEstimates() {
+        Arrays.setAll(catalogued, __ -> new LongAdder());
+    }
+
+    /**
+     * @param kind  Node kind
+     * @param value Value met while canonicalizing
+     * @param added True iff the value was catalogued for the first time
+     */
+    void visited(NodeKind kind, Object value, boolean added) {
+        long bytes = shallow(value);
+        undeduplicated.add(bytes);
+        if (added) {
+            catalogued[kind.ordinal()].add(bytes);
+        }
+    }
+
+    /**
+     * @param bytes Bytes of values met again while canonicalizing, inside a value found in the catalogue
+     */
+    void repeated(long bytes) {
+        undeduplicated.add(bytes);
+    }
+
+    /**
+     * @param root Stored map, imported as it is
+     * @param seen Values counted already, by identity
+     */
+    void imported(Object root, Set<Object> seen) {
+        undeduplicated.add(tree(root));
+        catalogue(root, seen);
+    }
+
+    /**
+     * @param value A value no longer stored, or never stored after all
+     */
+    void dropped(Object value) {
+        undeduplicated.add(-tree(value));
+    }
+
+    /**
+     * @param kind Node kind
+     * @return Bytes of values catalogued so far
+     */
+    long catalogued(NodeKind kind) {
+        return catalogued[kind.ordinal()].sum();
+    }
+
+    /**
+     * @return Bytes of all values met while canonicalizing stored maps, counting shared values once per
+     * occurrence
+     */
+    long undeduplicated() {
+        return undeduplicated.sum();
+    }
+
+    /**
+     * @param value Value
+     * @return Bytes of the value and all its children, counting shared children once per occurrence
+     */
+    static long tree(Object value) {
+        return switch (value) {
+            case Map<?, ?> map -> shallow(map) + map.values().stream().mapToLong(SizeEstimates::tree).sum();
+            case List<?> list -> shallow(list) + list.stream().mapToLong(SizeEstimates::tree).sum();
+            case null, default -> shallow(value);
+        };
+    }
+
+    /**
+     * @param value Value
+     * @return Bytes of the value, not counting map values or list elements
+     */
+    static long shallow(Object value) {
+        return switch (value) {
+            case null -> 0L;
+            case Map<?, ?> map -> map(map.size());
+            case List<?> list -> list(list.size());
+            default -> leaf(value);
+        };
+    }
+
+    /**
+     * @param leaf Leaf
+     * @return Bytes of the leaf.  Values of unknown types are counted as a bare object
+     */
+    static long leaf(Object leaf) {
+        return switch (leaf) {
+            case null -> 0L;
+            case Boolean ignored -> 0L;
+            case Enum<?> ignored -> 0L;
+            case String string -> 24L + array(string.length(), 1);
+            case Long ignored -> BOXED;
+            case Integer ignored -> BOXED;
+            case Double ignored -> BOXED;
+            case Float ignored -> BOXED;
+            case Short ignored -> BOXED;
+            case Byte ignored -> BOXED;
+            case Character ignored -> BOXED;
+            case BigInteger bigInteger -> 40L + array(bigInteger.bitLength() / Integer.SIZE + 1, Integer.BYTES);
+            case BigDecimal bigDecimal -> 40L + (bigDecimal.precision() > 18 ? leaf(bigDecimal.unscaledValue()) : 0L);
+            case Instant ignored -> 24L;
+            case LocalDate ignored -> 24L;
+            case UUID ignored -> 32L;
+            case byte[] bytes -> array(bytes.length, 1);
+            default -> BOXED;
+        };
+    }
+
+    /**
+     * @param size Number of entries
+     * @return Bytes of an unmodifiable hash map, not counting keys and values
+     */
+    static long map(int size) {
+        long wrapper = 32L;
+        long hashMap = 48L;
+        return size == 0
+            ? wrapper + hashMap
+            : wrapper + hashMap + array(tableSize(size), Integer.BYTES) + size * 32L;
+    }
+
+    /**
+     * @param size Number of elements
+     * @return Bytes of an immutable list, not counting elements.  Empty lists are shared
+     */
+    static long list(int size) {
+        return size == 0 ? 0L : 24L + array(size, Integer.BYTES);
+    }
+
+    /**
+     * @param length      Length
+     * @param elementSize Bytes per element
+     * @return Bytes of an array
+     */
+    static long array(int length, int elementSize) {
+        return align(16L + (long) length * elementSize);
+    }
+
+    private void catalogue(Object value, Set<Object> seen) {
+        if (value == null || !seen.add(value)) {
+            return;
+        }
+        switch (value) {
+            case Map<?, ?> map -> {
+                catalogued[NodeKind.MAP.ordinal()].add(shallow(map));
+                map.values().forEach(child -> catalogue(child, seen));
+            }
+            case List<?> list -> {
+                catalogued[NodeKind.LIST.ordinal()].add(shallow(list));
+                list.forEach(child -> catalogue(child, seen));
+            }
+            default -> catalogued[NodeKind.LEAF.ordinal()].add(leaf(value));
+        }
+    }
+
+    private static int tableSize(int size) {
+        int capacity = size < 3 ? size + 1 : (int) Math.ceil(size / 0.75d);
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private static long align(long bytes) {
+        return bytes + 7L & ~7L;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + Arrays.toString(catalogued) + " ~" + undeduplicated + "]";
+    }
+}
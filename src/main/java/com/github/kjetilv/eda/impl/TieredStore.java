@@ -0,0 +1,219 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.TierStats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the bytes of {@link EncodedTree encoded} stored maps on the heap within a budget, and the rest in a
+ * {@link ColdTier cold tier}.  Evicted bytes are written to the cold tier once, and faulted back in when read.
+ * <p>
+ * Maps are evicted when:
+ * <ul>
+ *     <li>The heap budget is exceeded.  A clock sweep picks maps that have not been read recently: Each read
+ *     marks a map as referenced, and the sweep gives referenced maps a second chance.</li>
+ *     <li>They have not been read within the idle window.  Idle maps are swept as reads come in, a few times per
+ *     window.</li>
+ *     <li>They were faulted in, and have fallen out of the small cache of faulted maps.</li>
+ * </ul>
+ * <p>
+ * Thread-safe.  Reads of hot maps take no locks, and faults read from the cold tier concurrently.
+ */
+final class TieredStore {
+
+    private final ColdTier coldTier;
+
+    private final long heapBudget;
+
+    private final long windowNanos;
+
+    private final int faultCacheSize;
+
+    private final List<TieredTree> trees = new ArrayList<>();
+
+    private final Deque<TieredTree> faulted = new ArrayDeque<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder faults = new LongAdder();
+
+    private final LatencyHistogram faultLatency = new LatencyHistogram();
+
+    private volatile long lastSweep = System.nanoTime();
+
+    private long hotBytes;
+
+    private int hotCount;
+
+    private int hand;
+
+    /**
+     * @param coldTier       Cold tier
+     * @param heapBudget     Maximum number of bytes to keep on the heap
+     * @param windowNanos    Idle window, or {@link Long#MAX_VALUE} to keep maps while they fit the budget
+     * @param faultCacheSize Maximum number of faulted maps to keep on the heap
+     */
+    TieredStore(ColdTier coldTier, long heapBudget, long windowNanos, int faultCacheSize) {
+        this.coldTier = requireNonNull(coldTier, "coldTier");
+        this.heapBudget = heapBudget;
+        this.windowNanos = windowNanos;
+        this.faultCacheSize = faultCacheSize;
+    }
+
+    /**
+     * Take an encoded map into tiered storage.  Call {@link #evict()} when done admitting.
+     *
+     * @param tree Encoded tree
+     * @return Tiered tree
+     */
+    synchronized TieredTree admit(EncodedTree<?> tree) {
+        TieredTree tiered = new TieredTree(this, tree);
+        tiered.lastRead = lastSweep;
+        trees.add(tiered);
+        hotBytes += tiered.length;
+        hotCount++;
+        return tiered;
+    }
+
+    /**
+     * Close the cold tier.  Cold maps cannot be faulted in after this.
+     */
+    void close() {
+        coldTier.close();
+    }
+
+    /**
+     * Evict maps until the heap budget is respected
+     */
+    synchronized void evict() {
+        int limit = trees.size() * 2;
+        for (int i = 0; i < limit && hotBytes > heapBudget; i++) {
+            TieredTree tree = trees.get(hand);
+            hand = (hand + 1) % trees.size();
+            if (tree.hot != null) {
+                if (tree.referenced) {
+                    tree.referenced = false;
+                } else {
+                    evict(tree);
+                }
+            }
+        }
+    }
+
+    TierStats stats() {
+        sweep(System.nanoTime());
+        synchronized (this) {
+            return new TierStats(
+                hotCount,
+                trees.size() - hotCount,
+                hotBytes,
+                coldTier.size(),
+                coldTier.rawSize(),
+                hits.sum(),
+                faults.sum(),
+                faultLatency.percentile(0.5d),
+                faultLatency.percentile(0.99d)
+            );
+        }
+    }
+
+    byte[] bytes(TieredTree tree) {
+        if (windowNanos != Long.MAX_VALUE) {
+            long now = System.nanoTime();
+            tree.lastRead = now;
+            sweep(now);
+        }
+        byte[] hot = tree.hot;
+        if (hot != null) {
+            tree.referenced = true;
+            hits.increment();
+            return hot;
+        }
+        return fault(tree);
+    }
+
+    /**
+     * Read from the cold tier without holding the lock, so faults may run concurrently.  The handle is set
+     * before the bytes are dropped from the heap, and is safe to read once they are seen to be gone.
+     */
+    private byte[] fault(TieredTree tree) {
+        long start = System.nanoTime();
+        byte[] bytes = coldTier.read(tree.handle);
+        synchronized (this) {
+            if (tree.hot == null) {
+                tree.hot = bytes;
+                hotBytes += tree.length;
+                hotCount++;
+                cacheFaulted(tree);
+            }
+            tree.referenced = true;
+            evict();
+        }
+        faults.increment();
+        faultLatency.record(System.nanoTime() - start);
+        return bytes;
+    }
+
+    /**
+     * Keep a faulted map on the heap, until it falls out of the cache.  Maps that have been read while in the
+     * cache get a second chance.
+     */
+    private void cacheFaulted(TieredTree tree) {
+        if (faultCacheSize == Integer.MAX_VALUE) {
+            return;
+        }
+        faulted.addLast(tree);
+        for (int i = 0; faulted.size() > faultCacheSize && i <= faultCacheSize; i++) {
+            TieredTree eldest = faulted.removeFirst();
+            if (eldest.hot != null && eldest.referenced && eldest != tree) {
+                eldest.referenced = false;
+                faulted.addLast(eldest);
+            } else if (eldest.hot != null && eldest != tree) {
+                evict(eldest);
+            }
+        }
+    }
+
+    /**
+     * Evict maps not read within the window, a few times per window at most
+     */
+    private void sweep(long now) {
+        if (windowNanos == Long.MAX_VALUE || now - lastSweep < windowNanos / SWEEPS_PER_WINDOW) {
+            return;
+        }
+        synchronized (this) {
+            if (now - lastSweep < windowNanos / SWEEPS_PER_WINDOW) {
+                return;
+            }
+            lastSweep = now;
+            for (TieredTree tree : trees) {
+                if (tree.hot != null && now - tree.lastRead > windowNanos) {
+                    evict(tree);
+                }
+            }
+        }
+    }
+
+    private void evict(TieredTree tree) {
+        if (tree.handle < 0) {
+            tree.handle = coldTier.write(tree.hot);
+        }
+        tree.hot = null;
+        tree.referenced = false;
+        hotBytes -= tree.length;
+        hotCount--;
+    }
+
+    private static final int SWEEPS_PER_WINDOW = 4;
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + coldTier + ", budget " + heapBudget + "]";
+    }
+}
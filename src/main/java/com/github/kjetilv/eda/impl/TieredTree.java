@@ -0,0 +1,50 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * A stored map in {@link TieredStore tiered storage}.  The {@link EncodedTree encoded} bytes are either on the
+ * heap, or in the cold tier only.  The reference and key tables always stay on the heap, so shared
+ * substructures remain canonical instances.
+ */
+final class TieredTree {
+
+    private final TieredStore store;
+
+    final Object[] refs;
+
+    final Object[] keys;
+
+    final ToIntFunction<Object> keyOrdinals;
+
+    final int length;
+
+    volatile byte[] hot;
+
+    long handle = -1L;
+
+    volatile boolean referenced;
+
+    volatile long lastRead;
+
+    TieredTree(TieredStore store, EncodedTree<?> tree) {
+        this.store = store;
+        this.refs = tree.refs();
+        this.keys = tree.keys();
+        this.keyOrdinals = tree.keyOrdinals();
+        this.length = tree.bytes().length;
+        this.hot = tree.bytes();
+    }
+
+    /**
+     * @return The encoded tree, faulted in from the cold tier if needed
+     */
+    EncodedTree<?> tree() {
+        return new EncodedTree<>(store.bytes(this), refs, keys, keyOrdinals);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + length + " bytes, " + (hot == null ? "cold" : "hot") + "]";
+    }
+}
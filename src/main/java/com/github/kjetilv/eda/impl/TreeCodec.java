@@ -0,0 +1,419 @@
+package com.github.kjetilv.eda.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes canonical trees into a compact binary form, see {@link EncodedTree}.
+ * <p>
+ * Each value is a tag byte, followed by its payload:
+ * <ul>
+ *     <li>{@link #NULL}, {@link #TRUE}, {@link #FALSE}: No payload</li>
+ *     <li>{@link #REF}: Varint index into the reference table</li>
+ *     <li>{@link #MAP}: Varint body length, varint entry count, then pairs of varint key ordinal and value, in
+ *     key ordinal order</li>
+ *     <li>{@link #LIST}: Varint body length, varint element count, then the values</li>
+ *     <li>{@link #STRING}: Varint length, then UTF-8 bytes</li>
+ *     <li>{@link #INT}, {@link #LONG}: Zig-zag varint</li>
+ *     <li>{@link #DOUBLE}: Eight bytes</li>
+ * </ul>
+ * Body lengths allow containers to be skipped without decoding them.  Keys are given by their ordinal in a key
+ * table, which may be shared by many encoded trees.  Shared substructures and leaves of other types go in the
+ * reference table, as canonical instances.
+ */
+final class TreeCodec {
+
+    static final byte NULL = 0;
+
+    static final byte REF = 1;
+
+    static final byte MAP = 2;
+
+    static final byte LIST = 3;
+
+    static final byte STRING = 4;
+
+    static final byte INT = 5;
+
+    static final byte LONG = 6;
+
+    static final byte DOUBLE = 7;
+
+    static final byte TRUE = 8;
+
+    static final byte FALSE = 9;
+
+    /**
+     * @param roots Root maps
+     * @return Maps, lists and strings occurring more than once in the given roots, by identity
+     */
+    static Set<Object> shared(Collection<?> roots) {
+        Map<Object, Boolean> seen = new IdentityHashMap<>();
+        roots.forEach(root -> countReferences(root, seen));
+        Set<Object> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.forEach((value, repeated) -> {
+            if (repeated) {
+                shared.add(value);
+            }
+        });
+        return shared;
+    }
+
+    /**
+     * @param root   Root map
+     * @param shared Values to keep as references, instead of encoding them
+     * @param <K>    Key type
+     * @return Encoded tree, with its own key table
+     */
+    static <K> EncodedTree<K> encode(Map<K, ?> root, Predicate<Object> shared) {
+        Map<Object, Integer> ordinals = new HashMap<>();
+        List<Object> keys = new ArrayList<>();
+        Encoder encoder = new Encoder(shared, key -> ordinals.computeIfAbsent(key, __ -> {
+            keys.add(key);
+            return keys.size() - 1;
+        }));
+        byte[] bytes = encoder.encode(root);
+        return new EncodedTree<>(
+            bytes,
+            encoder.refs.toArray(),
+            keys.toArray(),
+            key -> ordinals.getOrDefault(key, -1)
+        );
+    }
+
+    /**
+     * @param root        Root map
+     * @param shared      Values to keep as references, instead of encoding them
+     * @param keyOrdinals Ordinals of keys in the key table
+     * @param keys        Key table, by ordinal
+     * @param lookups     Ordinals of keys in the key table, or -1 for unknown keys, for lookups in the encoded tree
+     * @param <K>         Key type
+     * @return Encoded tree, using the given key table
+     */
+    static <K> EncodedTree<K> encode(
+        Map<K, ?> root,
+        Predicate<Object> shared,
+        ToIntFunction<Object> keyOrdinals,
+        Object[] keys,
+        ToIntFunction<Object> lookups
+    ) {
+        Encoder encoder = new Encoder(shared, keyOrdinals);
+        byte[] bytes = encoder.encode(root);
+        return new EncodedTree<>(bytes, encoder.refs.toArray(), keys, lookups);
+    }
+
+    /**
+     * @param bytes  Bytes
+     * @param offset Offset of a value
+     * @return Offset of the next value
+     */
+    static int skip(byte[] bytes, int offset) {
+        int position = offset + 1;
+        return switch (bytes[offset]) {
+            case NULL, TRUE, FALSE -> position;
+            case REF, INT, LONG -> skipVarint(bytes, position);
+            case DOUBLE -> position + Long.BYTES;
+            case MAP, LIST, STRING -> {
+                int length = readVarint(bytes, position);
+                yield skipVarint(bytes, position) + length;
+            }
+            default -> throw new IllegalStateException("Unknown tag " + bytes[offset] + " at " + offset);
+        };
+    }
+
+    /**
+     * @param bytes  Bytes
+     * @param offset Offset of a value
+     * @param refs   Reference table
+     * @param keys        Key table
+     * @param keyOrdinals Ordinals of keys in the key table, or -1 for unknown keys
+     * @return Decoded value. Maps and lists are returned as lazy views
+     */
+    static Object decode(byte[] bytes, int offset, Object[] refs, Object[] keys, ToIntFunction<Object> keyOrdinals) {
+        int position = offset + 1;
+        return switch (bytes[offset]) {
+            case NULL -> null;
+            case TRUE -> true;
+            case FALSE -> false;
+            case REF -> refs[readVarint(bytes, position)];
+            case MAP -> new LazyMap<>(bytes, offset, refs, keys, keyOrdinals);
+            case LIST -> new LazyList(bytes, offset, refs, keys, keyOrdinals);
+            case STRING -> {
+                int length = readVarint(bytes, position);
+                yield new String(bytes, skipVarint(bytes, position), length, UTF_8);
+            }
+            case INT -> (int) unzigzag(readVarlong(bytes, position));
+            case LONG -> unzigzag(readVarlong(bytes, position));
+            case DOUBLE -> Double.longBitsToDouble(readLong(bytes, position));
+            default -> throw new IllegalStateException("Unknown tag " + bytes[offset] + " at " + offset);
+        };
+    }
+
+    /**
+     * Find a value in an encoded map, without decoding the map.  Entries are in key ordinal order, so the scan
+     * stops at the first greater ordinal.
+     *
+     * @param bytes      Bytes
+     * @param offset     Offset of a map
+     * @param keyOrdinal Ordinal of the key
+     * @return Offset of the value under the key, or -1 if the key is absent
+     */
+    static int find(byte[] bytes, int offset, int keyOrdinal) {
+        int position = body(bytes, offset);
+        int size = readVarint(bytes, position);
+        position = skipVarint(bytes, position);
+        for (int i = 0; i < size; i++) {
+            int ordinal = readVarint(bytes, position);
+            position = skipVarint(bytes, position);
+            if (ordinal == keyOrdinal) {
+                return position;
+            }
+            if (ordinal > keyOrdinal) {
+                return -1;
+            }
+            position = skip(bytes, position);
+        }
+        return -1;
+    }
+
+    /**
+     * @param bytes  Bytes
+     * @param offset Offset of a map or list
+     * @return Offset of the element count, following the body length
+     */
+    static int body(byte[] bytes, int offset) {
+        return skipVarint(bytes, offset + 1);
+    }
+
+    static int readVarint(byte[] bytes, int offset) {
+        return (int) readVarlong(bytes, offset);
+    }
+
+    static long readVarlong(byte[] bytes, int offset) {
+        long value = 0L;
+        int shift = 0;
+        for (int position = offset; ; position++) {
+            byte b = bytes[position];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    static int skipVarint(byte[] bytes, int offset) {
+        int position = offset;
+        while (bytes[position] < 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private TreeCodec() {
+    }
+
+    private static void countReferences(Object value, Map<Object, Boolean> seen) {
+        switch (value) {
+            case Map<?, ?> map -> {
+                if (firstTime(value, seen)) {
+                    map.values().forEach(child -> countReferences(child, seen));
+                }
+            }
+            case List<?> list -> {
+                if (firstTime(value, seen)) {
+                    list.forEach(child -> countReferences(child, seen));
+                }
+            }
+            case String string -> firstTime(string, seen);
+            case null, default -> {
+            }
+        }
+    }
+
+    private static boolean firstTime(Object value, Map<Object, Boolean> seen) {
+        return seen.merge(value, false, (__, ___) -> true) == Boolean.FALSE;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = value << 8 | bytes[offset + i] & 0xFF;
+        }
+        return value;
+    }
+
+    private static final class Encoder {
+
+        private final Predicate<Object> shared;
+
+        private final ToIntFunction<Object> keyOrdinals;
+
+        private final List<Object> refs = new ArrayList<>();
+
+        private final Map<Object, Integer> refIndexes = new IdentityHashMap<>();
+
+        private Encoder(Predicate<Object> shared, ToIntFunction<Object> keyOrdinals) {
+            this.shared = shared;
+            this.keyOrdinals = keyOrdinals;
+        }
+
+        private byte[] encode(Map<?, ?> root) {
+            Sink sink = new Sink();
+            writeMap(root, sink);
+            return sink.toByteArray();
+        }
+
+        private void write(Object value, Sink sink) {
+            if (value != null && shared.test(value)) {
+                writeRef(value, sink);
+                return;
+            }
+            switch (value) {
+                case null -> sink.write(NULL);
+                case Map<?, ?> map -> writeMap(map, sink);
+                case List<?> list -> writeList(list, sink);
+                case String string -> {
+                    byte[] bytes = string.getBytes(UTF_8);
+                    sink.write(STRING);
+                    sink.writeVarlong(bytes.length);
+                    sink.write(bytes);
+                }
+                case Integer i -> {
+                    sink.write(INT);
+                    sink.writeVarlong(zigzag(i));
+                }
+                case Long l -> {
+                    sink.write(LONG);
+                    sink.writeVarlong(zigzag(l));
+                }
+                case Double d -> {
+                    sink.write(DOUBLE);
+                    sink.writeLong(Double.doubleToRawLongBits(d));
+                }
+                case Boolean b -> sink.write(b ? TRUE : FALSE);
+                default -> writeRef(value, sink);
+            }
+        }
+
+        private void writeMap(Map<?, ?> map, Sink sink) {
+            Sink body = new Sink();
+            body.writeVarlong(map.size());
+            Map.Entry<?, ?>[] entries = map.entrySet().toArray(Map.Entry[]::new);
+            long[] order = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                order[i] = (long) keyOrdinals.applyAsInt(entries[i].getKey()) << Integer.SIZE | i;
+            }
+            Arrays.sort(order);
+            for (long ordered : order) {
+                body.writeVarlong(ordered >>> Integer.SIZE);
+                write(entries[(int) ordered].getValue(), body);
+            }
+            sink.write(MAP);
+            sink.writeVarlong(body.size());
+            sink.write(body);
+        }
+
+        private void writeList(List<?> list, Sink sink) {
+            Sink body = new Sink();
+            body.writeVarlong(list.size());
+            list.forEach(value -> write(value, body));
+            sink.write(LIST);
+            sink.writeVarlong(body.size());
+            sink.write(body);
+        }
+
+        private void writeRef(Object value, Sink sink) {
+            sink.write(REF);
+            sink.writeVarlong(refIndex(value));
+        }
+
+        private int refIndex(Object value) {
+            return refIndexes.computeIfAbsent(value, __ -> {
+                refs.add(value);
+                return refs.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * A growable byte array
+     */
+    static final class Sink {
+
+        private byte[] bytes = new byte[32];
+
+        private int size;
+
+        void write(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, this.bytes, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void write(Sink sink) {
+            ensure(sink.size);
+            System.arraycopy(sink.bytes, 0, bytes, size, sink.size);
+            size += sink.size;
+        }
+
+        void writeVarlong(long value) {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                write((byte) (remaining & 0x7F | 0x80));
+                remaining >>>= 7;
+            }
+            write((byte) remaining);
+        }
+
+        void writeLong(long value) {
+            for (int i = Long.BYTES - 1; i >= 0; i--) {
+                write((byte) (value >>> i * 8));
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        /**
+         * @param from Start position
+         * @return Bytes written since the start position
+         */
+        byte[] toByteArray(int from) {
+            return Arrays.copyOfRange(bytes, from, size);
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
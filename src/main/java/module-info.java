@@ -1,3 +1,5 @@
 module edamame {
+    requires static jdk.jfr;
+    requires static java.management;
     exports com.github.kjetilv.eda;
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.IngestOptions;
+import com.github.kjetilv.eda.IngestStats;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizedMaps;
+import com.github.kjetilv.eda.MemoizerOptions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncIngestTest {
+
+    @Test
+    void shouldIngestAsync() {
+        MapsMemoizer<Long, String> memoizer = MapsMemoizers.create(
+            MemoizerOptions.defaults().ingest(IngestOptions.defaults().workers(4).virtualThreads(true))
+        );
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (long i = 0; i < 10_000; i++) {
+            futures.add(memoizer.putAsync(i, Map.of("foo", "bar" + i % 10, "zot", Map.of("zip", i % 3))));
+        }
+        CompletableFuture<Void> duplicate = memoizer.putAsync(42L, Map.of("foo", "bar"));
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        CompletionException failure = assertThrows(CompletionException.class, duplicate::join);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+
+        IngestStats stats = memoizer.ingestStats();
+        assertEquals(10_001L, stats.completed());
+        assertThat(stats.p99()).isGreaterThanOrEqualTo(stats.p50());
+
+        MemoizedMaps<Long, String> access = memoizer.complete();
+        assertEquals(10_000, access.size());
+        assertEquals(Map.of("foo", "bar7", "zot", Map.of("zip", 2L)), access.get(17L));
+        assertThrows(IllegalStateException.class, () -> memoizer.putAsync(10_001L, Map.of()));
+    }
+
+    @Test
+    void shouldDrainOnComplete() {
+        MapsMemoizer<Long, String> memoizer = MapsMemoizers.create(
+            MemoizerOptions.defaults().ingest(IngestOptions.defaults().workers(2).queueCapacity(16).batchSize(4))
+        );
+        for (long i = 0; i < 1000; i++) {
+            memoizer.putAsync(i, Map.of("foo", i));
+        }
+        assertEquals(1000, memoizer.complete().size());
+    }
+
+    @Test
+    void shouldRejectWhenFull() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> committed = new ArrayList<>();
+        AsyncIngest<Long, Long> ingest = new AsyncIngest<>(
+            "test",
+            IngestOptions.defaults()
+                .workers(1)
+                .queueCapacity(2)
+                .backpressure(IngestOptions.Backpressure.REJECT),
+            (identifier, value) -> {
+                blocked.countDown();
+                await(release);
+                return identifier;
+            },
+            committed::add,
+            Runnable::run
+        );
+        CompletableFuture<Void> first = ingest.submit(0L, Map.of());
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        ingest.submit(1L, Map.of());
+        ingest.submit(2L, Map.of());
+        CompletableFuture<Void> rejected = ingest.submit(3L, Map.of());
+
+        CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        assertEquals(1L, ingest.stats().rejected());
+        assertEquals(2, ingest.stats().queueDepth());
+
+        release.countDown();
+        first.join();
+        ingest.close();
+        assertEquals(List.of(0L, 1L, 2L), committed);
+        assertThrows(IllegalStateException.class, () -> ingest.submit(4L, Map.of()));
+    }
+
+    @Test
+    void shouldFailFuturesOnErrors() {
+        AsyncIngest<Long, Long> ingest = new AsyncIngest<>(
+            "test",
+            IngestOptions.defaults().workers(1),
+            (identifier, value) -> {
+                if (identifier == 0L) {
+                    throw new StackOverflowError("too deep");
+                }
+                return identifier;
+            },
+            identifier -> {
+                if (identifier == 1L) {
+                    throw new AssertionError("bad commit");
+                }
+            },
+            Runnable::run
+        );
+        CompletableFuture<Void> prepareFailure = ingest.submit(0L, Map.of());
+        CompletableFuture<Void> commitFailure = ingest.submit(1L, Map.of());
+        CompletableFuture<Void> ok = ingest.submit(2L, Map.of());
+
+        assertInstanceOf(
+            StackOverflowError.class,
+            assertThrows(CompletionException.class, prepareFailure::join).getCause()
+        );
+        assertInstanceOf(AssertionError.class, assertThrows(CompletionException.class, commitFailure::join).getCause());
+        ok.join();
+        ingest.close();
+    }
+
+    @Test
+    void shouldStopOnClose() {
+        MapsMemoizer<Long, String> memoizer = MapsMemoizers.create(
+            MemoizerOptions.defaults().ingest(IngestOptions.defaults().workers(2))
+        );
+        for (long i = 0; i < 100; i++) {
+            memoizer.putAsync(i, Map.of("foo", i));
+        }
+        memoizer.close();
+        assertEquals(100, memoizer.size());
+        assertTrue(Thread.getAllStackTraces()
+            .keySet()
+            .stream()
+            .noneMatch(thread -> thread.getName().startsWith("MapsMemoizerImpl@" + System.identityHashCode(memoizer))));
+        assertThrows(IllegalStateException.class, () -> memoizer.putAsync(100L, Map.of()));
+        assertThrows(IllegalStateException.class, () -> memoizer.put(100L, Map.of()));
+        memoizer.close();
+    }
+
+    @Test
+    void shouldBucketLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(Duration.ZERO, histogram.percentile(0.5d));
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos * 1000L);
+        }
+        assertThat(histogram.percentile(0.5d).toNanos()).isBetween(500_000L, 500_000L * 9 / 8);
+        assertThat(histogram.percentile(0.99d).toNanos()).isBetween(990_000L, 990_000L * 9 / 8);
+        for (long value : new long[] { 0L, 1L, 7L, 8L, 9L, 1000L, Long.MAX_VALUE }) {
+            int index = LatencyHistogram.index(value);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(value);
+            assertThat(index == 0 || LatencyHistogram.upperBound(index - 1) < value).isTrue();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
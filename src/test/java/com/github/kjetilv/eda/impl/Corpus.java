@@ -0,0 +1,151 @@
+package com.github.kjetilv.eda.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A deterministic generator of JSON-like documents.  Each document is generated from its index and the seed
+ * alone, so documents can be generated one at a time, and the same settings always give equal documents.
+ * <p>
+ * A document has a unique id, and {@link #width() width} fields.  With probability given by the
+ * {@link #dupRatio() duplication ratio}, a field holds a subtree drawn from a small pool, so that it recurs
+ * across documents.  Otherwise, the subtree is unique to the document.  Subtrees are built anew for each
+ * document, so recurring subtrees are equal, but never the same instances.
+ * <p>
+ * Below the root, a field holds a map, a list or a leaf, down to the given {@link #depth() depth}.  Each map
+ * uses one of {@link #keySets() key sets}, and leaves are drawn from a set of
+ * {@link #leafCardinality() leaf cardinality} distinct values, of mixed types.
+ *
+ * @param depth           Levels of maps and lists below the root
+ * @param width           Fields per map, and elements per list
+ * @param keySets         Number of distinct key sets
+ * @param leafCardinality Number of distinct leaves
+ * @param dupRatio        Share of root fields that recur across documents, between 0 and 1
+ * @param seed            Seed
+ */
+public record Corpus(int depth, int width, int keySets, int leafCardinality, double dupRatio, long seed) {
+
+    public static Corpus defaults() {
+        return new Corpus(3, 4, 4, 1_000, 0.5d, 42L);
+    }
+
+    public Corpus {
+        if (depth < 1 || width < 1 || keySets < 1 || leafCardinality < 1) {
+            throw new IllegalArgumentException("Invalid corpus: " + this);
+        }
+        if (dupRatio < 0d || dupRatio > 1d) {
+            throw new IllegalArgumentException("Invalid duplication ratio: " + dupRatio);
+        }
+    }
+
+    public Corpus depth(int depth) {
+        return new Corpus(depth, width, keySets, leafCardinality, dupRatio, seed);
+    }
+
+    public Corpus width(int width) {
+        return new Corpus(depth, width, keySets, leafCardinality, dupRatio, seed);
+    }
+
+    public Corpus keySets(int keySets) {
+        return new Corpus(depth, width, keySets, leafCardinality, dupRatio, seed);
+    }
+
+    public Corpus leafCardinality(int leafCardinality) {
+        return new Corpus(depth, width, keySets, leafCardinality, dupRatio, seed);
+    }
+
+    public Corpus dupRatio(double dupRatio) {
+        return new Corpus(depth, width, keySets, leafCardinality, dupRatio, seed);
+    }
+
+    public Corpus seed(long seed) {
+        return new Corpus(depth, width, keySets, leafCardinality, dupRatio, seed);
+    }
+
+    /**
+     * @param count Number of documents
+     * @return The first documents, generated lazily
+     */
+    public Stream<Map<String, Object>> documents(int count) {
+        return IntStream.range(0, count).mapToObj(this::document);
+    }
+
+    /**
+     * @param count Number of documents
+     * @return The first documents
+     */
+    public List<Map<String, Object>> list(int count) {
+        return documents(count).toList();
+    }
+
+    /**
+     * @param index Index
+     * @return Document with the given index
+     */
+    public Map<String, Object> document(int index) {
+        Random random = new Random(mix(seed, index));
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("id", index);
+        for (int i = 0; i < width; i++) {
+            Random fieldRandom = random.nextDouble() < dupRatio
+                ? new Random(mix(seed, -1 - random.nextInt(POOL)))
+                : new Random(random.nextLong());
+            document.put("field" + i, map(fieldRandom, depth));
+        }
+        return document;
+    }
+
+    private static final int POOL = 16;
+
+    private Object value(Random random, int depth) {
+        if (depth <= 0) {
+            return leaf(random);
+        }
+        return switch (random.nextInt(3)) {
+            case 0 -> map(random, depth);
+            case 1 -> list(random, depth);
+            default -> leaf(random);
+        };
+    }
+
+    private Map<String, Object> map(Random random, int depth) {
+        int keySet = random.nextInt(keySets);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < width; i++) {
+            map.put("k" + keySet + "_" + i, value(random, depth - 1));
+        }
+        return map;
+    }
+
+    private List<Object> list(Random random, int depth) {
+        List<Object> list = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            list.add(value(random, depth - 1));
+        }
+        return list;
+    }
+
+    private Object leaf(Random random) {
+        int value = random.nextInt(leafCardinality);
+        return switch (value % 5) {
+            case 0 -> "value-" + value;
+            case 1 -> value;
+            case 2 -> (long) value << 32;
+            case 3 -> value / 4.0d;
+            default -> value % 2 == 0;
+        };
+    }
+
+    private static long mix(long seed, long index) {
+        long h = seed ^ index * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.KeyPath;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizedMaps;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DagCodecTest {
+
+    @Test
+    void shouldRoundTrip() throws IOException {
+        Map<String, Object> shared = Map.of(
+            "street", "Street 1",
+            "zip", "0123",
+            "when", Instant.parse("2025-01-01T12:00:00.5Z"),
+            "id", new UUID(1L, 2L)
+        );
+        Map<String, Object> in1 = Map.of(
+            "address", shared,
+            "numbers", Arrays.asList(1, 2L, 3.5d, 4.5f, (short) 5, (byte) 6, null),
+            "big", List.of(new BigInteger("123456789012345678901234567890"), new BigDecimal("-1.250")),
+            "flag", true
+        );
+        Map<String, Object> in2 = Map.of("address", shared, "flag", false);
+
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        cache.put(1L, in1);
+        cache.put(2L, in2);
+        cache.put(3L, in2);
+        MemoizedMaps<Long, String> source = cache.complete(Completion.ENCODED);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.writeTo(out);
+        MemoizedMaps<Long, String> target = MapsMemoizers.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(3, target.size());
+        assertEquals(in1, target.get(1L));
+        assertEquals(in2, target.get(2L));
+        assertSame(target.get(2L), target.get(3L));
+        assertSame(target.get(1L).get("address"), target.get(2L).get("address"));
+        assertEquals(source.fingerprint(1L), target.fingerprint(1L));
+        assertTrue(target.sameContent(2L, 3L));
+        assertEquals("0123", target.get(1L, KeyPath.of("address", "zip")));
+    }
+
+    @Test
+    void shouldWriteSharedStructureOnce() throws IOException {
+        Map<String, Object> shared = Map.of("text", "x".repeat(1000));
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, Map.of("id", i, "shared", shared));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.complete().writeTo(out);
+        assertTrue(out.size() < 5000, "Export of " + out.size() + " bytes");
+    }
+
+    @Test
+    void shouldRejectUnsupported() {
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        cache.put(1L, Map.of("pojo", new Object() {
+            @Override
+            public String toString() {
+                return "pojo";
+            }
+        }));
+        assertThrows(IllegalStateException.class, () -> cache.writeTo(new ByteArrayOutputStream()));
+        assertThrows(IOException.class, () -> MapsMemoizers.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3})));
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.PojoBytes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class DefaultLeafHasherTest {
+
+    @Test
+    void shouldTellTypesApart() {
+        LeafHasher hasher = hasher(PojoBytes.HASHCODE);
+        assertEquals(new One(1).hashCode(), new Other(1).hashCode());
+        assertNotEquals(hasher.hash(new One(1)), hasher.hash(new Other(1)));
+        assertEquals(hasher.hash(new One(1)), hasher.hash(new One(1)));
+    }
+
+    @Test
+    void shouldHashFields() {
+        LeafHasher hashCodes = hasher(PojoBytes.HASHCODE);
+        LeafHasher fields = hasher(PojoBytes.FIELDS);
+        Pojo pojo = new Pojo("foo", 1L, new One(2));
+        Pojo other = new Pojo("bar", 2L, new One(3));
+        assertEquals(hashCodes.hash(pojo), hashCodes.hash(other));
+
+        assertNotEquals(fields.hash(pojo), fields.hash(other));
+        assertEquals(fields.hash(pojo), fields.hash(new Pojo("foo", 1L, new One(2))));
+        assertNotEquals(fields.hash(pojo), fields.hash(new Pojo("foo", 1L, new One(3))));
+        assertNotEquals(fields.hash(pojo), fields.hash(new Pojo("foo", 1L, null)));
+        assertEquals(
+            fields.hash(new Pojo("foo", 1L, List.of(1))),
+            fields.hash(new Pojo("foo", 1L, List.of(1)))
+        );
+    }
+
+    @Test
+    void shouldTagEnumsAndNumbersInFields() {
+        LeafHasher fields = hasher(PojoBytes.FIELDS);
+        assertNotEquals(
+            fields.hash(new Pojo("foo", 1L, Color.RED)),
+            fields.hash(new Pojo("foo", 1L, "RED"))
+        );
+        assertNotEquals(
+            fields.hash(new Pojo("foo", 1L, Color.RED)),
+            fields.hash(new Pojo("foo", 1L, Shade.RED))
+        );
+        assertEquals(
+            fields.hash(new Pojo("foo", 1L, Shade.RED)),
+            fields.hash(new Pojo("foo", 1L, Shade.RED))
+        );
+        assertNotEquals(
+            fields.hash(new Pojo("foo", 1L, new BigDecimal("5"))),
+            fields.hash(new Pojo("foo", 1L, new BigInteger("5")))
+        );
+    }
+
+    @Test
+    void shouldHashArraysByContent() {
+        LeafHasher fields = hasher(PojoBytes.FIELDS);
+        assertEquals(
+            fields.hash(new Pojo("foo", 1L, new int[] {1, 2})),
+            fields.hash(new Pojo("foo", 1L, new int[] {1, 2}))
+        );
+        assertNotEquals(
+            fields.hash(new Pojo("foo", 1L, new int[] {1, 2})),
+            fields.hash(new Pojo("foo", 1L, new int[] {2, 1}))
+        );
+        assertEquals(
+            fields.hash(new Pojo("foo", 1L, new Object[] {"a", new byte[] {1}})),
+            fields.hash(new Pojo("foo", 1L, new Object[] {"a", new byte[] {1}}))
+        );
+        assertNotEquals(
+            fields.hash(new Pojo("foo", 1L, new long[] {1L})),
+            fields.hash(new Pojo("foo", 1L, new int[] {1}))
+        );
+    }
+
+    @Test
+    void shouldSkipTransientFields() {
+        LeafHasher fields = hasher(PojoBytes.FIELDS);
+        Cached one = new Cached("foo");
+        Cached two = new Cached("foo");
+        two.cache = "computed";
+        assertEquals(fields.hash(one), fields.hash(two));
+        assertNotEquals(fields.hash(one), fields.hash(new Cached("bar")));
+    }
+
+    private static LeafHasher hasher(PojoBytes pojoBytes) {
+        return new DefaultLeafHasher(() -> DigestiveHashBuilder.create(new ByteDigest()), pojoBytes);
+    }
+
+    private record One(int value) {
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+    private record Other(int value) {
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+    private enum Color {
+        RED
+    }
+
+    private enum Shade {
+        RED {
+            @Override
+            public String toString() {
+                return "dark red";
+            }
+        }
+    }
+
+    private static final class Cached {
+
+        private final String name;
+
+        private transient String cache;
+
+        private Cached(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Pojo {
+
+        private final String name;
+
+        private final long id;
+
+        private final Object nested;
+
+        private Pojo(String name, long id, Object nested) {
+            this.name = name;
+            this.id = id;
+            this.nested = nested;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
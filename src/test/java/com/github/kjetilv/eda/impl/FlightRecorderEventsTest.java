@@ -0,0 +1,77 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    @Test
+    void shouldRecordEvents() throws IOException {
+        Path file = Files.createTempFile("edamame", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.github.kjetilv.eda.Put").withThreshold(Duration.ZERO);
+            recording.enable("com.github.kjetilv.eda.Get").withThreshold(Duration.ZERO);
+            recording.enable("com.github.kjetilv.eda.Complete");
+            recording.start();
+
+            MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+            Map<String, Object> address = Map.of("street", "Street 1", "zip", "0123");
+            cache.put(1L, Map.of("name", "foo", "address", address));
+            cache.put(2L, Map.of("name", "bar", "address", address));
+            cache.get(1L);
+            cache.get(3L);
+            cache.complete(Completion.FROZEN_INDEX);
+
+            recording.stop();
+            recording.dump(file);
+        }
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            List<RecordedEvent> puts = named(events, "com.github.kjetilv.eda.Put");
+            assertEquals(2, puts.size());
+            RecordedEvent second = puts.stream()
+                .filter(event -> event.getString("identifier").equals("2"))
+                .findFirst()
+                .orElseThrow();
+            assertEquals("ADDED", second.getString("outcome"));
+            assertEquals(5, second.getInt("nodes"));
+            assertEquals(3, second.getInt("catalogueHits"));
+            assertEquals(2, second.getInt("catalogueMisses"));
+            assertEquals(0, second.getInt("collisions"));
+            assertTrue(second.getDuration("hashTime").toNanos() > 0);
+            assertTrue(second.getDuration("canonicalizeTime").toNanos() > 0);
+
+            List<RecordedEvent> gets = named(events, "com.github.kjetilv.eda.Get");
+            assertEquals(2, gets.size());
+            assertEquals(1, gets.stream().filter(event -> event.getBoolean("found")).count());
+
+            List<RecordedEvent> completes = named(events, "com.github.kjetilv.eda.Complete");
+            assertEquals(1, completes.size());
+            assertEquals(2, completes.getFirst().getInt("maps"));
+            assertEquals("[FROZEN_INDEX]", completes.getFirst().getString("completions"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+            .filter(event -> event.getEventType().getName().equals(name))
+            .toList();
+    }
+}
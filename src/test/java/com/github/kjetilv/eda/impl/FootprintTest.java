@@ -0,0 +1,152 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.Footprint;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizerOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FootprintTest {
+
+    @Test
+    void shouldStartEmpty() {
+        Footprint footprint = MapsMemoizers.<Long>create().complete().footprint();
+        assertEquals(new Footprint(0L, 0L, 0L, 0L, 0L, 0L, 0L), footprint);
+    }
+
+    @Test
+    void shouldEstimateShapes() {
+        assertEquals(48L, SizeEstimates.leaf("foo"));
+        assertEquals(SizeEstimates.BOXED, SizeEstimates.leaf(123L));
+        assertEquals(0L, SizeEstimates.leaf(true));
+        assertEquals(32L, SizeEstimates.array(3, Integer.BYTES));
+        assertEquals(0L, SizeEstimates.list(0));
+        assertEquals(56L, SizeEstimates.list(3));
+        assertEquals(80L, SizeEstimates.map(0));
+        assertEquals(176L, SizeEstimates.map(2));
+        assertEquals(
+            SizeEstimates.map(1) + SizeEstimates.list(2) + SizeEstimates.leaf("a") + SizeEstimates.leaf(1L),
+            SizeEstimates.tree(Map.of("foo", List.of("a", 1L)))
+        );
+    }
+
+    @Test
+    void shouldEstimateOnePut() {
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        cache.put(1L, document("foo"));
+        Footprint footprint = cache.footprint();
+
+        long leaves = SizeEstimates.leaf("foo") +
+                      SizeEstimates.leaf("a") +
+                      SizeEstimates.leaf("b") +
+                      SizeEstimates.leaf("c") +
+                      SizeEstimates.leaf("Street 1") +
+                      SizeEstimates.leaf(123L);
+        assertEquals(leaves, footprint.leaves());
+        assertEquals(SizeEstimates.list(3), footprint.lists());
+        assertEquals(SizeEstimates.map(3) + SizeEstimates.map(2), footprint.maps());
+        assertEquals(
+            leaves + footprint.lists() + footprint.maps() + SizeEstimates.leaf(1L) + SizeEstimates.ENTRY,
+            footprint.undeduplicated()
+        );
+    }
+
+    @Test
+    void shouldCountSharedValuesOnce() {
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        cache.put(1L, document("foo"));
+        Footprint one = cache.footprint();
+        assertTrue(one.leaves() > 0L);
+        assertTrue(one.lists() > 0L);
+        assertTrue(one.maps() > 0L);
+        assertTrue(one.keys() > 0L);
+        assertTrue(one.index() > 0L);
+        assertTrue(one.working() > 0L);
+
+        for (long i = 2L; i <= 100L; i++) {
+            cache.put(i, document("foo"));
+        }
+        Footprint hundred = cache.footprint();
+        assertEquals(one.leaves(), hundred.leaves());
+        assertEquals(one.lists(), hundred.lists());
+        assertEquals(one.maps(), hundred.maps());
+        assertEquals(one.keys(), hundred.keys());
+        assertTrue(hundred.undeduplicated() > 50 * one.undeduplicated());
+        assertTrue(hundred.saved() > 0L);
+    }
+
+    @Test
+    void shouldDropReplacedMapsFromUndeduplicated() {
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        cache.put(1L, document("foo"));
+        long before = cache.footprint().undeduplicated();
+
+        cache.putIfChanged(1L, document("bar"));
+        assertEquals(before, cache.footprint().undeduplicated());
+
+        cache.putIfAbsent(1L, document("zot"));
+        assertEquals(before, cache.footprint().undeduplicated());
+    }
+
+    @Test
+    void shouldFreeWorkingStateOnCompletion() {
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        for (long i = 0L; i < 10L; i++) {
+            cache.put(i, document("foo" + i % 3));
+        }
+        Footprint working = cache.footprint();
+        Footprint frozen = cache.complete(Completion.FROZEN_INDEX).footprint();
+        assertTrue(working.working() > 0L);
+        assertEquals(0L, frozen.working());
+        assertEquals(working.maps(), frozen.maps());
+        assertEquals(working.undeduplicated(), frozen.undeduplicated());
+        assertTrue(frozen.index() > 0L);
+    }
+
+    @Test
+    void shouldEstimateImports() throws IOException {
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create();
+        for (long i = 0L; i < 10L; i++) {
+            cache.put(i, document("foo" + i % 3));
+        }
+        Footprint exported = cache.complete().footprint();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.complete().writeTo(out);
+
+        Footprint imported = MapsMemoizers.<Long>readFrom(new ByteArrayInputStream(out.toByteArray())).footprint();
+        assertEquals(exported.maps(), imported.maps());
+        assertEquals(exported.lists(), imported.lists());
+        assertEquals(exported.undeduplicated(), imported.undeduplicated());
+    }
+
+    @Test
+    void shouldCountRepeatedValueObjectsInFull() {
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create(MemoizerOptions.defaults().decomposeRecords());
+        Point point = new Point("origin", List.of(0L, 0L));
+        cache.put(1L, Map.of("point", point, "n", 1L));
+        long one = cache.footprint().undeduplicated();
+
+        cache.put(2L, Map.of("point", point, "n", 2L));
+        assertEquals(2 * one, cache.footprint().undeduplicated());
+    }
+
+    private static Map<String, Object> document(String name) {
+        return Map.of(
+            "name", name,
+            "tags", List.of("a", "b", "c"),
+            "address", Map.of("street", "Street 1", "zip", 123)
+        );
+    }
+
+    private record Point(String name, List<Long> coordinates) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.kjetilv.eda.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrozenIndexTest {
+
+    @Test
+    void shouldFindAll() {
+        List<Long> identifiers = LongStream.range(0, 10_000)
+            .map(l -> l * 31 + 7)
+            .boxed()
+            .toList();
+        FrozenIndex<Long> index = FrozenIndex.build(identifiers);
+
+        assertEquals(identifiers.size(), index.size());
+        Set<Integer> slots = new HashSet<>();
+        identifiers.forEach(identifier -> {
+            int slot = index.slot(identifier);
+            assertEquals(identifier, index.identifiers()[slot]);
+            assertTrue(slots.add(slot));
+        });
+        assertEquals(-1, index.slot(8L));
+        assertEquals(-1, index.slot(-1L));
+    }
+
+    @Test
+    void shouldHandleSharedHashCodes() {
+        // "Aa" and "BB" famously share hash code
+        FrozenIndex<String> index = FrozenIndex.build(List.of("Aa", "BB", "C"));
+
+        assertEquals(3, index.size());
+        assertEquals("Aa", index.identifiers()[index.slot("Aa")]);
+        assertEquals("BB", index.identifiers()[index.slot("BB")]);
+        assertEquals("C", index.identifiers()[index.slot("C")]);
+        assertEquals(-1, index.slot("D"));
+    }
+
+    @Test
+    void shouldHandleEmpty() {
+        FrozenIndex<String> index = FrozenIndex.build(List.of());
+
+        assertEquals(0, index.size());
+        assertEquals(-1, index.slot("foo"));
+    }
+}
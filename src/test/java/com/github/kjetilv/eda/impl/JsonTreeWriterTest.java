@@ -0,0 +1,109 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.JsonWriter;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MemoizedMaps;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTreeWriterTest {
+
+    private static final Map<String, Object> SHARED =
+        Map.of("items", List.of("a \"quoted\"\nline", 1, 2.5d, true, Double.NaN, "a longer string to cache"));
+
+    private static final String SHARED_JSON =
+        "{\"items\":[\"a \\\"quoted\\\"\\nline\",1,2.5,true,null,\"a longer string to cache\"]}";
+
+    @Test
+    void shouldWriteAndCacheSharedSubtrees() throws IOException {
+        MapsMemoizer<Long, String> cache = memoizer();
+        JsonWriter<Long> writer = cache.jsonWriter(1024);
+
+        assertEquals("{\"doc\":" + SHARED_JSON + "}", json(writer, 1L));
+        long cached = writer.cachedBytes();
+        assertTrue(cached > 0);
+        assertEquals("{\"other\":" + SHARED_JSON + "}", json(writer, 2L));
+        assertEquals("{\"list\":[null,\"x\"]}", json(writer, 3L));
+        assertNull(writer.toJson(4L));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(writer.write(1L, out));
+        assertFalse(writer.write(4L, out));
+        assertEquals("{\"doc\":" + SHARED_JSON + "}", out.toString(UTF_8));
+    }
+
+    @Test
+    void shouldWriteEncoded() {
+        MemoizedMaps<Long, String> access = memoizer().complete(Completion.ENCODED);
+        JsonWriter<Long> writer = access.jsonWriter(1024);
+        assertEquals("{\"doc\":" + SHARED_JSON + "}", json(writer, 1L));
+        assertEquals("{\"other\":" + SHARED_JSON + "}", json(writer, 2L));
+    }
+
+    @Test
+    void shouldNotCacheEncodedRoots() {
+        MemoizedMaps<Long, String> access = memoizer().complete(Completion.ENCODED);
+        JsonWriter<Long> writer = access.jsonWriter(1024);
+        json(writer, 1L);
+        long shared = writer.cachedBytes();
+        assertTrue(shared > 0);
+        json(writer, 2L);
+        json(writer, 1L);
+        assertEquals(shared, writer.cachedBytes());
+    }
+
+    @Test
+    void shouldWriteConcurrently() throws InterruptedException {
+        JsonWriter<Long> writer = memoizer().jsonWriter(SHARED_JSON.length() + 10);
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger mismatches = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    long identifier = 1L + j % 2;
+                    String expected = "{\"" + (identifier == 1L ? "doc" : "other") + "\":" + SHARED_JSON + "}";
+                    if (!expected.equals(json(writer, identifier))) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+        assertTrue(writer.cachedBytes() <= SHARED_JSON.length() + 10);
+    }
+
+    @Test
+    void shouldRespectBound() {
+        JsonWriter<Long> writer = memoizer().jsonWriter(SHARED_JSON.length() + 10);
+        json(writer, 1L);
+        json(writer, 2L);
+        assertTrue(writer.cachedBytes() <= SHARED_JSON.length() + 10);
+        assertEquals(0L, memoizer().jsonWriter(0).cachedBytes());
+    }
+
+    private static MapsMemoizer<Long, String> memoizer() {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.create(null, null);
+        cache.put(1L, Map.of("doc", SHARED));
+        cache.put(2L, Map.of("other", SHARED));
+        cache.put(3L, Map.of("list", Arrays.asList(null, "x")));
+        return cache;
+    }
+
+    private static String json(JsonWriter<Long> writer, long identifier) {
+        return new String(writer.toJson(identifier), UTF_8);
+    }
+}
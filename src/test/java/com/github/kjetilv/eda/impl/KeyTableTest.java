@@ -0,0 +1,48 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyHandler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyTableTest {
+
+    @Test
+    void shouldLookUpWithoutAdding() {
+        KeyTable<String> keyTable = new KeyTable<>(MapsMemoizersTest::md5HashBuilder, KeyHandler.defaultHandler());
+        String foo = keyTable.normalize("foo");
+        byte[] fooBytes = keyTable.bytes(foo);
+
+        KeyHandler<String> lookups = keyTable.lookups();
+        assertSame(foo, lookups.normalize("foo"));
+        assertArrayEquals(fooBytes, lookups.bytes("foo"));
+
+        String bar = lookups.normalize("bar");
+        assertEquals("bar", bar);
+        byte[] barBytes = lookups.bytes(bar);
+        assertEquals(1, keyTable.size());
+        assertEquals(-1, keyTable.ordinalOf("bar"));
+
+        assertArrayEquals(barBytes, keyTable.bytes(keyTable.normalize("bar")));
+        assertEquals(2, keyTable.size());
+    }
+
+    @Test
+    void shouldKeepOrdinalsWhenTrimmed() {
+        KeyTable<String> keyTable = new KeyTable<>(MapsMemoizersTest::md5HashBuilder, KeyHandler.defaultHandler());
+        int foo = keyTable.ordinal(keyTable.normalize("foo"));
+        int bar = keyTable.ordinal(keyTable.normalize("bar"));
+        byte[] fooBytes = keyTable.bytes("foo");
+        assertEquals(16, fooBytes.length);
+        assertTrue(keyTable.workingBytes() > 0L);
+
+        keyTable.trim();
+        assertEquals(0L, keyTable.workingBytes());
+        assertEquals(foo, keyTable.ordinalOf("foo"));
+        assertEquals(bar, keyTable.ordinal("bar"));
+        assertEquals(-1, keyTable.ordinalOf("zot"));
+        assertArrayEquals(fooBytes, keyTable.lookups().bytes("foo"));
+        assertArrayEquals(new Object[] { "foo", "bar" }, keyTable.keys());
+        assertThrows(IllegalStateException.class, () -> keyTable.ordinal("zot"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.LongMapsMemoizer;
+import com.github.kjetilv.eda.LongMemoizedMaps;
+import com.github.kjetilv.eda.MapsMemoizers;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongMapsMemoizerTest {
+
+    @Test
+    void shouldStoreUnderPrimitiveIds() {
+        LongMapsMemoizer<String> memoizer = MapsMemoizers.createLongKeyed();
+
+        for (long i = -500; i < 500; i++) {
+            memoizer.put(i * 1_000_003L, Map.of("foo", "bar", "zot", Map.of("i", i % 3)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> memoizer.put(0L, Map.of("foo", "zot")));
+        assertFalse(memoizer.putIfAbsent(0L, Map.of("foo", "zot")));
+        assertTrue(memoizer.putIfAbsent(1L, Map.of("foo", "zot")));
+
+        LongMemoizedMaps<String> access = memoizer.complete();
+
+        assertEquals(1001, access.size());
+        assertEquals(Map.of("foo", "bar", "zot", Map.of("i", 2L)), access.get(2_000_006L));
+        assertSame(access.get(0L), access.get(3_000_009L));
+        assertSame(access.get(-3_000_009L).get("zot"), access.get(3_000_009L).get("zot"));
+        assertEquals(Map.of("foo", "zot"), access.get(1L));
+        assertNull(access.get(2L));
+        assertThrows(IllegalStateException.class, () -> memoizer.put(2L, Map.of("foo", "zot")));
+    }
+}
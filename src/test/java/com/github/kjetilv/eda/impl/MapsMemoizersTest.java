@@ -1,9 +1,16 @@
 package com.github.kjetilv.eda.impl;
 
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.Fingerprint;
 import com.github.kjetilv.eda.KeyHandler;
+import com.github.kjetilv.eda.KeyPath;
+import com.github.kjetilv.eda.LeafNormalizer;
 import com.github.kjetilv.eda.MapsMemoizer;
 import com.github.kjetilv.eda.MemoizedMaps;
+import com.github.kjetilv.eda.MemoizerOptions;
 import com.github.kjetilv.eda.PojoBytes;
+import com.github.kjetilv.eda.PutOutcome;
+import com.github.kjetilv.eda.Verification;
 import org.junit.jupiter.api.Test;
 
 import java.io.Serializable;
@@ -72,13 +79,14 @@ class MapsMemoizersTest {
         assertSame(bd, bd42);
         assertEquals(bd, bd42);
 
-        assertNotSame(bi, bi43);
+        // Colliding leaves are still canonical
+        assertSame(bi, bi43);
         assertEquals(bi, bi43);
-        assertNotSame(bd, bd43);
+        assertSame(bd, bd43);
         assertEquals(bd, bd43);
+        assertSame(map42, map43);
 
-//        assertSame(bd, access.get(43L).get("zot1"));
-//        assertSame(bi, access.get(43L).get("zot2"));
+        assertEquals(1, access.collisions().size());
     }
 
     @Test
@@ -143,11 +151,21 @@ class MapsMemoizersTest {
         for (int i = 0; i < 10; i++) {
             cache.put((long) i, Map.of("foo", String.valueOf(i)));
         }
+        cache.put(10L, Map.of("foo", "7", "bar", "7"));
+        cache.put(11L, Map.of("foo", "7", "bar", "7"));
+        assertTrue(cache.sameContent(10L, 11L));
+        assertSame(cache.get(10L), cache.get(11L));
+        assertSame(cache.get(7L).get("foo"), cache.get(10L).get("bar"));
+
         MemoizedMaps<Long, String> access = cache.complete();
         for (int i = 0; i < 10; i++) {
             Map<String, String> reconstructed = Map.of("foo", String.valueOf(i));
             assertEquals(reconstructed, access.get((long) i));
         }
+        assertEquals(
+            Set.of(new Fingerprint(collider.l0(), collider.l1()), access.fingerprint(3L)),
+            access.collisions()
+        );
     }
 
     @Test
@@ -539,6 +557,111 @@ class MapsMemoizersTest {
         assertSame(bi, access.get(43L).get("zot1"));
     }
 
+    @Test
+    void shouldNormalizeLeaves() {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.configured(
+            null,
+            MemoizerOptions.defaults().normalize(
+                LeafNormalizer.NARROWEST_INTEGRAL,
+                LeafNormalizer.CANONICAL_DECIMALS,
+                LeafNormalizer.INSTANTS
+            )
+        );
+        Instant instant = Instant.parse("2025-01-01T12:00:00Z");
+        cache.put(1L, Map.of(
+            "one", 1,
+            "price", new BigDecimal("2.50"),
+            "when", instant.atOffset(ZoneOffset.ofHours(2))
+        ));
+        cache.put(2L, Map.of(
+            "one", 1.0d,
+            "price", new BigDecimal("2.5"),
+            "when", instant.atZone(ZoneId.of("Europe/Oslo"))
+        ));
+        cache.put(3L, Map.of(
+            "one", new BigDecimal("1.00"),
+            "price", new BigDecimal("2.500"),
+            "when", instant
+        ));
+        cache.put(4L, Map.of(
+            "big", 1L << 40,
+            "bigger", new BigInteger("5"),
+            "float", 2.5f,
+            "huge", new BigDecimal("1E+1000000000"),
+            "wide", new BigDecimal("9223372036854775808")
+        ));
+
+        assertEquals(Map.of("one", 1, "price", new BigDecimal("2.5"), "when", instant), cache.get(1L));
+        assertSame(cache.get(1L), cache.get(2L));
+        assertSame(cache.get(1L), cache.get(3L));
+        assertEquals(
+            Map.of(
+                "big", 1L << 40,
+                "bigger", 5,
+                "float", 2.5f,
+                "huge", new BigDecimal("1E+1000000000"),
+                "wide", new BigInteger("9223372036854775808")
+            ),
+            cache.get(4L)
+        );
+    }
+
+    @Test
+    void shouldDecomposeValueObjects() {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.configured(
+            null,
+            MemoizerOptions.defaults()
+                .decomposeRecords()
+                .decompose(Bean.class)
+                .normalize(LeafNormalizer.NARROWEST_INTEGRAL)
+        );
+        Person alice = new Person("Alice", 42L, new Address("Street 1", "Oslo"), List.of("a", "b"));
+        Person bob = new Person("Bob", 43L, new Address("Street 1", "Oslo"), List.of("a", "b"));
+        cache.put(1L, Map.of("person", alice, "tags", List.of("a", "b"), "bean", new Bean("x", 1)));
+        cache.put(2L, Map.of("person", new Person("Alice", 42L, new Address("Street 1", "Oslo"), List.of("a", "b"))));
+        cache.put(3L, Map.of("person", bob, "bean", new Bean("x", 1)));
+
+        Person stored = (Person) cache.get(1L).get("person");
+        assertEquals(alice, stored);
+        assertNotSame(alice, stored);
+        assertSame(stored, cache.get(2L).get("person"));
+        assertSame(stored.address(), ((Person) cache.get(3L).get("person")).address());
+        assertSame(stored.tags(), cache.get(1L).get("tags"));
+        assertSame(cache.get(1L).get("bean"), cache.get(3L).get("bean"));
+        assertEquals(new Bean("x", 1), cache.get(3L).get("bean"));
+    }
+
+    @Test
+    void shouldRebuildValueObjectsEqual() {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.configured(
+            null,
+            MemoizerOptions.defaults().decomposeRecords().normalize(LeafNormalizer.NARROWEST_INTEGRAL)
+        );
+        Catalog catalog = new Catalog(
+            "foo",
+            Map.of(2024, "x", 2025, ""),
+            Set.of("a", "b"),
+            Map.of("empty", List.of(), "long", 1L),
+            List.of(Map.of(1, List.of()), List.of(2L), new Address("Street 1", "Oslo"))
+        );
+        Catalog empty = new Catalog("bar", Map.of(), Set.of(), List.of(), List.of());
+        cache.put(1L, Map.of("catalog", catalog, "empty", empty));
+        cache.put(2L, Map.of("catalog", new Catalog(
+            "foo",
+            Map.of(2024, "x", 2025, ""),
+            Set.of("a", "b"),
+            Map.of("empty", List.of(), "long", 1L),
+            List.of(Map.of(1, List.of()), List.of(2L), new Address("Street 1", "Oslo"))
+        )));
+
+        Catalog stored = (Catalog) cache.get(1L).get("catalog");
+        assertEquals(catalog, stored);
+        assertEquals("x", stored.codes().get(2024));
+        assertEquals(1L, ((Map<?, ?>) stored.extra()).get("long"));
+        assertEquals(empty, cache.get(1L).get("empty"));
+        assertSame(stored, cache.get(2L).get("catalog"));
+    }
+
     @Test
     void shouldHandlePrimitives() {
         Map<String, ? extends Comparable<? extends Comparable<?>>> map = Map.ofEntries(
@@ -580,6 +703,226 @@ class MapsMemoizersTest {
         assertEquals(foo, cache.get(42L));
     }
 
+    @Test
+    void shouldFreezeIndex() {
+        MapsMemoizer<Long, String> cache = mapsMemoizer();
+
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, Map.of("foo", "bar", "zot", i % 10));
+        }
+        Map<String, ?> map42 = cache.get(42L);
+        MemoizedMaps<Long, String> access = cache.complete(Completion.FROZEN_INDEX);
+
+        assertEquals(100, access.size());
+        assertSame(map42, access.get(42L));
+        assertSame(access.get(42L), access.get(52L));
+        assertEquals(Map.of("foo", "bar", "zot", 3L), access.get(3L));
+        assertNull(access.get(100L));
+        assertThrows(IllegalStateException.class, () -> cache.put(101L, Map.of("foo", "bar")));
+    }
+
+    @Test
+    void shouldEncode() {
+        MapsMemoizer<Long, String> cache = mapsMemoizer();
+
+        Map<String, Object> in42 = build42(zot1Zot2());
+        Map<String, Object> in43 = Map.of(
+            "fooTop", "zot",
+            "zot", zot1Zot2(),
+            "a", hh0hh1(),
+            "list", Arrays.asList("1", null, Map.of("x", 1L))
+        );
+        cache.put(42L, in42);
+        cache.put(43L, in43);
+        cache.put(44L, build42(zot1Zot2()));
+
+        MemoizedMaps<Long, String> access = cache.complete(Completion.ENCODED, Completion.FROZEN_INDEX);
+
+        assertEquals(3, access.size());
+        assertEquals(in42, access.get(42L));
+        assertEquals(in43, access.get(43L));
+        assertEquals(access.get(42L), access.get(44L));
+        assertSame(access.get(42L).get("zotCopy"), access.get(43L).get("zot"));
+        assertNull(access.get(45L));
+    }
+
+    @Test
+    void shouldGetByPath() {
+        MapsMemoizer<Long, String> cache = mapsMemoizer();
+        Map<String, Object> address = Map.of("street", "Street 1", "zip", "0123");
+        cache.put(1L, Map.of("customer", Map.of("name", "Alice", "address", address), "tags", List.of("a")));
+        cache.put(2L, Map.of("customer", Map.of("name", "Bob", "address", address)));
+        cache.put(3L, Map.of("customer", Map.of("name", "Carol")));
+
+        KeyPath zip = KeyPath.of("customer", "address", "zip");
+        KeyPath name = KeyPath.of("customer", "name");
+        assertGetByPath(cache, zip, name);
+        assertNull(cache.get(1L, KeyPath.of("tags", "0")));
+        assertNull(cache.get(1L, KeyPath.of("unknown")));
+
+        assertGetByPath(cache.complete(Completion.ENCODED, Completion.FROZEN_INDEX), zip, name);
+    }
+
+    private static void assertGetByPath(MemoizedMaps<Long, String> access, KeyPath zip, KeyPath name) {
+        assertEquals("0123", access.get(1L, zip));
+        assertEquals("Alice", access.get(1L, name));
+        assertEquals(Map.of("street", "Street 1", "zip", "0123"), access.get(2L, KeyPath.of("customer", "address")));
+        assertNull(access.get(3L, zip));
+        assertNull(access.get(4L, zip));
+        assertEquals(Map.of(1L, "0123", 2L, "0123"), access.getAll(List.of(1L, 2L, 3L, 4L), zip));
+        assertEquals(List.of(3L, 2L, 1L), List.copyOf(access.getAll(List.of(3L, 2L, 1L), name).keySet()));
+    }
+
+    @Test
+    void shouldStreamAll() {
+        Hash collider = random();
+        LeafHasher leafHasher = leaf ->
+            leaf.equals("3") || leaf.equals("7")
+                ? collider
+                : new DefaultLeafHasher(
+                    MapsMemoizersTest::md5HashBuilder,
+                    PojoBytes.HASHCODE
+                ).hash(leaf);
+        MapsMemoizer<Long, String> cache = create(null, null, leafHasher);
+        for (long i = 0; i < 1000; i++) {
+            cache.put(i, Map.of("foo", String.valueOf(i % 10)));
+        }
+
+        Map<Long, Map<String, ?>> streamed = cache.parallelStream()
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertEquals(1000, streamed.size());
+        assertEquals(Map.of("foo", "7"), streamed.get(17L));
+
+        MemoizedMaps<Long, String> access = cache.complete(Completion.FROZEN_INDEX);
+        Map<Long, Map<String, ?>> visited = new HashMap<>();
+        access.forEach(visited::put);
+        assertEquals(streamed, visited);
+        assertEquals(1000, access.stream().count());
+    }
+
+    @Test
+    void shouldDetectChanges() {
+        MapsMemoizer<Long, String> cache = mapsMemoizer();
+        assertEquals(PutOutcome.ADDED, cache.putIfChanged(1L, Map.of("foo", "bar", "zot", 1)));
+        assertEquals(PutOutcome.ADDED, cache.putIfChanged(2L, Map.of("zot", 1, "foo", "bar")));
+        assertEquals(PutOutcome.UNCHANGED, cache.putIfChanged(1L, new HashMap<>(Map.of("foo", "bar", "zot", 1))));
+        assertNull(cache.fingerprint(3L));
+
+        assertEquals(cache.fingerprint(1L), cache.fingerprint(2L));
+        assertTrue(cache.sameContent(1L, 2L));
+        assertFalse(cache.sameContent(1L, 3L));
+
+        assertEquals(PutOutcome.REPLACED, cache.putIfChanged(2L, Map.of("foo", "baz", "zot", 1)));
+        assertEquals(Map.of("foo", "baz", "zot", 1), cache.get(2L));
+        assertEquals(Map.of("foo", "bar", "zot", 1), cache.get(1L));
+        assertNotEquals(cache.fingerprint(1L), cache.fingerprint(2L));
+        assertFalse(cache.sameContent(1L, 2L));
+
+        assertEquals(PutOutcome.REPLACED, cache.putIfChanged(1L, Map.of("foo", "zip")));
+        assertEquals(2, cache.size());
+
+        Fingerprint fingerprint = cache.fingerprint(1L);
+        MemoizedMaps<Long, String> access = cache.complete(Completion.FROZEN_INDEX);
+        assertEquals(fingerprint, access.fingerprint(1L));
+        assertEquals(Map.of("foo", "zip"), access.get(1L));
+        assertThrows(IllegalStateException.class, () -> cache.putIfChanged(1L, Map.of()));
+    }
+
+    @Test
+    void shouldCompareCollidingContent() {
+        MapsMemoizer<Long, String> cache = create(null, null, collidingLeafHasher());
+        cache.put(1L, Map.of("foo", "bar"));
+        cache.put(2L, Map.of("foo", "baz"));
+        cache.put(3L, Map.of("foo", "baz"));
+        assertEquals(cache.fingerprint(1L), cache.fingerprint(2L));
+        assertFalse(cache.sameContent(1L, 2L));
+        assertTrue(cache.sameContent(2L, 3L));
+    }
+
+    @Test
+    void shouldVerifyByPolicy() {
+        MapsMemoizer<Long, String> always = verifying(Verification.ALWAYS);
+        assertEquals(Map.of("foo", "baz"), always.get(2L));
+        assertEquals(Map.of("foo", 1), always.get(3L));
+        assertEquals(2, always.collisions().size());
+        assertTrue(always.verificationStats().verified() > 0);
+
+        MapsMemoizer<Long, String> shallow = verifying(Verification.SHALLOW);
+        assertSame(shallow.get(1L), shallow.get(2L));
+        assertEquals(Map.of("foo", 1), shallow.get(3L));
+        assertTrue(shallow.verificationStats().verified() > 0);
+
+        MapsMemoizer<Long, String> trusting = verifying(Verification.TRUST_HASH);
+        assertSame(trusting.get(1L), trusting.get(2L));
+        assertSame(trusting.get(1L), trusting.get(3L));
+        assertTrue(trusting.collisions().isEmpty());
+        assertEquals(0L, trusting.verificationStats().verified());
+        trusting.complete();
+        assertEquals(Verification.TRUST_HASH, trusting.verificationStats().verification());
+    }
+
+    record Address(String street, String city) {
+    }
+
+    record Person(String name, long id, Address address, List<String> tags) {
+    }
+
+    record Catalog(String name, Map<Integer, String> codes, Set<String> tags, Object extra, List<Object> items) {
+    }
+
+    public static final class Bean {
+
+        private String name;
+
+        private int count;
+
+        public Bean() {
+        }
+
+        Bean(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Bean bean && count == bean.count && Objects.equals(name, bean.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, count);
+        }
+    }
+
+    private static MapsMemoizer<Long, String> verifying(Verification verification) {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.configured(
+            null,
+            MemoizerOptions.defaults().verify(verification),
+            collidingLeafHasher()
+        );
+        cache.put(1L, Map.of("foo", "bar"));
+        cache.put(2L, Map.of("foo", "baz"));
+        cache.put(3L, Map.of("foo", 1));
+        return cache;
+    }
+
     private static MapsMemoizer<Long, String> mapsMemoizer() {
         return create(null, null);
     }
@@ -0,0 +1,108 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizerCounters;
+import com.github.kjetilv.eda.MemoizerOptions;
+import com.github.kjetilv.eda.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoizerMetricsTest {
+
+    @Test
+    void shouldCount() {
+        MemoizerCounters counters = new MemoizerCounters();
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create(MemoizerOptions.defaults().metrics(counters));
+
+        Map<String, Object> address = Map.of("street", "Street 1", "zip", "0123");
+        cache.put(1L, Map.of("name", "foo", "address", address));
+        cache.put(2L, Map.of("name", "bar", "address", address));
+        cache.putIfAbsent(2L, Map.of("name", "zot"));
+        cache.get(1L);
+        cache.get(3L);
+        cache.complete(Completion.FROZEN_INDEX);
+
+        MetricsSnapshot snapshot = counters.snapshot();
+        assertEquals(3, snapshot.puts());
+        assertEquals(2, snapshot.added());
+        assertEquals(1, snapshot.unchanged());
+        assertEquals(2, snapshot.gets());
+        assertEquals(1, snapshot.getMisses());
+        assertEquals(1, snapshot.mapHits());
+        assertEquals(3, snapshot.mapMisses());
+        assertEquals(2, snapshot.leafHits());
+        assertEquals(4, snapshot.leafMisses());
+        assertEquals(4, snapshot.canonicalKeys());
+        assertEquals(1, snapshot.completions());
+        assertTrue(snapshot.locks() > 0);
+        assertTrue(snapshot.hitRatio() > 0.0d);
+    }
+
+    @Test
+    void shouldCountAsyncPuts() {
+        MemoizerCounters counters = new MemoizerCounters();
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create(MemoizerOptions.defaults().metrics(counters));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            futures.add(cache.putAsync(i, Map.of("name", "foo" + i % 10)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        cache.complete();
+
+        MetricsSnapshot snapshot = counters.snapshot();
+        assertEquals(100, snapshot.puts());
+        assertEquals(100, snapshot.added());
+        assertEquals(10, snapshot.leafMisses());
+        assertEquals(90, snapshot.leafHits());
+        assertTrue(snapshot.locks() > 0);
+    }
+
+    @Test
+    void shouldAddUpSharedCounters() {
+        MemoizerCounters counters = new MemoizerCounters();
+        MapsMemoizer<Long, String> one = MapsMemoizers.create(MemoizerOptions.defaults().metrics(counters));
+        MapsMemoizer<Long, String> two = MapsMemoizers.create(MemoizerOptions.defaults().metrics(counters));
+
+        one.put(1L, Map.of("foo", 1, "bar", 2));
+        two.put(1L, Map.of("zot", 3));
+        one.put(2L, Map.of("foo", 1, "zip", 4));
+
+        MetricsSnapshot snapshot = counters.snapshot();
+        assertEquals(3, snapshot.puts());
+        assertEquals(4, snapshot.canonicalKeys());
+    }
+
+    @Test
+    void shouldRegisterMBean() throws Exception {
+        MemoizerCounters counters = new MemoizerCounters();
+        MapsMemoizer<Long, String> cache = MapsMemoizers.create(MemoizerOptions.defaults().metrics(counters));
+        cache.put(1L, Map.of("name", "foo"));
+
+        String name = "com.github.kjetilv.eda:type=Memoizer,name=test";
+        counters.registerMBean(name);
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(name), "puts"));
+            assertThrows(IllegalArgumentException.class, () -> counters.registerMBean(name));
+            ReflectionException failure = assertThrows(
+                ReflectionException.class,
+                () -> ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(name), "reset", null, null)
+            );
+            assertInstanceOf(NoSuchMethodException.class, failure.getCause());
+        } finally {
+            counters.unregisterMBean(name);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(name)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Completion;
+import com.github.kjetilv.eda.KeyPath;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizedMaps;
+import com.github.kjetilv.eda.MemoizerOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PathIndexesTest {
+
+    private static final KeyPath COUNTRY = KeyPath.of("address", "country");
+
+    private static final KeyPath ADDRESS = KeyPath.of("address");
+
+    @Test
+    void shouldLookUpLeavesAndSubtrees() {
+        MapsMemoizer<Long, String> memoizer = MapsMemoizers.create(
+            MemoizerOptions.defaults().index(COUNTRY, ADDRESS)
+        );
+        for (long i = 0; i < 100; i++) {
+            memoizer.put(i, Map.of(
+                "name", "person-" + i,
+                "address", Map.of(
+                    "country", i % 3 == 0 ? "NO" : "SE",
+                    "zip", i % 2
+                )
+            ));
+        }
+        memoizer.put(100L, Map.of("name", "homeless"));
+
+        List<Long> norwegians = memoizer.lookup(COUNTRY, "NO");
+        assertEquals(34, norwegians.size());
+        assertEquals(List.of(0L, 3L, 6L), norwegians.subList(0, 3));
+
+        MemoizedMaps<Long, String> access = memoizer.complete(Completion.FROZEN_INDEX);
+        assertEquals(norwegians, access.lookup(COUNTRY, "NO"));
+        assertEquals(List.of(), access.lookup(COUNTRY, "DK"));
+        assertEquals(
+            List.of(0L, 6L, 12L),
+            access.lookup(ADDRESS, Map.of("zip", 0L, "country", "NO")).subList(0, 3)
+        );
+        assertThrows(IllegalArgumentException.class, () -> access.lookup(KeyPath.of("name"), "homeless"));
+    }
+
+    @Test
+    void shouldReindexReplacedMaps() {
+        MapsMemoizer<Long, String> memoizer = MapsMemoizers.create(MemoizerOptions.defaults().index(COUNTRY));
+        memoizer.put(1L, Map.of("address", Map.of("country", "NO")));
+        memoizer.put(2L, Map.of("address", Map.of("country", "NO")));
+        assertEquals(List.of(1L, 2L), memoizer.lookup(COUNTRY, "NO"));
+
+        memoizer.putIfChanged(1L, Map.of("address", Map.of("country", "SE")));
+        assertEquals(List.of(2L), memoizer.lookup(COUNTRY, "NO"));
+        assertEquals(List.of(1L), memoizer.lookup(COUNTRY, "SE"));
+    }
+}
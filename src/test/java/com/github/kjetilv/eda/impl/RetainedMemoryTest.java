@@ -0,0 +1,113 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.Footprint;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizedMaps;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retained heap per stored document, measured after forced garbage collection, for a {@link Corpus corpus}
+ * loaded into a completed memoizer, and into a plain {@link HashMap} as a baseline.  Fails if bytes per
+ * document exceed the budget of the scenario.  Budgets are set with some headroom over measured values, and
+ * should be lowered when an improvement lands.
+ * <p>
+ * Also checks that the {@link Footprint footprint} estimate is in the neighbourhood of the measured values.
+ * <p>
+ * Tagged {@code memory}, and only run by {@code gradle memoryTest}.  Measurements are in the assertion messages.
+ */
+@Tag("memory")
+class RetainedMemoryTest {
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+        "lowDup,  3, 4,  0.1, 8500",
+        "halfDup, 3, 4,  0.5, 5000",
+        "highDup, 3, 4,  0.9, 1800",
+        "wide,    1, 16, 0.5, 8500"
+    })
+    void shouldStayWithinBudget(String scenario, int depth, int width, double dupRatio, long budget) {
+        Corpus loaded = Corpus.defaults().depth(depth).width(width).dupRatio(dupRatio);
+
+        long baseline = retainedPerDocument(() -> {
+            Map<Integer, Map<String, Object>> maps = new HashMap<>();
+            for (int i = 0; i < DOCUMENTS; i++) {
+                maps.put(i, loaded.document(i));
+            }
+            return maps;
+        });
+        AtomicReference<Footprint> footprint = new AtomicReference<>();
+        long memoized = retainedPerDocument(() -> {
+            MapsMemoizer<Integer, String> memoizer = MapsMemoizers.create();
+            for (int i = 0; i < DOCUMENTS; i++) {
+                memoizer.put(i, loaded.document(i));
+            }
+            MemoizedMaps<Integer, String> completed = memoizer.complete();
+            footprint.set(completed.footprint());
+            return completed;
+        });
+        long estimated = footprint.get().total() / DOCUMENTS;
+        long estimatedBaseline = footprint.get().undeduplicated() / DOCUMENTS;
+
+        Supplier<String> measured = () -> String.format(
+            "%s: %d bytes/document (estimated %d), baseline %d bytes/document (estimated %d), " +
+            "dedup ratio %.2f, budget %d",
+            scenario,
+            memoized,
+            estimated,
+            baseline,
+            estimatedBaseline,
+            (double) baseline / memoized,
+            budget
+        );
+        assertTrue(memoized < baseline, () -> measured.get() + ": no better than baseline");
+        assertTrue(memoized <= budget, () -> measured.get() + ": over budget");
+        assertWithin(estimated, memoized, () -> measured.get() + ": estimate is off");
+        assertWithin(estimatedBaseline, baseline, () -> measured.get() + ": baseline estimate is off");
+    }
+
+    private static final int DOCUMENTS = 5_000;
+
+    /**
+     * Estimates are rough, but should be within a factor of two of the measured value
+     */
+    private static void assertWithin(long estimated, long measured, Supplier<String> message) {
+        assertTrue(estimated > measured / 2 && estimated < measured * 2, message);
+    }
+
+    private static long retainedPerDocument(Supplier<Object> load) {
+        long before = usedHeap();
+        Object retained = load.get();
+        long after = usedHeap();
+        long perDocument = (after - before) / DOCUMENTS;
+        Reference.reachabilityFence(retained);
+        return perDocument;
+    }
+
+    /**
+     * @return Used heap, once it stops shrinking between collections
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                return used;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MapsMemoizers;
+import com.github.kjetilv.eda.MemoizerOptions;
+import com.github.kjetilv.eda.SeedDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeedTest {
+
+    @Test
+    void shouldShareSeededSubstructures() {
+        SeedDictionary dictionary = MapsMemoizers.trainDictionary(corpus(), 100);
+        assertTrue(dictionary.size() > 0);
+
+        MapsMemoizer<Long, String> cache1 = MapsMemoizers.create(MemoizerOptions.defaults().seed(dictionary));
+        MapsMemoizer<Long, String> cache2 = MapsMemoizers.create(MemoizerOptions.defaults().seed(dictionary));
+        cache1.put(1L, person(100, "Oslo"));
+        cache2.put(1L, person(200, "Oslo"));
+
+        assertSame(cache1.get(1L).get("address"), cache2.get(1L).get("address"));
+        assertSame(cache1.get(1L).get("tags"), cache2.get(1L).get("tags"));
+        assertNotSame(cache1.get(1L), cache2.get(1L));
+        assertEquals(person(100, "Oslo"), cache1.get(1L));
+    }
+
+    @Test
+    void shouldNotShareUnseededSubstructures() {
+        MapsMemoizer<Long, String> cache1 = MapsMemoizers.create();
+        MapsMemoizer<Long, String> cache2 = MapsMemoizers.create();
+        cache1.put(1L, person(100, "Oslo"));
+        cache2.put(1L, person(200, "Oslo"));
+
+        assertNotSame(cache1.get(1L).get("address"), cache2.get(1L).get("address"));
+    }
+
+    @Test
+    void shouldRespectMaxEntries() {
+        assertEquals(0, MapsMemoizers.trainDictionary(corpus(), 0).size());
+        assertTrue(MapsMemoizers.trainDictionary(corpus(), 3).size() <= 3);
+    }
+
+    @Test
+    void shouldRoundTrip() throws IOException {
+        SeedDictionary dictionary = MapsMemoizers.trainDictionary(corpus(), 100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dictionary.writeTo(out);
+        SeedDictionary read = MapsMemoizers.readDictionary(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(dictionary.size(), read.size());
+
+        MapsMemoizer<Long, String> cache1 = MapsMemoizers.create(MemoizerOptions.defaults().seed(read));
+        MapsMemoizer<Long, String> cache2 = MapsMemoizers.create(MemoizerOptions.defaults().seed(read));
+        cache1.put(1L, person(100, "Bergen"));
+        cache2.put(1L, person(200, "Bergen"));
+
+        assertSame(cache1.get(1L).get("address"), cache2.get(1L).get("address"));
+        assertEquals(person(100, "Bergen"), cache1.get(1L));
+    }
+
+    private static List<Map<String, Object>> corpus() {
+        return IntStream.range(0, 20)
+            .mapToObj(i -> person(i, i % 2 == 0 ? "Oslo" : "Bergen"))
+            .toList();
+    }
+
+    private static Map<String, Object> person(int id, String city) {
+        return Map.of(
+            "id", id,
+            "address", Map.of("city", city, "country", "Norway"),
+            "tags", List.of("customer", "active")
+        );
+    }
+}
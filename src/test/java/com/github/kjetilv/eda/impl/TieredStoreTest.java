@@ -0,0 +1,124 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.CompressOptions;
+import com.github.kjetilv.eda.KeyPath;
+import com.github.kjetilv.eda.MapsMemoizer;
+import com.github.kjetilv.eda.MemoizedMaps;
+import com.github.kjetilv.eda.MemoizerOptions;
+import com.github.kjetilv.eda.SpillOptions;
+import com.github.kjetilv.eda.TierStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldSpillAndFault() {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.configured(
+            null,
+            MemoizerOptions.defaults().spill(new SpillOptions(directory, 2_000L))
+        );
+        List<String> shared = List.of("shared", "list");
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, map(i, shared));
+        }
+        MemoizedMaps<Long, String> access = cache.complete();
+
+        TierStats spilled = access.tierStats();
+        assertTrue(spilled.cold() > 0, "Spilled: " + spilled);
+        assertTrue(spilled.hotBytes() <= 2_000L, "Hot: " + spilled);
+        assertEquals(100, spilled.hot() + spilled.cold());
+
+        for (long i = 0; i < 100; i++) {
+            assertEquals(map(i, shared), access.get(i));
+        }
+        assertSame(access.get(1L).get("shared"), access.get(99L).get("shared"));
+        assertEquals("text 42", access.get(42L, KeyPath.of("nested", "text")));
+
+        for (int i = 0; i < 10; i++) {
+            access.get(99L);
+        }
+        TierStats read = access.tierStats();
+        assertTrue(read.faults() > 0, "Read: " + read);
+        assertTrue(read.hits() >= 9, "Read: " + read);
+        assertTrue(read.hotBytes() <= 2_000L, "Read: " + read);
+    }
+
+    @Test
+    void shouldCloseSpillFile() {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.configured(
+            null,
+            MemoizerOptions.defaults().spill(new SpillOptions(directory, 2_000L))
+        );
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, map(i, List.of("shared")));
+        }
+        MemoizedMaps<Long, String> access = cache.complete();
+        assertTrue(access.tierStats().cold() > 0);
+
+        access.close();
+        assertThrows(UncheckedIOException.class, () -> {
+            for (long i = 0; i < 100; i++) {
+                access.get(i);
+            }
+        });
+        access.close();
+    }
+
+    @Test
+    void shouldCompressIdleMaps() throws InterruptedException {
+        assertCompressed(MemoizerOptions.defaults().compress(new CompressOptions(Duration.ofMillis(1), 2)));
+    }
+
+    @Test
+    void shouldCompressToDisk() throws InterruptedException {
+        assertCompressed(MemoizerOptions.defaults()
+            .compress(new CompressOptions(Duration.ofMillis(1), 2))
+            .spill(new SpillOptions(directory, 1_000_000L)));
+    }
+
+    @Test
+    void shouldNotTierByDefault() {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.create(null, null);
+        cache.put(1L, Map.of("foo", "bar"));
+        assertEquals(TierStats.NONE, cache.complete().tierStats());
+    }
+
+    private static void assertCompressed(MemoizerOptions options) throws InterruptedException {
+        MapsMemoizer<Long, String> cache = MapMemoizerFactory.configured(null, options);
+        List<String> shared = List.of("shared", "list");
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, map(i, shared));
+        }
+        MemoizedMaps<Long, String> access = cache.complete();
+        Thread.sleep(20);
+
+        TierStats compressed = access.tierStats();
+        assertEquals(100, compressed.cold(), "Compressed: " + compressed);
+        assertTrue(compressed.compressionRatio() > 2.0d, "Compressed: " + compressed);
+
+        for (long i = 0; i < 100; i++) {
+            assertEquals(map(i, shared), access.get(i));
+        }
+        assertTrue(access.tierStats().faults() >= 100);
+    }
+
+    private static Map<String, Object> map(long i, List<String> shared) {
+        return Map.of(
+            "id", i,
+            "nested", Map.of("text", "text " + i, "padding", "x".repeat(100) + i),
+            "shared", shared
+        );
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.kjetilv.eda.impl;
+
+import com.github.kjetilv.eda.KeyHandler;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeCodecTest {
+
+    @Test
+    void shouldRoundTrip() {
+        Map<String, Object> tree = Map.of(
+            "string", "foo",
+            "int", -42,
+            "long", Long.MAX_VALUE,
+            "double", 2.5,
+            "bool", true,
+            "big", new BigDecimal("5.25"),
+            "list", Arrays.asList("1", null, 3L, List.of(Map.of("deep", false))),
+            "map", Map.of("inner", "é")
+        );
+        EncodedTree<String> encoded = TreeCodec.encode(tree, __ -> false);
+
+        Map<String, Object> view = encoded.view();
+        assertEquals(tree, view);
+        assertEquals(view, tree);
+        assertEquals(tree.hashCode(), view.hashCode());
+        assertSame(tree.get("big"), view.get("big"));
+    }
+
+    @Test
+    void shouldKeepSharedAsReferences() {
+        Map<String, Object> shared = Map.of("zip", "zot");
+        Map<String, Object> one = Map.of("shared", shared, "own", Map.of("a", 1));
+        Map<String, Object> two = Map.of("shared", shared, "own", Map.of("b", 2));
+
+        Set<Object> sharedValues = TreeCodec.shared(List.of(one, two));
+        assertEquals(Set.of(shared), sharedValues);
+
+        Map<String, Object> view = TreeCodec.<String>encode(one, sharedValues::contains).view();
+        assertSame(shared, view.get("shared"));
+        assertEquals(Map.of("a", 1), view.get("own"));
+        assertSame(view.get("own"), view.get("own"));
+        assertNull(view.get("missing"));
+    }
+
+    @Test
+    void shouldShareKeyTable() {
+        KeyTable<String> keyTable = new KeyTable<>(
+            () -> DigestiveHashBuilder.create(new ByteDigest()),
+            KeyHandler.defaultHandler()
+        );
+        assertEquals(0, keyTable.ordinal("foo"));
+        assertEquals(1, keyTable.ordinal("bar"));
+        assertEquals(0, keyTable.ordinal("foo"));
+        assertArrayEquals(keyTable.bytes("foo"), keyTable.bytes("foo"));
+        assertEquals(16, keyTable.bytes("bar").length);
+
+        Object[] keys = keyTable.keys();
+        assertArrayEquals(new Object[] {"foo", "bar"}, keys);
+        EncodedTree<String> one = TreeCodec.encode(
+            Map.of("foo", 1, "bar", Map.of("foo", 2)), __ -> false, key -> keyTable.ordinal((String) key), keys, keyTable::ordinalOf
+        );
+        EncodedTree<String> two = TreeCodec.encode(
+            Map.of("bar", "zot"), __ -> false, key -> keyTable.ordinal((String) key), keys, keyTable::ordinalOf
+        );
+        assertEquals(0, one.refs().length);
+        assertSame(one.keys(), two.keys());
+        assertEquals(Map.of("foo", 1, "bar", Map.of("foo", 2)), one.view());
+        assertEquals(Map.of("bar", "zot"), two.view());
+    }
+
+    @Test
+    void shouldLookUpKeysByOrdinal() {
+        Map<String, Object> tree = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            tree.put("key" + i, i);
+        }
+        Map<String, Object> view = TreeCodec.<String>encode(tree, __ -> false).view();
+        assertEquals(tree, view);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, view.get(new String("key" + i)));
+        }
+        assertNull(view.get("key100"));
+        assertNull(view.get(null));
+        assertFalse(view.containsKey(42));
+    }
+}